@@ -14,6 +14,7 @@ import dev.ninesliced.components.ExplorationComponent;
 import dev.ninesliced.configs.BetterMapConfig;
 import dev.ninesliced.exploration.*;
 import dev.ninesliced.listeners.ExplorationEventListener;
+import dev.ninesliced.managers.BetterMapExecutor;
 import dev.ninesliced.managers.ExplorationManager;
 import dev.ninesliced.managers.MapPrivacyManager;
 import dev.ninesliced.managers.PlayerConfigManager;
@@ -21,12 +22,14 @@ import dev.ninesliced.managers.WaypointManager;
 import dev.ninesliced.managers.PlayerRadarManager;
 import dev.ninesliced.managers.WarpPrivacyManager;
 import dev.ninesliced.managers.PoiPrivacyManager;
+import dev.ninesliced.providers.CompositeMarkerProvider;
 import dev.ninesliced.providers.LocationHudProvider;
 import dev.ninesliced.systems.LocationSystem;
 
 import javax.annotation.Nonnull;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 /**
@@ -88,6 +91,9 @@ public class BetterMap extends JavaPlugin {
         LOGGER.info("========================================");
 
         try {
+            BetterMapExecutor.start();
+            LOGGER.info("BetterMap Executor: STARTED");
+
             this.explorationComponentType = this.getEntityStoreRegistry()
                     .registerComponent(ExplorationComponent.class, "ExplorationData", ExplorationComponent.CODEC);
             LOGGER.info("Exploration Component: REGISTERED");
@@ -110,6 +116,8 @@ public class BetterMap extends JavaPlugin {
             PoiPrivacyManager.getInstance().initialize();
             LOGGER.info("PoiPrivacyManager: INITIALIZED");
 
+            CompositeMarkerProvider.getInstance().initialize();
+
             Path configDir = BetterMapConfig.getInstance().getConfigDirectory();
             if (configDir == null) {
                 configDir = serverRoot.resolve("mods").resolve("BetterMap");
@@ -165,6 +173,11 @@ public class BetterMap extends JavaPlugin {
             this.locationHudProvider.cleanup();
         }
         PlayerRadarManager.getInstance().cleanup();
+        ExplorationTicker.getInstance().stop();
+        ExplorationManager.getInstance().stopAutoSave();
+        // Drain queued saves and unloads first; the final waypoint flush then closes the logs for good.
+        BetterMapExecutor.getInstance().shutdown(10, TimeUnit.SECONDS);
+        WaypointManager.shutdown();
         super.shutdown();
     }
 }
@@ -14,6 +14,11 @@ import dev.ninesliced.ui.WaypointMenuPage;
 import javax.annotation.Nonnull;
 
 public class BetterMapWaypointCommand extends AbstractCommandCollection {
+    /**
+     * Permission for bulk waypoint import and export.
+     */
+    public static final String TRANSFER_PERMISSION = "dev.ninesliced.bettermap.command.waypoint.transfer";
+
     public BetterMapWaypointCommand() {
         super("waypoint", "Manage map waypoints");
         this.addAliases("marker");
@@ -23,7 +28,11 @@ public class BetterMapWaypointCommand extends AbstractCommandCollection {
         this.addSubCommand(new BetterMapWaypointListCommand());
         this.addSubCommand(new BetterMapWaypointUpdateCommand());
         this.addSubCommand(new BetterMapWaypointTeleportCommand());
+        this.addSubCommand(new BetterMapWaypointNearestCommand());
         this.addSubCommand(new BetterMapWaypointIdCommand());
+        this.addSubCommand(new BetterMapWaypointImportCommand());
+        this.addSubCommand(new BetterMapWaypointExportCommand());
+        this.addSubCommand(new BetterMapWaypointLayerCommand());
         this.addSubCommand(new BetterMapMenuCommand());
     }
 
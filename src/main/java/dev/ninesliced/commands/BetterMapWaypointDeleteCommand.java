@@ -45,15 +45,23 @@ public class BetterMapWaypointDeleteCommand extends AbstractPlayerCommand {
 
         String target = this.targetArg.get(context);
         
-        MapMarker marker = WaypointManager.findWaypoint(player, target);
-        if (marker != null && WaypointManager.isGlobalId(marker.id)) {
+        MapMarker marker = WaypointTargetResolver.resolveExact(context, player, target, "Could not find waypoint with that name or id.");
+        if (marker == null) {
+            return;
+        }
+        if (WaypointManager.isGlobalId(marker.id)) {
             if (!PermissionsUtil.canUseGlobalWaypoints(player)) {
                 context.sendMessage(Message.raw("You do not have permission to delete global waypoints."));
                 return;
             }
         }
+        String layer = WaypointManager.getLayerOfId(marker.id);
+        if (layer != null && !PermissionsUtil.canUseWaypointLayer(player, layer)) {
+            context.sendMessage(Message.raw("You are not a member of the waypoint layer " + layer + "."));
+            return;
+        }
 
-        boolean deleted = WaypointManager.removeWaypoint(player, target);
+        boolean deleted = WaypointManager.removeWaypoint(player, marker.id);
 
         if (deleted) {
             context.sendMessage(Message.raw("Waypoint has been removed."));
@@ -43,11 +43,12 @@ public class BetterMapWaypointDeleteGlobalCommand extends AbstractPlayerCommand
 
         String target = this.targetArg.get(context);
         
-        MapMarker marker = WaypointManager.findWaypoint(player, target);
+        MapMarker marker = WaypointManager.isGlobalId(target)
+            ? WaypointManager.findWaypoint(player, target)
+            : WaypointTargetResolver.resolveExact(context, player, target, "Could not find global waypoint with that name or id.");
 
         if (marker == null) {
             if (!WaypointManager.isGlobalId(target)) {
-                context.sendMessage(Message.raw("Could not find global waypoint with that name or id."));
                 return;
             }
             boolean deletedFallback = WaypointManager.removeWaypoint(player, target);
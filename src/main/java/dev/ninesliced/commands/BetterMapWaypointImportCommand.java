@@ -0,0 +1,46 @@
+package dev.ninesliced.commands;
+
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.command.system.AbstractCommand;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.arguments.system.RequiredArg;
+import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
+import dev.ninesliced.managers.WaypointManager;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Command to import waypoints from a JSON Lines file in the BetterMap transfers directory.
+ */
+public class BetterMapWaypointImportCommand extends AbstractCommand {
+    private final RequiredArg<String> fileArg = this.withRequiredArg("file", "File in the transfers directory", ArgTypes.STRING);
+
+    /**
+     * Constructs the import command.
+     */
+    public BetterMapWaypointImportCommand() {
+        super("import", "Import waypoints from a JSON Lines file");
+        this.requirePermission(BetterMapWaypointCommand.TRANSFER_PERMISSION);
+    }
+
+    @Override
+    protected boolean canGeneratePermission() {
+        return false;
+    }
+
+    /**
+     * Starts the import and reports its progress to the sender.
+     *
+     * @param context The command execution context.
+     * @return A future that completes when the import is finished.
+     */
+    @Nullable
+    @Override
+    protected CompletableFuture<Void> execute(@Nonnull CommandContext context) {
+        String fileName = context.get(this.fileArg);
+        context.sendMessage(Message.raw("Importing waypoints from " + fileName + "..."));
+        return WaypointManager.importWaypoints(fileName, message -> context.sendMessage(Message.raw(message)));
+    }
+}
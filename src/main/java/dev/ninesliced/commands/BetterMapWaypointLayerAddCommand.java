@@ -0,0 +1,80 @@
+package dev.ninesliced.commands;
+
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.protocol.Transform;
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.arguments.system.OptionalArg;
+import com.hypixel.hytale.server.core.command.system.arguments.system.RequiredArg;
+import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
+import com.hypixel.hytale.server.core.command.system.basecommands.AbstractPlayerCommand;
+import com.hypixel.hytale.server.core.entity.entities.Player;
+import com.hypixel.hytale.server.core.modules.entity.component.TransformComponent;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import com.hypixel.hytale.server.core.util.PositionUtil;
+import dev.ninesliced.managers.WaypointManager;
+import java.util.Locale;
+import javax.annotation.Nonnull;
+
+public class BetterMapWaypointLayerAddCommand extends AbstractPlayerCommand {
+    private final RequiredArg<String> layerArg = this.withRequiredArg("layer", "Layer name", ArgTypes.STRING);
+    private final OptionalArg<String> nameArg = this.withOptionalArg("name", "Name of the waypoint", ArgTypes.STRING);
+    private final OptionalArg<String> colorArg = this.withOptionalArg("color", "Color name (red/green/blue)", ArgTypes.STRING);
+
+    public BetterMapWaypointLayerAddCommand() {
+        super("add", "Add a waypoint to a layer at your current location");
+        this.addAliases("create");
+    }
+
+    @Override
+    protected boolean canGeneratePermission() {
+        return false;
+    }
+
+    @Override
+    protected String generatePermissionNode() {
+        return "";
+    }
+
+    @Override
+    protected void execute(@Nonnull CommandContext context, @Nonnull Store<EntityStore> store, @Nonnull Ref<EntityStore> ref, @Nonnull PlayerRef playerRef, @Nonnull World world) {
+        Player player = store.getComponent(ref, Player.getComponentType());
+        if (player == null) {
+            context.sendMessage(Message.raw("Could not find player component"));
+            return;
+        }
+
+        TransformComponent transformComponent = store.getComponent(ref, TransformComponent.getComponentType());
+        if (transformComponent == null) {
+            context.sendMessage(Message.raw("Could not find transform component"));
+            return;
+        }
+
+        String layer = this.layerArg.get(context).trim().toLowerCase(Locale.ROOT);
+        String name = this.nameArg.get(context);
+        if (name == null || name.isEmpty()) {
+            name = "Waypoint";
+        }
+
+        String colorInput = this.colorArg.get(context);
+        String icon;
+        if (colorInput == null || colorInput.isEmpty()) {
+            icon = "Coordinate.png";
+        } else {
+            String normalized = colorInput.trim().toLowerCase();
+            String capitalized = Character.toUpperCase(normalized.charAt(0)) + normalized.substring(1);
+            icon = capitalized + "Marker.png";
+        }
+
+        Transform transform = PositionUtil.toTransformPacket(new com.hypixel.hytale.math.vector.Transform(transformComponent.getPosition()));
+
+        if (WaypointManager.addLayerWaypoint(player, layer, name, icon, transform)) {
+            context.sendMessage(Message.raw("Added waypoint '" + name + "' to layer " + layer + " at your location!"));
+        } else {
+            context.sendMessage(Message.raw("You are not a member of a waypoint layer named " + layer + "."));
+        }
+    }
+}
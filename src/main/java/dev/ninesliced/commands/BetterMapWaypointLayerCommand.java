@@ -0,0 +1,24 @@
+package dev.ninesliced.commands;
+
+import com.hypixel.hytale.server.core.command.system.basecommands.AbstractCommandCollection;
+
+public class BetterMapWaypointLayerCommand extends AbstractCommandCollection {
+
+    public BetterMapWaypointLayerCommand() {
+        super("layer", "Manage shared waypoint layers");
+        this.addAliases("layers");
+        this.addSubCommand(new BetterMapWaypointLayerListCommand());
+        this.addSubCommand(new BetterMapWaypointLayerToggleCommand());
+        this.addSubCommand(new BetterMapWaypointLayerAddCommand());
+    }
+
+    @Override
+    protected boolean canGeneratePermission() {
+        return false;
+    }
+
+    @Override
+    protected String generatePermissionNode() {
+        return "";
+    }
+}
@@ -0,0 +1,49 @@
+package dev.ninesliced.commands;
+
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.basecommands.AbstractPlayerCommand;
+import com.hypixel.hytale.server.core.entity.entities.Player;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import dev.ninesliced.managers.WaypointManager;
+import java.util.List;
+import javax.annotation.Nonnull;
+
+public class BetterMapWaypointLayerListCommand extends AbstractPlayerCommand {
+
+    public BetterMapWaypointLayerListCommand() {
+        super("list", "List the waypoint layers you are a member of");
+    }
+
+    @Override
+    protected boolean canGeneratePermission() {
+        return false;
+    }
+
+    @Override
+    protected String generatePermissionNode() {
+        return "";
+    }
+
+    @Override
+    protected void execute(@Nonnull CommandContext context, @Nonnull Store<EntityStore> store, @Nonnull Ref<EntityStore> ref, @Nonnull PlayerRef playerRef, @Nonnull World world) {
+        Player player = store.getComponent(ref, Player.getComponentType());
+        if (player == null) return;
+
+        List<String> layers = WaypointManager.getWaypointLayers(player);
+        if (layers.isEmpty()) {
+            context.sendMessage(Message.raw("You are not a member of any waypoint layer."));
+            return;
+        }
+
+        context.sendMessage(Message.raw("Waypoint layers:"));
+        for (String layer : layers) {
+            String state = WaypointManager.isWaypointLayerHidden(player, layer) ? "hidden" : "shown";
+            context.sendMessage(Message.raw("- " + layer + " (" + state + ")"));
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package dev.ninesliced.commands;
+
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.arguments.system.RequiredArg;
+import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
+import com.hypixel.hytale.server.core.command.system.basecommands.AbstractPlayerCommand;
+import com.hypixel.hytale.server.core.entity.entities.Player;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import dev.ninesliced.managers.WaypointManager;
+import java.util.Locale;
+import javax.annotation.Nonnull;
+
+public class BetterMapWaypointLayerToggleCommand extends AbstractPlayerCommand {
+    private final RequiredArg<String> layerArg = this.withRequiredArg("layer", "Layer name", ArgTypes.STRING);
+
+    public BetterMapWaypointLayerToggleCommand() {
+        super("toggle", "Show or hide a waypoint layer on your map");
+    }
+
+    @Override
+    protected boolean canGeneratePermission() {
+        return false;
+    }
+
+    @Override
+    protected String generatePermissionNode() {
+        return "";
+    }
+
+    @Override
+    protected void execute(@Nonnull CommandContext context, @Nonnull Store<EntityStore> store, @Nonnull Ref<EntityStore> ref, @Nonnull PlayerRef playerRef, @Nonnull World world) {
+        Player player = store.getComponent(ref, Player.getComponentType());
+        if (player == null) return;
+
+        String layer = this.layerArg.get(context).trim().toLowerCase(Locale.ROOT);
+        if (!WaypointManager.getWaypointLayers(player).contains(layer)) {
+            context.sendMessage(Message.raw("You are not a member of a waypoint layer named " + layer + "."));
+            return;
+        }
+
+        boolean shown = WaypointManager.toggleWaypointLayer(player, layer);
+        context.sendMessage(Message.raw("Waypoint layer " + layer + " is now " + (shown ? "shown" : "hidden") + "."));
+    }
+}
@@ -0,0 +1,74 @@
+package dev.ninesliced.commands;
+
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.math.vector.Vector3d;
+import com.hypixel.hytale.protocol.packets.worldmap.MapMarker;
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.arguments.system.OptionalArg;
+import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
+import com.hypixel.hytale.server.core.command.system.basecommands.AbstractPlayerCommand;
+import com.hypixel.hytale.server.core.entity.entities.Player;
+import com.hypixel.hytale.server.core.modules.entity.component.TransformComponent;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import dev.ninesliced.managers.WaypointManager;
+import java.util.List;
+import java.util.Locale;
+import javax.annotation.Nonnull;
+
+public class BetterMapWaypointNearestCommand extends AbstractPlayerCommand {
+    private static final int DEFAULT_COUNT = 5;
+    private static final int MAX_COUNT = 20;
+
+    private final OptionalArg<Integer> countArg = this.withOptionalArg("count", "Number of waypoints to list", ArgTypes.INTEGER);
+
+    public BetterMapWaypointNearestCommand() {
+        super("nearest", "List the waypoints closest to you");
+        this.addAliases("near");
+    }
+
+    @Override
+    protected boolean canGeneratePermission() {
+        return false;
+    }
+
+    @Override
+    protected String generatePermissionNode() {
+        return "";
+    }
+
+    @Override
+    protected void execute(@Nonnull CommandContext context, @Nonnull Store<EntityStore> store, @Nonnull Ref<EntityStore> ref, @Nonnull PlayerRef playerRef, @Nonnull World world) {
+        Player player = store.getComponent(ref, Player.getComponentType());
+        if (player == null) return;
+
+        TransformComponent transform = store.getComponent(ref, TransformComponent.getComponentType());
+        if (transform == null || transform.getPosition() == null) {
+            context.sendMessage(Message.raw("Could not determine your position."));
+            return;
+        }
+        Vector3d position = transform.getPosition();
+
+        Integer requested = this.countArg.get(context);
+        int count = requested != null ? Math.max(1, Math.min(MAX_COUNT, requested)) : DEFAULT_COUNT;
+
+        List<MapMarker> nearest = WaypointManager.findNearestWaypoints(player, position.x, position.z, count);
+        if (nearest.isEmpty()) {
+            context.sendMessage(Message.raw("You have no waypoints in this world."));
+            return;
+        }
+
+        context.sendMessage(Message.raw("Nearest waypoints:"));
+        for (MapMarker marker : nearest) {
+            double dx = marker.transform.position.x - position.x;
+            double dz = marker.transform.position.z - position.z;
+            String layer = WaypointManager.getLayerOfId(marker.id);
+            String scope = WaypointManager.isGlobalId(marker.id) ? " (Global)" : layer != null ? " (" + layer + ")" : "";
+            context.sendMessage(Message.raw(String.format(Locale.ROOT, "- %s%s: %.0f blocks",
+                marker.name != null ? marker.name : marker.id, scope, Math.sqrt(dx * dx + dz * dz))));
+        }
+    }
+}
@@ -51,8 +51,11 @@ public class BetterMapWaypointTeleportCommand extends AbstractPlayerCommand {
         }
 
         String target = this.targetArg.get(context);
-        MapMarker marker = WaypointManager.findWaypoint(player, target);
-        if (marker == null || marker.transform == null || marker.transform.position == null) {
+        MapMarker marker = WaypointTargetResolver.resolve(context, player, target, "Could not find waypoint with that name or id.");
+        if (marker == null) {
+            return;
+        }
+        if (marker.transform == null || marker.transform.position == null) {
             context.sendMessage(Message.raw("Could not find waypoint with that name or id."));
             return;
         }
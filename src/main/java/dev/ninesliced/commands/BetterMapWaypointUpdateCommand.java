@@ -53,8 +53,8 @@ public class BetterMapWaypointUpdateCommand extends AbstractPlayerCommand {
             return;
         }
 
-        MapMarker marker = dev.ninesliced.managers.WaypointManager.findWaypoint(player, target);
-        
+        MapMarker marker = WaypointTargetResolver.resolve(context, player, target, "Could not find waypoint with that name or id.");
+
         if (marker != null) {
              String icon = null;
              if (newColorInput != null && !newColorInput.isEmpty()) {
@@ -65,8 +65,6 @@ public class BetterMapWaypointUpdateCommand extends AbstractPlayerCommand {
              
              dev.ninesliced.managers.WaypointManager.updateWaypoint(player, marker.id, newNameRaw, icon, null);
              context.sendMessage(Message.raw("Updated waypoint: " + (marker.name != null ? marker.name : target)));
-        } else {
-            context.sendMessage(Message.raw("Could not find waypoint with that name or id."));
         }
     }
 }
@@ -6,6 +6,7 @@ import com.hypixel.hytale.server.core.command.system.CommandContext;
 import com.hypixel.hytale.server.core.universe.Universe;
 import dev.ninesliced.configs.BetterMapConfig;
 import dev.ninesliced.managers.MapPrivacyManager;
+import dev.ninesliced.managers.WaypointManager;
 import dev.ninesliced.managers.WarpPrivacyManager;
 import dev.ninesliced.managers.PoiPrivacyManager;
 import dev.ninesliced.utils.WorldMapHook;
@@ -57,6 +58,7 @@ public class ReloadCommand extends AbstractCommand {
                 WorldMapHook.updateWorldMapConfigs(world);
                 WorldMapHook.broadcastMapSettings(world);
                 WorldMapHook.refreshTrackers(world);
+                WaypointManager.refreshAllPlayersMarkers(world);
             }));
         }
 
@@ -0,0 +1,91 @@
+package dev.ninesliced.commands;
+
+import com.hypixel.hytale.protocol.packets.worldmap.MapMarker;
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.entity.entities.Player;
+import dev.ninesliced.managers.WaypointManager;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * Resolves the waypoint argument of the waypoint commands.
+ * <p>
+ * An exact id or name wins; otherwise a name prefix that matches a single waypoint is accepted,
+ * and an ambiguous prefix lists the candidates so the player can complete it. Destructive
+ * commands use {@link #resolveExact} instead, which never acts on a prefix.
+ */
+final class WaypointTargetResolver {
+    private static final int MAX_CANDIDATES = 5;
+
+    private WaypointTargetResolver() {
+    }
+
+    /**
+     * Resolves a waypoint, telling the player why if it cannot.
+     *
+     * @param context         The command context.
+     * @param player          The player whose waypoints to search.
+     * @param target          The id, name or name prefix.
+     * @param notFoundMessage The message to send if nothing matches.
+     * @return The waypoint marker, or null if none or several match.
+     */
+    @Nullable
+    static MapMarker resolve(@Nonnull CommandContext context, @Nonnull Player player,
+                             @Nonnull String target, @Nonnull String notFoundMessage) {
+        List<MapMarker> matches = WaypointManager.matchWaypoints(player, target, MAX_CANDIDATES + 1);
+        if (matches.isEmpty()) {
+            context.sendMessage(Message.raw(notFoundMessage));
+            return null;
+        }
+        if (matches.size() == 1) {
+            return matches.get(0);
+        }
+
+        context.sendMessage(Message.raw("Several waypoints match '" + target + "': " + listCandidates(matches)));
+        return null;
+    }
+
+    /**
+     * Resolves a waypoint by exact id or name only. If the target is just a name prefix,
+     * the candidates are listed and nothing is resolved, even when only one waypoint matches.
+     *
+     * @param context         The command context.
+     * @param player          The player whose waypoints to search.
+     * @param target          The exact id or name.
+     * @param notFoundMessage The message to send if nothing matches.
+     * @return The waypoint marker, or null if no waypoint has that id or name.
+     */
+    @Nullable
+    static MapMarker resolveExact(@Nonnull CommandContext context, @Nonnull Player player,
+                                  @Nonnull String target, @Nonnull String notFoundMessage) {
+        MapMarker exact = WaypointManager.findWaypoint(player, target);
+        if (exact != null) {
+            return exact;
+        }
+
+        List<MapMarker> candidates = WaypointManager.findWaypointsByPrefix(player, target, MAX_CANDIDATES + 1);
+        if (candidates.isEmpty()) {
+            context.sendMessage(Message.raw(notFoundMessage));
+        } else {
+            context.sendMessage(Message.raw("No waypoint is named '" + target + "'. Did you mean: "
+                + listCandidates(candidates) + "? Use the full name or id."));
+        }
+        return null;
+    }
+
+    private static String listCandidates(List<MapMarker> matches) {
+        StringBuilder names = new StringBuilder();
+        for (int i = 0; i < Math.min(matches.size(), MAX_CANDIDATES); i++) {
+            if (i > 0) names.append(", ");
+            MapMarker match = matches.get(i);
+            names.append(match.name != null ? match.name : match.id);
+        }
+        if (matches.size() > MAX_CANDIDATES) {
+            names.append(", ...");
+        }
+        return names.toString();
+    }
+}
@@ -6,6 +6,7 @@ import com.hypixel.hytale.server.core.command.system.CommandContext;
 import com.hypixel.hytale.server.core.command.system.arguments.system.RequiredArg;
 import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
 import dev.ninesliced.configs.BetterMapConfig;
+import dev.ninesliced.managers.BetterMapExecutor;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -48,6 +49,12 @@ public class DebugCommand extends AbstractCommand {
 
             context.sendMessage(Message.raw("BetterMap debug mode set to: " + newDebug).color(Color.GREEN));
 
+            if (newDebug) {
+                for (String line : BetterMapExecutor.getInstance().getStats()) {
+                    context.sendMessage(Message.raw(line).color(Color.GRAY));
+                }
+            }
+
         } catch (Exception e) {
             context.sendMessage(Message.raw("Error setting debug mode: " + e.getMessage()).color(Color.RED));
         }
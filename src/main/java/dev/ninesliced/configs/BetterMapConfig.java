@@ -10,6 +10,7 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -20,6 +21,7 @@ import java.util.logging.Logger;
 public class BetterMapConfig {
     private static final Logger LOGGER = Logger.getLogger(BetterMapConfig.class.getName());
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final AtomicLong VERSION = new AtomicLong();
     private static BetterMapConfig INSTANCE;
 
     private int explorationRadius = 16;
@@ -33,6 +35,11 @@ public class BetterMapConfig {
     private int maxChunksToLoad = 10000;
     private boolean radarEnabled = true;
     private int radarRange = -1;
+    private int radarDistanceStep = 10;
+    private double radarMinMoveDistance = 2.0;
+    private float radarMinYawDelta = 0.15f;
+    private int radarFarDistance = 256;
+    private int radarFarRefreshMs = 1000;
     private boolean hidePlayersOnMap = false;
     private boolean hideAllWarpsOnMap = false;
     private boolean hideOtherWarpsOnMap = false;
@@ -44,6 +51,11 @@ public class BetterMapConfig {
     private boolean hideSpawnOnMap = false;
     private boolean hideDeathMarkerOnMap = false;
     private List<String> hiddenPoiNames = new ArrayList<>();
+    private boolean notifyMarkerDiscovery = false;
+    private boolean compositeMarkerProvider = false;
+    private boolean waypointProximityNotifications = false;
+    private int waypointProximityRadius = 32;
+    private List<String> waypointLayers = new ArrayList<>();
     private int autoSaveInterval = 5;
     private List<String> allowedWorlds = new ArrayList<>(Arrays.asList("default", "world"));
 
@@ -184,6 +196,36 @@ public class BetterMapConfig {
                         needsSave = true;
                     }
 
+                    if (jsonObject.has("radarDistanceStep")) {
+                        this.radarDistanceStep = loaded.radarDistanceStep;
+                    } else {
+                        needsSave = true;
+                    }
+
+                    if (jsonObject.has("radarMinMoveDistance")) {
+                        this.radarMinMoveDistance = loaded.radarMinMoveDistance;
+                    } else {
+                        needsSave = true;
+                    }
+
+                    if (jsonObject.has("radarMinYawDelta")) {
+                        this.radarMinYawDelta = loaded.radarMinYawDelta;
+                    } else {
+                        needsSave = true;
+                    }
+
+                    if (jsonObject.has("radarFarDistance")) {
+                        this.radarFarDistance = loaded.radarFarDistance;
+                    } else {
+                        needsSave = true;
+                    }
+
+                    if (jsonObject.has("radarFarRefreshMs")) {
+                        this.radarFarRefreshMs = loaded.radarFarRefreshMs;
+                    } else {
+                        needsSave = true;
+                    }
+
                     if (jsonObject.has("hidePlayersOnMap")) {
                         this.hidePlayersOnMap = loaded.hidePlayersOnMap;
                     } else {
@@ -248,6 +290,33 @@ public class BetterMapConfig {
                     } else {
                         needsSave = true;
                     }
+
+                    if (jsonObject.has("notifyMarkerDiscovery")) {
+                        this.notifyMarkerDiscovery = loaded.notifyMarkerDiscovery;
+                    } else {
+                        needsSave = true;
+                    }
+
+                    if (jsonObject.has("compositeMarkerProvider")) {
+                        this.compositeMarkerProvider = loaded.compositeMarkerProvider;
+                    } else {
+                        needsSave = true;
+                    }
+                    if (jsonObject.has("waypointProximityNotifications")) {
+                        this.waypointProximityNotifications = loaded.waypointProximityNotifications;
+                    } else {
+                        needsSave = true;
+                    }
+                    if (jsonObject.has("waypointProximityRadius")) {
+                        this.waypointProximityRadius = loaded.waypointProximityRadius;
+                    } else {
+                        needsSave = true;
+                    }
+                    if (jsonObject.has("waypointLayers") && loaded.waypointLayers != null) {
+                        this.waypointLayers = loaded.waypointLayers;
+                    } else {
+                        needsSave = true;
+                    }
                     if (jsonObject.has("autoSaveInterval")) {
                         this.autoSaveInterval = loaded.autoSaveInterval;
                     } else {
@@ -273,6 +342,7 @@ public class BetterMapConfig {
             this.mapQuality = MapQuality.MEDIUM;
             updateLoggers();
         }
+        VERSION.incrementAndGet();
     }
 
     /**
@@ -317,6 +387,7 @@ public class BetterMapConfig {
      * Saves the current configuration to disk.
      */
     public void save() {
+        VERSION.incrementAndGet();
         try (Writer writer = Files.newBufferedWriter(configPath)) {
             GSON.toJson(this, writer);
             LOGGER.info("Configuration saved to " + configPath);
@@ -325,6 +396,16 @@ public class BetterMapConfig {
         }
     }
 
+    /**
+     * Gets the configuration version. It changes whenever the configuration is loaded or saved,
+     * so derived per-player state can tell when it is stale.
+     *
+     * @return The configuration version.
+     */
+    public long getVersion() {
+        return VERSION.get();
+    }
+
     /**
      * Reloads the configuration from disk if it exists.
      */
@@ -550,6 +631,51 @@ public class BetterMapConfig {
         return radarRange;
     }
 
+    /**
+     * Gets the step radar distance labels are rounded down to.
+     *
+     * @return The step in blocks, 1 or less for exact distances.
+     */
+    public int getRadarDistanceStep() {
+        return radarDistanceStep;
+    }
+
+    /**
+     * Gets how far a player must move before their radar marker is updated.
+     *
+     * @return The minimum movement in blocks.
+     */
+    public double getRadarMinMoveDistance() {
+        return radarMinMoveDistance;
+    }
+
+    /**
+     * Gets how far a player must turn before their radar marker is updated.
+     *
+     * @return The minimum yaw change in radians.
+     */
+    public float getRadarMinYawDelta() {
+        return radarMinYawDelta;
+    }
+
+    /**
+     * Gets the distance beyond which radar markers are refreshed less often.
+     *
+     * @return The distance in blocks, or -1 to refresh all players at the same rate.
+     */
+    public int getRadarFarDistance() {
+        return radarFarDistance;
+    }
+
+    /**
+     * Gets the refresh interval of radar markers for distant players.
+     *
+     * @return The interval in milliseconds.
+     */
+    public int getRadarFarRefreshMs() {
+        return radarFarRefreshMs;
+    }
+
     /**
      * Checks if players should be hidden on the map.
      *
@@ -649,6 +775,52 @@ public class BetterMapConfig {
         return hiddenPoiNames;
     }
 
+    /**
+     * Checks if players are notified when they discover a POI or warp by exploring.
+     *
+     * @return True if discovery notifications are enabled.
+     */
+    public boolean isNotifyMarkerDiscovery() {
+        return notifyMarkerDiscovery;
+    }
+
+    /**
+     * Checks if all BetterMap marker sources run as stages of one composite provider per world.
+     *
+     * @return True if the composite marker provider is enabled.
+     */
+    public boolean isCompositeMarkerProvider() {
+        return compositeMarkerProvider;
+    }
+
+    /**
+     * Checks if players are told when they come within or leave the proximity radius of a waypoint.
+     *
+     * @return True if waypoint proximity notifications are enabled.
+     */
+    public boolean isWaypointProximityNotifications() {
+        return waypointProximityNotifications;
+    }
+
+    /**
+     * Gets the horizontal distance in blocks within which a player counts as near a waypoint.
+     *
+     * @return The proximity radius.
+     */
+    public int getWaypointProximityRadius() {
+        return waypointProximityRadius;
+    }
+
+    /**
+     * Gets the names of the waypoint layers. Each layer is shared by the players holding its
+     * permission, {@code dev.ninesliced.bettermap.waypoint.layer.<name>}.
+     *
+     * @return The layer names.
+     */
+    public List<String> getWaypointLayers() {
+        return waypointLayers;
+    }
+
     /**
      * Sets whether players should be hidden on the map.
      *
@@ -759,6 +931,36 @@ public class BetterMapConfig {
         save();
     }
 
+    /**
+     * Sets whether players are notified when they discover a POI or warp by exploring.
+     *
+     * @param notifyMarkerDiscovery True to enable discovery notifications.
+     */
+    public void setNotifyMarkerDiscovery(boolean notifyMarkerDiscovery) {
+        this.notifyMarkerDiscovery = notifyMarkerDiscovery;
+        save();
+    }
+
+    /**
+     * Sets whether all BetterMap marker sources run as stages of one composite provider per world.
+     *
+     * @param compositeMarkerProvider True to enable the composite marker provider.
+     */
+    public void setCompositeMarkerProvider(boolean compositeMarkerProvider) {
+        this.compositeMarkerProvider = compositeMarkerProvider;
+        save();
+    }
+
+    /**
+     * Sets whether players are told when they come within or leave the proximity radius of a waypoint.
+     *
+     * @param waypointProximityNotifications True to enable waypoint proximity notifications.
+     */
+    public void setWaypointProximityNotifications(boolean waypointProximityNotifications) {
+        this.waypointProximityNotifications = waypointProximityNotifications;
+        save();
+    }
+
     /**
      * Sets whether radar is enabled.
      *
@@ -778,6 +980,56 @@ public class BetterMapConfig {
         this.radarRange = radarRange;
         save();
     }
+
+    /**
+     * Sets the step radar distance labels are rounded down to.
+     *
+     * @param radarDistanceStep The step in blocks, 1 or less for exact distances.
+     */
+    public void setRadarDistanceStep(int radarDistanceStep) {
+        this.radarDistanceStep = radarDistanceStep;
+        save();
+    }
+
+    /**
+     * Sets how far a player must move before their radar marker is updated.
+     *
+     * @param radarMinMoveDistance The minimum movement in blocks.
+     */
+    public void setRadarMinMoveDistance(double radarMinMoveDistance) {
+        this.radarMinMoveDistance = radarMinMoveDistance;
+        save();
+    }
+
+    /**
+     * Sets how far a player must turn before their radar marker is updated.
+     *
+     * @param radarMinYawDelta The minimum yaw change in radians.
+     */
+    public void setRadarMinYawDelta(float radarMinYawDelta) {
+        this.radarMinYawDelta = radarMinYawDelta;
+        save();
+    }
+
+    /**
+     * Sets the distance beyond which radar markers are refreshed less often.
+     *
+     * @param radarFarDistance The distance in blocks, or -1 to disable.
+     */
+    public void setRadarFarDistance(int radarFarDistance) {
+        this.radarFarDistance = radarFarDistance;
+        save();
+    }
+
+    /**
+     * Sets the refresh interval of radar markers for distant players.
+     *
+     * @param radarFarRefreshMs The interval in milliseconds.
+     */
+    public void setRadarFarRefreshMs(int radarFarRefreshMs) {
+        this.radarFarRefreshMs = radarFarRefreshMs;
+        save();
+    }
     
     /**
      * Gets the list of allowed worlds.
@@ -9,6 +9,7 @@ import com.hypixel.hytale.server.core.universe.PlayerRef;
 import com.hypixel.hytale.server.core.universe.Universe;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 import dev.ninesliced.exploration.ExplorationTracker;
+import dev.ninesliced.managers.BetterMapExecutor;
 import dev.ninesliced.utils.ChunkUtil;
 
 import javax.annotation.Nonnull;
@@ -81,6 +82,7 @@ public class ExplorationPersistence {
 
             ExplorationTracker.PlayerExplorationData data = ExplorationTracker.getInstance().getOrCreatePlayerData(player);
             data.getExploredChunks().markChunksExplored(loadedChunks);
+            data.getRevealedMarkers().invalidate();
 
             for (long chunkIdx : loadedChunks) {
                 int x = ChunkUtil.indexToChunkX(chunkIdx);
@@ -133,7 +135,7 @@ public class ExplorationPersistence {
                             ExplorationTracker.PlayerExplorationData data = ExplorationTracker.getInstance().getPlayerData(playerName);
                             if (data != null && uuid != null) {
                                 Set<Long> chunks = data.getExploredChunks().getExploredChunks();
-                                java.util.concurrent.ForkJoinPool.commonPool().execute(() -> 
+                                BetterMapExecutor.getInstance().executeIo("exploration-save", () ->
                                     save(playerName, uuid, worldName, chunks)
                                 );
                                 LOGGER.info("Saved exploration data for player: " + playerName);
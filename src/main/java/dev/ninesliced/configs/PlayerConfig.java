@@ -18,6 +18,7 @@ public class PlayerConfig {
     private boolean hideSpawnOnMap = false;
     private boolean hideDeathMarkerOnMap = false;
     private List<String> hiddenPoiNames = new ArrayList<>();
+    private List<String> hiddenWaypointLayers = new ArrayList<>();
     private boolean hidePlayersOnMap = false;
     private boolean hideAllWarpsOnMap = false;
     private boolean hideOtherWarpsOnMap = false;
@@ -103,6 +104,17 @@ public class PlayerConfig {
         this.hiddenPoiNames = hiddenPoiNames != null ? hiddenPoiNames : new ArrayList<>();
     }
 
+    public List<String> getHiddenWaypointLayers() {
+        if (hiddenWaypointLayers == null) {
+            hiddenWaypointLayers = new ArrayList<>();
+        }
+        return hiddenWaypointLayers;
+    }
+
+    public void setHiddenWaypointLayers(List<String> hiddenWaypointLayers) {
+        this.hiddenWaypointLayers = hiddenWaypointLayers != null ? hiddenWaypointLayers : new ArrayList<>();
+    }
+
     public boolean isHidePlayersOnMap() {
         return hidePlayersOnMap;
     }
@@ -0,0 +1,227 @@
+package dev.ninesliced.configs;
+
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.server.core.command.system.CommandSender;
+import com.hypixel.hytale.server.core.entity.entities.Player;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import dev.ninesliced.integration.ExtendedTeleportIntegration;
+import dev.ninesliced.utils.HiddenNameMatcher;
+import dev.ninesliced.utils.PermissionsUtil;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.UUID;
+
+/**
+ * Immutable snapshot of what a single viewer is allowed to see on the world map.
+ * <p>
+ * Combines the global config, the viewer's player config and their override permissions
+ * into the final hide flags used by the marker providers. Instances are cached by
+ * {@link dev.ninesliced.managers.ViewerPolicyManager} and rebuilt when any input changes.
+ */
+public final class ViewerPolicy {
+    private final UUID viewerUuid;
+    private final String viewerName;
+    private final long configVersion;
+    private final long createdAtMs;
+
+    private final boolean shareAllExploration;
+
+    private final boolean hideAllPoi;
+    private final boolean hideUnexploredPoi;
+    private final HiddenNameMatcher hiddenPoiNames;
+
+    private final boolean hideAllWarps;
+    private final boolean hideOtherWarps;
+    private final boolean hideUnexploredWarps;
+
+    private final boolean hideSpawn;
+    private final boolean hideDeath;
+
+    private final boolean bypassGlobalPlayersHide;
+    private final boolean hidePlayers;
+    private final boolean hideRadar;
+    private final int radarRange;
+
+    private ViewerPolicy(@Nonnull Player viewer, @Nonnull BetterMapConfig global, @Nullable PlayerConfig playerConfig) {
+        this.viewerUuid = ((CommandSender) viewer).getUuid();
+        this.viewerName = resolveViewerName(viewer);
+        this.configVersion = global.getVersion();
+        this.createdAtMs = System.currentTimeMillis();
+        this.shareAllExploration = global.isShareAllExploration();
+
+        boolean overridePoi = playerConfig != null
+            && playerConfig.isOverrideGlobalPoiHide()
+            && PermissionsUtil.canOverridePoi(viewer);
+        boolean overrideUnexploredPoi = playerConfig != null
+            && playerConfig.isOverrideGlobalPoiHide()
+            && PermissionsUtil.canOverrideUnexploredPoi(viewer);
+        this.hideAllPoi = (global.isHideAllPoiOnMap() && !overridePoi)
+            || (playerConfig != null && playerConfig.isHideAllPoiOnMap());
+        this.hideUnexploredPoi = global.isHideUnexploredPoiOnMap() && !overrideUnexploredPoi;
+
+        HiddenNameMatcher globalHidden = HiddenNameMatcher.global();
+        HiddenNameMatcher playerHidden = playerConfig != null
+            ? HiddenNameMatcher.of(playerConfig.getHiddenPoiNames())
+            : HiddenNameMatcher.EMPTY;
+        this.hiddenPoiNames = overridePoi ? playerHidden : globalHidden.merge(playerHidden);
+
+        boolean canOverrideWarps = playerConfig != null && PermissionsUtil.canOverrideWarps(viewer);
+        boolean overrideAllWarps = canOverrideWarps && playerConfig.isOverrideGlobalAllWarpsHide();
+        boolean overrideOtherWarps = canOverrideWarps && playerConfig.isOverrideGlobalOtherWarpsHide();
+        boolean overrideUnexploredWarps = playerConfig != null
+            && playerConfig.isOverrideGlobalAllWarpsHide()
+            && PermissionsUtil.canOverrideUnexploredWarps(viewer);
+        boolean extendedTeleportAvailable = ExtendedTeleportIntegration.getInstance().isAvailable();
+        this.hideAllWarps = (global.isHideAllWarpsOnMap() && !overrideAllWarps)
+            || (playerConfig != null && playerConfig.isHideAllWarpsOnMap());
+        this.hideOtherWarps = extendedTeleportAvailable
+            && ((global.isHideOtherWarpsOnMap() && !overrideOtherWarps)
+                || (playerConfig != null && playerConfig.isHideOtherWarpsOnMap()));
+        this.hideUnexploredWarps = global.isHideUnexploredWarpsOnMap() && !overrideUnexploredWarps;
+
+        boolean overrideSpawn = playerConfig != null
+            && playerConfig.isOverrideGlobalSpawnHide()
+            && PermissionsUtil.canOverrideSpawn(viewer);
+        this.hideSpawn = (!overrideSpawn && (global.isHideSpawnOnMap() || globalHidden.contains("spawn")))
+            || (playerConfig != null && playerConfig.isHideSpawnOnMap())
+            || playerHidden.contains("spawn");
+
+        boolean overrideDeath = playerConfig != null
+            && playerConfig.isOverrideGlobalDeathHide()
+            && PermissionsUtil.canOverrideDeath(viewer);
+        this.hideDeath = (!overrideDeath && (global.isHideDeathMarkerOnMap() || globalHidden.contains("death")))
+            || (playerConfig != null && playerConfig.isHideDeathMarkerOnMap())
+            || playerHidden.contains("death");
+
+        boolean canOverridePlayers = PermissionsUtil.canOverridePlayers(viewer);
+        boolean playerHide = playerConfig != null && playerConfig.isHidePlayersOnMap();
+        this.bypassGlobalPlayersHide = canOverridePlayers
+            && playerConfig != null
+            && playerConfig.isOverrideGlobalPlayersHide();
+        this.hidePlayers = (global.isHidePlayersOnMap() && !bypassGlobalPlayersHide) || playerHide;
+        this.hideRadar = !global.isRadarEnabled()
+            || (global.isHidePlayersOnMap() && !canOverridePlayers)
+            || playerHide;
+        this.radarRange = global.getRadarRange();
+    }
+
+    /**
+     * Computes a fresh policy for the given viewer.
+     *
+     * @param viewer       The viewing player.
+     * @param playerConfig The viewer's player config, if any.
+     * @return The policy.
+     */
+    @Nonnull
+    public static ViewerPolicy compute(@Nonnull Player viewer, @Nullable PlayerConfig playerConfig) {
+        return new ViewerPolicy(viewer, BetterMapConfig.getInstance(), playerConfig);
+    }
+
+    public UUID getViewerUuid() {
+        return viewerUuid;
+    }
+
+    @Nullable
+    public String getViewerName() {
+        return viewerName;
+    }
+
+    public long getConfigVersion() {
+        return configVersion;
+    }
+
+    public long getCreatedAtMs() {
+        return createdAtMs;
+    }
+
+    public boolean isShareAllExploration() {
+        return shareAllExploration;
+    }
+
+    public boolean isHideAllPoi() {
+        return hideAllPoi;
+    }
+
+    public boolean isHideUnexploredPoi() {
+        return hideUnexploredPoi;
+    }
+
+    /**
+     * Gets the matcher for POI names hidden from this viewer.
+     *
+     * @return The hidden name matcher.
+     */
+    @Nonnull
+    public HiddenNameMatcher getHiddenPoiNames() {
+        return hiddenPoiNames;
+    }
+
+    public boolean isHideAllWarps() {
+        return hideAllWarps;
+    }
+
+    public boolean isHideOtherWarps() {
+        return hideOtherWarps;
+    }
+
+    public boolean isHideUnexploredWarps() {
+        return hideUnexploredWarps;
+    }
+
+    public boolean isHideSpawn() {
+        return hideSpawn;
+    }
+
+    public boolean isHideDeath() {
+        return hideDeath;
+    }
+
+    /**
+     * Checks if this viewer bypasses the global player hide setting.
+     *
+     * @return True if the viewer has the override permission and enabled the override.
+     */
+    public boolean isBypassGlobalPlayersHide() {
+        return bypassGlobalPlayersHide;
+    }
+
+    /**
+     * Checks if the native player markers are hidden for this viewer.
+     *
+     * @return True if player markers should be hidden.
+     */
+    public boolean isHidePlayers() {
+        return hidePlayers;
+    }
+
+    /**
+     * Checks if the BetterMap radar markers are hidden for this viewer.
+     *
+     * @return True if radar markers should not be sent.
+     */
+    public boolean isHideRadar() {
+        return hideRadar;
+    }
+
+    public int getRadarRange() {
+        return radarRange;
+    }
+
+    @Nullable
+    private static String resolveViewerName(@Nonnull Player viewer) {
+        try {
+            Ref<EntityStore> ref = viewer.getReference();
+            if (ref != null) {
+                PlayerRef playerRef = ref.getStore().getComponent(ref, PlayerRef.getComponentType());
+                if (playerRef != null && playerRef.getUsername() != null && !playerRef.getUsername().isEmpty()) {
+                    return playerRef.getUsername();
+                }
+            }
+        } catch (Exception ignored) {
+        }
+
+        return viewer.getDisplayName();
+    }
+}
@@ -8,22 +8,40 @@ import com.hypixel.hytale.server.core.universe.Universe;
 import com.hypixel.hytale.server.core.universe.world.World;
 import com.hypixel.hytale.server.core.universe.world.WorldMapTracker;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import dev.ninesliced.managers.BetterMapExecutor;
+import dev.ninesliced.managers.MarkerProviderRegistry;
 import dev.ninesliced.managers.PlayerRadarManager;
 import dev.ninesliced.utils.WorldMapHook;
 
 import javax.annotation.Nonnull;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
 
 /**
  * Ticker service that updates exploration status for players periodically.
+ * <p>
+ * Each world has at most one exploration pass in flight. If a world thread falls behind,
+ * new passes are skipped rather than queued, and the world's interval is stretched
+ * until the measured submission-to-execution lag recovers.
+ * <p>
+ * The per-world state belongs to one {@link World} instance: a world reloaded under the same
+ * name starts with fresh state, and the state of a stopped world is dropped. A pass that was
+ * accepted but has not run after {@link #IN_FLIGHT_TIMEOUT_MS}, e.g. because the world was
+ * stopping, no longer blocks new passes.
  */
 public class ExplorationTicker {
     private static final Logger LOGGER = Logger.getLogger(ExplorationTicker.class.getName());
+    private static final long BASE_INTERVAL_MS = 100L;
+    private static final long MAX_INTERVAL_MS = 1600L;
+    private static final double LAG_SMOOTHING = 0.2;
+    private static final long IN_FLIGHT_TIMEOUT_MS = 10_000L;
     private static ExplorationTicker INSTANCE;
-    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final Map<String, WorldTickState> worldStates = new ConcurrentHashMap<>();
+    private ScheduledFuture<?> tickTask;
     private boolean isRunning = false;
 
     private ExplorationTicker() {
@@ -50,12 +68,12 @@ public class ExplorationTicker {
             return;
         }
         isRunning = true;
-        scheduler.scheduleAtFixedRate(this::tick, 1000, 100, TimeUnit.MILLISECONDS);
+        tickTask = BetterMapExecutor.getInstance().scheduleAtFixedRate("exploration-tick", this::tick, 1000, BASE_INTERVAL_MS, TimeUnit.MILLISECONDS);
         LOGGER.info("Exploration Ticker started.");
     }
 
     /**
-     * Schedules a one-off task to run on the ticker thread.
+     * Schedules a one-off task to run on the BetterMap timer pool.
      *
      * @param task The task to run.
      */
@@ -63,15 +81,18 @@ public class ExplorationTicker {
         if (!isRunning) {
             return;
         }
-        scheduler.schedule(task, 50, TimeUnit.MILLISECONDS);
+        BetterMapExecutor.getInstance().schedule("exploration-update", task, 50, TimeUnit.MILLISECONDS);
     }
 
     /**
-     * Stops the ticker and shuts down the scheduler.
+     * Stops the ticker.
      */
     public void stop() {
         isRunning = false;
-        scheduler.shutdown();
+        if (tickTask != null) {
+            tickTask.cancel(false);
+            tickTask = null;
+        }
     }
 
     private void tick() {
@@ -80,21 +101,76 @@ public class ExplorationTicker {
         Universe universe = Universe.get();
         if (universe == null) return;
 
+        long now = System.nanoTime();
+        worldStates.values().removeIf(state -> !state.world.isAlive());
         universe.getWorlds().values().forEach(world -> {
             if (world == null || !world.isAlive()) return;
 
+            WorldTickState state = worldStates.compute(world.getName(),
+                (ignored, existing) -> existing != null && existing.world == world ? existing : new WorldTickState(world));
+            if (now < state.nextDueNanos) return;
+            if (!state.inFlight.compareAndSet(false, true)) {
+                if (now - state.submittedAt < TimeUnit.MILLISECONDS.toNanos(IN_FLIGHT_TIMEOUT_MS)) {
+                    state.skipped++;
+                    return;
+                }
+                LOGGER.fine("Exploration pass for world " + world.getName() + " did not run in "
+                        + IN_FLIGHT_TIMEOUT_MS + "ms; submitting a new one");
+            }
+
+            state.submittedAt = now;
             try {
-                world.execute(() -> {
-                    if (!world.isAlive()) return;
-                    updateWorldPlayers(world);
-                    PlayerRadarManager.getInstance().updateRadarData(world);
-                });
+                world.execute(() -> runWorldPass(world, state));
             } catch (IllegalThreadStateException ignored) {
+                state.inFlight.set(false);
             } catch (Exception ignored) {
+                state.inFlight.set(false);
             }
         });
     }
 
+    /**
+     * Gets the current exploration interval for a world, including any backpressure stretch.
+     *
+     * @param worldName The world name.
+     * @return The interval in milliseconds.
+     */
+    public long getWorldInterval(@Nonnull String worldName) {
+        WorldTickState state = worldStates.get(worldName);
+        return state != null ? state.intervalMs : BASE_INTERVAL_MS;
+    }
+
+    private void runWorldPass(World world, WorldTickState state) {
+        long startedAt = System.nanoTime();
+        try {
+            adaptInterval(world, state, (startedAt - state.submittedAt) / 1_000_000.0);
+            if (!world.isAlive()) return;
+            MarkerProviderRegistry.getInstance().verify(world);
+            updateWorldPlayers(world);
+            PlayerRadarManager.getInstance().updateRadarData(world);
+        } finally {
+            state.nextDueNanos = startedAt + TimeUnit.MILLISECONDS.toNanos(state.intervalMs - BASE_INTERVAL_MS / 2);
+            state.inFlight.set(false);
+        }
+    }
+
+    private void adaptInterval(World world, WorldTickState state, double lagMs) {
+        state.lagMs = state.lagMs * (1.0 - LAG_SMOOTHING) + lagMs * LAG_SMOOTHING;
+
+        long previous = state.intervalMs;
+        if (state.lagMs > BASE_INTERVAL_MS) {
+            state.intervalMs = Math.min(MAX_INTERVAL_MS, state.intervalMs * 2);
+        } else if (state.lagMs < BASE_INTERVAL_MS / 4.0 && state.intervalMs > BASE_INTERVAL_MS) {
+            state.intervalMs = Math.max(BASE_INTERVAL_MS, state.intervalMs * 3 / 4);
+        }
+
+        if (previous != state.intervalMs) {
+            LOGGER.fine(String.format("World %s exploration interval %dms -> %dms (lag %.1fms, %d skipped)",
+                    world.getName(), previous, state.intervalMs, state.lagMs, state.skipped));
+            state.skipped = 0;
+        }
+    }
+
     private void updateWorldPlayers(World world) {
         if (world == null || !world.isAlive()) return;
 
@@ -132,4 +208,18 @@ public class ExplorationTicker {
         } catch (Exception ignored) {
         }
     }
+
+    private static final class WorldTickState {
+        private final World world;
+        private final AtomicBoolean inFlight = new AtomicBoolean(false);
+        private volatile long submittedAt;
+        private volatile long nextDueNanos = Long.MIN_VALUE;
+        private volatile long intervalMs = BASE_INTERVAL_MS;
+        private volatile double lagMs = 0.0;
+        private volatile int skipped = 0;
+
+        private WorldTickState(World world) {
+            this.world = world;
+        }
+    }
 }
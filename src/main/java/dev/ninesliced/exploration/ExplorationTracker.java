@@ -119,11 +119,20 @@ public class ExplorationTracker {
      * Holds the runtime exploration state for a single player.
      */
     public static class PlayerExplorationData {
+        /**
+         * How far ahead, in milliseconds, the predicted position is projected.
+         */
+        public static final long PREDICTION_LOOKAHEAD_MS = 3000L;
+
         private final ExploredChunksTracker exploredChunks;
         private final MapExpansionManager mapExpansion;
+        private final PlayerTrajectory trajectory = new PlayerTrajectory();
+        private final RevealedMarkers revealedMarkers = new RevealedMarkers();
         private long lastUpdateTime;
         private int lastChunkX = Integer.MAX_VALUE;
         private int lastChunkZ = Integer.MAX_VALUE;
+        private volatile int predictedMapChunkX = Integer.MAX_VALUE;
+        private volatile int predictedMapChunkZ = Integer.MAX_VALUE;
         private volatile String worldName;
 
         /**
@@ -146,6 +155,16 @@ public class ExplorationTracker {
             return exploredChunks;
         }
 
+        /**
+         * Gets the POIs and warps this player has revealed by exploring.
+         * Use {@link dev.ninesliced.managers.RevealedMarkerManager#getRevealed} to get an up to date view.
+         *
+         * @return The revealed markers.
+         */
+        public RevealedMarkers getRevealedMarkers() {
+            return revealedMarkers;
+        }
+
         /**
          * Gets the manager for map expansion.
          *
@@ -208,6 +227,55 @@ public class ExplorationTracker {
         public void resetLastChunkPosition() {
             this.lastChunkX = Integer.MAX_VALUE;
             this.lastChunkZ = Integer.MAX_VALUE;
+            this.trajectory.reset();
+            this.predictedMapChunkX = Integer.MAX_VALUE;
+            this.predictedMapChunkZ = Integer.MAX_VALUE;
+            this.revealedMarkers.invalidate();
+        }
+
+        /**
+         * Records a sampled block position and updates the predicted map chunk.
+         *
+         * @param x Block X.
+         * @param z Block Z.
+         */
+        public void recordPosition(double x, double z) {
+            trajectory.record(x, z, System.currentTimeMillis());
+            if (trajectory.isMoving()) {
+                this.predictedMapChunkX = (int) Math.floor(trajectory.predictX(x, PREDICTION_LOOKAHEAD_MS)) >> 5;
+                this.predictedMapChunkZ = (int) Math.floor(trajectory.predictZ(z, PREDICTION_LOOKAHEAD_MS)) >> 5;
+            } else {
+                this.predictedMapChunkX = Integer.MAX_VALUE;
+                this.predictedMapChunkZ = Integer.MAX_VALUE;
+            }
+        }
+
+        /**
+         * Gets the recent movement trajectory of this player.
+         *
+         * @return The trajectory.
+         */
+        @Nonnull
+        public PlayerTrajectory getTrajectory() {
+            return trajectory;
+        }
+
+        /**
+         * Gets the map chunk X the player is predicted to reach, or {@link Integer#MAX_VALUE} if stationary.
+         *
+         * @return The predicted map chunk X.
+         */
+        public int getPredictedMapChunkX() {
+            return predictedMapChunkX;
+        }
+
+        /**
+         * Gets the map chunk Z the player is predicted to reach, or {@link Integer#MAX_VALUE} if stationary.
+         *
+         * @return The predicted map chunk Z.
+         */
+        public int getPredictedMapChunkZ() {
+            return predictedMapChunkZ;
         }
 
         /**
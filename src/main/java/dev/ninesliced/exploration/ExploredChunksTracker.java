@@ -1,6 +1,8 @@
 package dev.ninesliced.exploration;
 
 import dev.ninesliced.components.ExplorationComponent;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongSet;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -73,6 +75,28 @@ public class ExploredChunksTracker {
         }
     }
 
+    /**
+     * Marks multiple chunks as explored in a single bulk operation without boxing.
+     *
+     * @param chunkIndices The chunk indices.
+     */
+    public void markChunksExplored(@Nonnull LongSet chunkIndices) {
+        if (persistentComponent != null) {
+            persistentComponent.getExploredChunks().addAll(chunkIndices);
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            LongIterator it = chunkIndices.iterator();
+            while (it.hasNext()) {
+                memoryExploredChunks.add(it.nextLong());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
     /**
      * Checks if a chunk has been explored.
      *
@@ -0,0 +1,133 @@
+package dev.ninesliced.exploration;
+
+/**
+ * Short rolling history of a player's sampled positions, used to estimate
+ * travel velocity and predict where the player will be in the near future.
+ * <p>
+ * Samples are stored in a fixed ring buffer so recording a position never allocates.
+ */
+public class PlayerTrajectory {
+    private static final int CAPACITY = 8;
+    private static final long MAX_SAMPLE_AGE_MS = 2000L;
+    private static final double MAX_SPEED_BLOCKS_PER_SECOND = 200.0;
+
+    private final double[] xs = new double[CAPACITY];
+    private final double[] zs = new double[CAPACITY];
+    private final long[] times = new long[CAPACITY];
+    private int head = 0;
+    private int size = 0;
+
+    private volatile double velocityX = 0.0;
+    private volatile double velocityZ = 0.0;
+
+    /**
+     * Records a sampled block position and refreshes the velocity estimate.
+     *
+     * @param x      Block X.
+     * @param z      Block Z.
+     * @param timeMs Sample time in milliseconds.
+     */
+    public synchronized void record(double x, double z, long timeMs) {
+        xs[head] = x;
+        zs[head] = z;
+        times[head] = timeMs;
+        head = (head + 1) % CAPACITY;
+        if (size < CAPACITY) {
+            size++;
+        }
+        recomputeVelocity(timeMs);
+    }
+
+    /**
+     * Forgets all samples, e.g. after a teleport or world change.
+     */
+    public synchronized void reset() {
+        size = 0;
+        head = 0;
+        velocityX = 0.0;
+        velocityZ = 0.0;
+    }
+
+    /**
+     * Gets the estimated X velocity in blocks per second.
+     *
+     * @return The X velocity.
+     */
+    public double getVelocityX() {
+        return velocityX;
+    }
+
+    /**
+     * Gets the estimated Z velocity in blocks per second.
+     *
+     * @return The Z velocity.
+     */
+    public double getVelocityZ() {
+        return velocityZ;
+    }
+
+    /**
+     * Predicts the block X coordinate after the given look-ahead.
+     *
+     * @param x           The current block X.
+     * @param lookAheadMs The look-ahead in milliseconds.
+     * @return The predicted block X.
+     */
+    public double predictX(double x, long lookAheadMs) {
+        return x + velocityX * (lookAheadMs / 1000.0);
+    }
+
+    /**
+     * Predicts the block Z coordinate after the given look-ahead.
+     *
+     * @param z           The current block Z.
+     * @param lookAheadMs The look-ahead in milliseconds.
+     * @return The predicted block Z.
+     */
+    public double predictZ(double z, long lookAheadMs) {
+        return z + velocityZ * (lookAheadMs / 1000.0);
+    }
+
+    /**
+     * Checks whether the player is currently considered to be moving.
+     *
+     * @return True if the velocity estimate is non-zero.
+     */
+    public boolean isMoving() {
+        return velocityX != 0.0 || velocityZ != 0.0;
+    }
+
+    private void recomputeVelocity(long now) {
+        int newest = (head - 1 + CAPACITY) % CAPACITY;
+        int oldest = newest;
+
+        for (int i = 1; i < size; i++) {
+            int idx = (newest - i + CAPACITY) % CAPACITY;
+            if (now - times[idx] > MAX_SAMPLE_AGE_MS) {
+                break;
+            }
+            oldest = idx;
+        }
+
+        long dt = times[newest] - times[oldest];
+        if (oldest == newest || dt <= 0) {
+            velocityX = 0.0;
+            velocityZ = 0.0;
+            return;
+        }
+
+        double vx = (xs[newest] - xs[oldest]) * 1000.0 / dt;
+        double vz = (zs[newest] - zs[oldest]) * 1000.0 / dt;
+
+        // Anything faster than this is a teleport, not travel
+        if (vx * vx + vz * vz > MAX_SPEED_BLOCKS_PER_SECOND * MAX_SPEED_BLOCKS_PER_SECOND) {
+            size = 1;
+            velocityX = 0.0;
+            velocityZ = 0.0;
+            return;
+        }
+
+        velocityX = vx;
+        velocityZ = vz;
+    }
+}
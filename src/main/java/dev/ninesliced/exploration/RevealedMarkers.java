@@ -0,0 +1,104 @@
+package dev.ninesliced.exploration;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The POI and warp ids a player (or, in shared exploration mode, a whole world) has revealed
+ * by exploring the chunks they are in.
+ * <p>
+ * The sets only grow while exploring. They are rebuilt from the explored chunks when the
+ * world changes, when the marker index changes, or after {@link #invalidate()}.
+ */
+public class RevealedMarkers {
+    private final Set<String> poiIds = ConcurrentHashMap.newKeySet();
+    private final Set<String> warpIds = ConcurrentHashMap.newKeySet();
+    private final Set<String> poiView = Collections.unmodifiableSet(poiIds);
+    private final Set<String> warpView = Collections.unmodifiableSet(warpIds);
+    private volatile String worldName;
+    private volatile long indexVersion = -1L;
+
+    /**
+     * Checks if the sets were built for the given world and marker index.
+     *
+     * @param worldName    The world name.
+     * @param indexVersion The marker index version.
+     * @return True if the sets are up to date.
+     */
+    public boolean isCurrent(@Nonnull String worldName, long indexVersion) {
+        return this.indexVersion == indexVersion && worldName.equals(this.worldName);
+    }
+
+    /**
+     * Clears the sets and binds them to a world and marker index version.
+     *
+     * @param worldName    The world name.
+     * @param indexVersion The marker index version.
+     */
+    public void reset(@Nullable String worldName, long indexVersion) {
+        poiIds.clear();
+        warpIds.clear();
+        this.worldName = worldName;
+        this.indexVersion = indexVersion;
+    }
+
+    /**
+     * Marks the sets as up to date with the given marker index version, once seeding is done.
+     *
+     * @param indexVersion The marker index version.
+     */
+    public void markCurrent(long indexVersion) {
+        this.indexVersion = indexVersion;
+    }
+
+    /**
+     * Marks the sets as stale so they are rebuilt on next use,
+     * e.g. after explored chunks were loaded in bulk.
+     */
+    public void invalidate() {
+        this.indexVersion = -1L;
+    }
+
+    /**
+     * Reveals a POI.
+     *
+     * @param id The POI id.
+     * @return True if the POI was not revealed before.
+     */
+    public boolean revealPoi(@Nonnull String id) {
+        return poiIds.add(id);
+    }
+
+    /**
+     * Reveals a warp.
+     *
+     * @param id The warp id.
+     * @return True if the warp was not revealed before.
+     */
+    public boolean revealWarp(@Nonnull String id) {
+        return warpIds.add(id);
+    }
+
+    /**
+     * Gets the revealed POI ids.
+     *
+     * @return A read-only live view of the revealed POI ids.
+     */
+    @Nonnull
+    public Set<String> getPoiIds() {
+        return poiView;
+    }
+
+    /**
+     * Gets the revealed warp ids.
+     *
+     * @return A read-only live view of the revealed warp ids.
+     */
+    @Nonnull
+    public Set<String> getWarpIds() {
+        return warpView;
+    }
+}
@@ -21,6 +21,7 @@ import dev.ninesliced.managers.ExplorationManager;
 import dev.ninesliced.managers.PlayerConfigManager;
 import dev.ninesliced.managers.PlayerRadarManager;
 import dev.ninesliced.managers.WaypointManager;
+import dev.ninesliced.managers.WaypointProximityManager;
 import dev.ninesliced.utils.ReflectionHelper;
 import dev.ninesliced.utils.WorldMapHook;
 
@@ -213,6 +214,8 @@ public class ExplorationEventListener {
 
                 PlayerRadarManager.getInstance().registerForWorld(newWorld);
 
+                WaypointManager.onPlayerJoinWorld(player, newWorld);
+
                 final WorldMapTracker finalTracker = tracker;
                 final String finalNewWorldName = newWorldName;
                 ExplorationTicker.getInstance().scheduleUpdate(() -> {
@@ -262,6 +265,9 @@ public class ExplorationEventListener {
             UUID playerUUID = playerRef.getUuid();
 
             PlayerConfigManager.getInstance().unloadPlayerConfig(playerUUID);
+            PlayerRadarManager.getInstance().getRadarProvider().forgetViewer(playerUUID);
+            WaypointManager.onPlayerQuit(playerUUID);
+            WaypointProximityManager.getInstance().forgetPlayer(playerUUID);
 
             LOGGER.info("[DEBUG] Player " + playerName + " disconnecting from server");
 
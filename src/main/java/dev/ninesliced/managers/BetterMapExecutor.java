@@ -0,0 +1,275 @@
+package dev.ninesliced.managers;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Single execution service for all BetterMap background work.
+ * <p>
+ * Work is split into two named, bounded pools:
+ * <ul>
+ *     <li><b>io</b> - virtual threads for disk access, with a cap on concurrent tasks</li>
+ *     <li><b>timer</b> - a scheduler for periodic and delayed tasks, which should only hand work off</li>
+ * </ul>
+ * I/O tasks never run on the submitting thread, so a world thread never blocks on disk: a
+ * saturated io pool keeps queueing and logs a backlog warning, and after shutdown tasks are
+ * rejected. Every pool records queue depth and queue latency for diagnostics.
+ */
+public class BetterMapExecutor {
+    private static final Logger LOGGER = Logger.getLogger(BetterMapExecutor.class.getName());
+    private static final int IO_MAX_CONCURRENT = 8;
+    private static final int IO_MAX_PENDING = 1024;
+    private static final int TIMER_THREADS = 2;
+    private static BetterMapExecutor instance;
+
+    private final ExecutorService ioExecutor;
+    private final Semaphore ioPermits = new Semaphore(IO_MAX_CONCURRENT);
+    private final AtomicBoolean ioBacklogWarned = new AtomicBoolean();
+    private final ScheduledExecutorService timerExecutor;
+
+    private final PoolStats ioStats = new PoolStats("io");
+    private final PoolStats timerStats = new PoolStats("timer");
+
+    private volatile boolean shuttingDown = false;
+
+    private BetterMapExecutor() {
+        this.ioExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("BetterMap-IO-", 0).factory());
+
+        ScheduledThreadPoolExecutor timers = new ScheduledThreadPoolExecutor(TIMER_THREADS, namedDaemonFactory("BetterMap-Timer-"));
+        timers.setRemoveOnCancelPolicy(true);
+        timers.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.timerExecutor = timers;
+    }
+
+    /**
+     * Gets the singleton instance.
+     *
+     * @return The executor service.
+     */
+    public static synchronized BetterMapExecutor getInstance() {
+        if (instance == null) {
+            instance = new BetterMapExecutor();
+        }
+        return instance;
+    }
+
+    /**
+     * Starts the executor service on plugin setup. A service shut down by a previous disable is
+     * replaced with fresh pools, so timers and writes work again after the plugin is re-enabled.
+     *
+     * @return The running executor service.
+     */
+    public static synchronized BetterMapExecutor start() {
+        if (instance == null || instance.shuttingDown) {
+            instance = new BetterMapExecutor();
+        }
+        return instance;
+    }
+
+    /**
+     * Runs a blocking I/O task on a virtual thread, with at most {@value #IO_MAX_CONCURRENT} running at once.
+     * The task never runs on the calling thread. Past {@value #IO_MAX_PENDING} pending tasks it still
+     * queues, with a warning logged once per backlog. Once the service is shutting down it is rejected.
+     *
+     * @param name The task name, used in log messages.
+     * @param task The task.
+     * @return True if the task was queued, false if it was rejected.
+     */
+    public boolean executeIo(@Nonnull String name, @Nonnull Runnable task) {
+        if (shuttingDown) {
+            return rejectIo(name);
+        }
+
+        long queuedAt = System.nanoTime();
+        int pending = ioStats.pending.incrementAndGet();
+        if (pending >= IO_MAX_PENDING) {
+            if (ioBacklogWarned.compareAndSet(false, true)) {
+                LOGGER.warning("BetterMap I/O backlog reached " + pending + " pending tasks");
+            }
+        } else if (pending < IO_MAX_PENDING / 2) {
+            ioBacklogWarned.set(false);
+        }
+        ioStats.submitted.increment();
+        try {
+            ioExecutor.execute(() -> {
+                try {
+                    ioPermits.acquireUninterruptibly();
+                    try {
+                        runMeasured(ioStats, name, task, queuedAt);
+                    } finally {
+                        ioPermits.release();
+                    }
+                } finally {
+                    ioStats.pending.decrementAndGet();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            ioStats.pending.decrementAndGet();
+            return rejectIo(name);
+        }
+    }
+
+    private boolean rejectIo(String name) {
+        ioStats.rejected.increment();
+        LOGGER.warning("BetterMap I/O task '" + name + "' rejected: the executor is shut down");
+        return false;
+    }
+
+    /**
+     * Schedules a one-off task on the timer pool.
+     *
+     * @param name  The task name, used in log messages.
+     * @param task  The task. It should be short and hand heavier work to another pool or world.
+     * @param delay The delay.
+     * @param unit  The delay unit.
+     * @return The scheduled future, or null if the service is shut down.
+     */
+    public ScheduledFuture<?> schedule(@Nonnull String name, @Nonnull Runnable task, long delay, @Nonnull TimeUnit unit) {
+        if (shuttingDown) {
+            return null;
+        }
+        long queuedAt = System.nanoTime() + unit.toNanos(delay);
+        timerStats.submitted.increment();
+        try {
+            return timerExecutor.schedule(() -> runMeasured(timerStats, name, task, queuedAt), delay, unit);
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Schedules a periodic task on the timer pool.
+     *
+     * @param name         The task name, used in log messages.
+     * @param task         The task. It should be short and hand heavier work to another pool or world.
+     * @param initialDelay The initial delay.
+     * @param period       The period between runs.
+     * @param unit         The time unit.
+     * @return The scheduled future, or null if the service is shut down.
+     */
+    public ScheduledFuture<?> scheduleAtFixedRate(@Nonnull String name, @Nonnull Runnable task, long initialDelay, long period, @Nonnull TimeUnit unit) {
+        if (shuttingDown) {
+            return null;
+        }
+        // Runs are due at firstRunAt + n * period; latency is measured against that, not the actual start.
+        long firstRunAt = System.nanoTime() + unit.toNanos(initialDelay);
+        long periodNanos = unit.toNanos(period);
+        AtomicLong runs = new AtomicLong();
+        timerStats.submitted.increment();
+        try {
+            return timerExecutor.scheduleAtFixedRate(
+                    () -> runMeasured(timerStats, name, task, firstRunAt + runs.getAndIncrement() * periodNanos),
+                    initialDelay, period, unit);
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Gets a human-readable summary of each pool's metrics.
+     *
+     * @return One line per pool.
+     */
+    @Nonnull
+    public List<String> getStats() {
+        List<String> lines = new ArrayList<>();
+        lines.add(ioStats.describe());
+        lines.add(timerStats.describe());
+        return lines;
+    }
+
+    /**
+     * Stops the timers and waits for pending I/O (such as saves) to finish.
+     * I/O tasks submitted after this call are rejected until {@link #start()} creates new pools.
+     *
+     * @param timeout The maximum time to wait for pending work.
+     * @param unit    The timeout unit.
+     */
+    public void shutdown(long timeout, @Nonnull TimeUnit unit) {
+        shuttingDown = true;
+        timerExecutor.shutdownNow();
+        ioExecutor.shutdown();
+
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        try {
+            if (!ioExecutor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                LOGGER.warning("Timed out waiting for " + ioStats.pending.get() + " pending I/O tasks");
+                ioExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            ioExecutor.shutdownNow();
+        }
+
+        for (String line : getStats()) {
+            LOGGER.info("Executor stats: " + line);
+        }
+    }
+
+    private static void runMeasured(PoolStats stats, String name, Runnable task, long queuedAt) {
+        long startedAt = System.nanoTime();
+        stats.recordLatency(Math.max(0L, startedAt - queuedAt));
+        try {
+            task.run();
+            stats.completed.increment();
+        } catch (Exception e) {
+            stats.failed.increment();
+            LOGGER.warning("BetterMap " + stats.name + " task '" + name + "' failed: " + e.getMessage());
+        }
+    }
+
+    private static ThreadFactory namedDaemonFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class PoolStats {
+        private final String name;
+        private final LongAdder submitted = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final LongAdder latencyNanos = new LongAdder();
+        private final LongAdder latencySamples = new LongAdder();
+        private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+        private PoolStats(String name) {
+            this.name = name;
+        }
+
+        private void recordLatency(long nanos) {
+            latencyNanos.add(nanos);
+            latencySamples.increment();
+            maxLatencyNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        private String describe() {
+            long samples = latencySamples.sum();
+            double avgMs = samples == 0 ? 0.0 : latencyNanos.sum() / (double) samples / 1_000_000.0;
+            return String.format("%s: submitted=%d completed=%d failed=%d rejected=%d pending=%d avgLatency=%.2fms maxLatency=%.2fms",
+                    name, submitted.sum(), completed.sum(), failed.sum(), rejected.sum(), pending.get(),
+                    avgMs, maxLatencyNanos.get() / 1_000_000.0);
+        }
+    }
+}
@@ -11,8 +11,6 @@ import java.util.HashSet;
 import java.util.Set;
 import java.util.UUID;
 import java.util.logging.Logger;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
@@ -33,7 +31,6 @@ public class ExplorationManager {
 
     private String persistencePath = "universe/exploration_data";
 
-    private final ScheduledExecutorService autoSaveScheduler = Executors.newSingleThreadScheduledExecutor();
     private ScheduledFuture<?> autoSaveTask;
 
     private ExplorationManager() {
@@ -180,7 +177,6 @@ public class ExplorationManager {
         try {
             LOGGER.info("Shutting down Exploration System...");
             stopAutoSave();
-            autoSaveScheduler.shutdown();
             ExplorationTracker.getInstance().clear();
             LOGGER.info("Exploration System shutdown complete");
         } catch (Exception e) {
@@ -195,7 +191,7 @@ public class ExplorationManager {
         stopAutoSave();
         int interval = BetterMapConfig.getInstance().getAutoSaveInterval();
         if (interval > 0) {
-            autoSaveTask = autoSaveScheduler.scheduleAtFixedRate(this::autoSave, interval, interval, TimeUnit.MINUTES);
+            autoSaveTask = BetterMapExecutor.getInstance().scheduleAtFixedRate("exploration-autosave", this::autoSave, interval, interval, TimeUnit.MINUTES);
             LOGGER.info("Auto-save scheduled every " + interval + " minutes.");
         } else {
             LOGGER.info("Auto-save is disabled (interval <= 0).");
@@ -2,6 +2,7 @@ package dev.ninesliced.managers;
 
 import dev.ninesliced.exploration.ExploredChunksTracker;
 import dev.ninesliced.utils.ChunkUtil;
+import it.unimi.dsi.fastutil.longs.LongSet;
 
 import javax.annotation.Nonnull;
 import java.util.HashSet;
@@ -12,6 +13,11 @@ import java.util.Set;
  */
 public class MapExpansionManager {
 
+    /**
+     * Largest jump, in chunks, that is treated as travel and swept. Anything further is a teleport.
+     */
+    public static final int MAX_SWEEP_DISTANCE = 16;
+
     private final ExploredChunksTracker exploredChunks;
     private int minChunkX = Integer.MAX_VALUE;
     private int maxChunkX = Integer.MIN_VALUE;
@@ -51,6 +57,43 @@ public class MapExpansionManager {
         exploredChunks.markChunksExplored(newChunks);
     }
 
+    /**
+     * Marks the area swept by the exploration circle while moving between two chunks.
+     * Only chunks outside the circle already stamped at the previous position are marked,
+     * so a sample costs the newly covered area rather than a full circle.
+     * When there is no previous position or the jump is a teleport, the full circle at the
+     * current position is marked instead.
+     *
+     * @param fromChunkX Previous chunk X, or {@link Integer#MAX_VALUE} if unknown.
+     * @param fromChunkZ Previous chunk Z, or {@link Integer#MAX_VALUE} if unknown.
+     * @param toChunkX   Current chunk X.
+     * @param toChunkZ   Current chunk Z.
+     * @param viewRadius Radius of view.
+     * @return The chunks marked by this call, some of which may already have been explored.
+     */
+    @Nonnull
+    public LongSet updateSweptBoundaries(int fromChunkX, int fromChunkZ, int toChunkX, int toChunkZ, int viewRadius) {
+        boolean skipStart = true;
+        if (fromChunkX == Integer.MAX_VALUE || fromChunkZ == Integer.MAX_VALUE
+                || Math.abs(toChunkX - fromChunkX) > MAX_SWEEP_DISTANCE
+                || Math.abs(toChunkZ - fromChunkZ) > MAX_SWEEP_DISTANCE) {
+            fromChunkX = toChunkX;
+            fromChunkZ = toChunkZ;
+            skipStart = false;
+        }
+
+        LongSet newChunks = ChunkUtil.getChunksInSweptArea(fromChunkX, fromChunkZ, toChunkX, toChunkZ, viewRadius, skipStart);
+
+        int radius = Math.max(0, viewRadius);
+        minChunkX = Math.min(minChunkX, Math.min(fromChunkX, toChunkX) - radius);
+        maxChunkX = Math.max(maxChunkX, Math.max(fromChunkX, toChunkX) + radius);
+        minChunkZ = Math.min(minChunkZ, Math.min(fromChunkZ, toChunkZ) - radius);
+        maxChunkZ = Math.max(maxChunkZ, Math.max(fromChunkZ, toChunkZ) + radius);
+
+        exploredChunks.markChunksExplored(newChunks);
+        return newChunks;
+    }
+
     /**
      * Gets the current rectangular boundaries of explored area.
      *
@@ -1,25 +1,22 @@
 package dev.ninesliced.managers;
 
 import com.hypixel.hytale.component.Holder;
-import com.hypixel.hytale.server.core.HytaleServer;
 import com.hypixel.hytale.server.core.command.system.CommandSender;
 import com.hypixel.hytale.server.core.entity.entities.Player;
 import com.hypixel.hytale.server.core.event.events.player.PlayerConnectEvent;
 import com.hypixel.hytale.server.core.event.events.player.PlayerReadyEvent;
 import com.hypixel.hytale.server.core.permissions.PermissionsModule;
 import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.Universe;
 import com.hypixel.hytale.server.core.universe.world.World;
 import com.hypixel.hytale.server.core.universe.world.WorldMapTracker;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
-import com.hypixel.hytale.server.core.universe.world.worldmap.WorldMapManager;
-import com.hypixel.hytale.server.core.universe.world.worldmap.markers.MapMarkerTracker;
 import dev.ninesliced.BetterMap;
 import dev.ninesliced.configs.BetterMapConfig;
-import dev.ninesliced.configs.PlayerConfig;
+import dev.ninesliced.configs.ViewerPolicy;
 import dev.ninesliced.utils.PermissionsUtil;
 
 import java.util.*;
-import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 /**
@@ -29,9 +26,8 @@ import java.util.logging.Logger;
 public class MapPrivacyManager {
     private static final Logger LOGGER = Logger.getLogger(MapPrivacyManager.class.getName());
     private static final String MAP_MARKER_TELEPORT_PERMISSION = "hytale.world_map.teleport.marker";
+    private static final List<String> PLAYER_PROVIDER_KEYS = Arrays.asList("playerMarkers", "playerIcons", "players");
     private static MapPrivacyManager instance;
-    private final Set<World> monitoredWorlds = Collections.newSetFromMap(new WeakHashMap<>());
-    private final Map<World, Map<String, WorldMapManager.MarkerProvider>> backedUpProviders = new WeakHashMap<>();
 
     private MapPrivacyManager() {
     }
@@ -49,7 +45,7 @@ public class MapPrivacyManager {
     }
 
     /**
-     * Initializes the manager, registering event listeners and scheduled tasks.
+     * Initializes the manager, registering event listeners and the provider layout.
      */
     public void initialize() {
         BetterMap plugin = BetterMap.get();
@@ -73,16 +69,7 @@ public class MapPrivacyManager {
             this.applyPlayerSettings(event.getPlayer(), event.getPlayer().getWorld());
         });
 
-        HytaleServer.SCHEDULED_EXECUTOR.scheduleAtFixedRate(() -> {
-            try {
-                for (World world : this.monitoredWorlds) {
-                    if (world == null) continue;
-                    this.removeProvider(world);
-                }
-            } catch (Exception e) {
-                LOGGER.warning("Error in privacy provider poller: " + e.getMessage());
-            }
-        }, 5L, 30L, TimeUnit.SECONDS);
+        MarkerProviderRegistry.getInstance().addLayout(this::describeProviders);
 
         LOGGER.info("MapPrivacyManager initialized.");
     }
@@ -90,194 +77,52 @@ public class MapPrivacyManager {
     /**
      * Updates the privacy state for all players and worlds immediately.
      * This can be called to refresh the privacy settings without restarting the server.
+     * Player filters are applied as per-player jobs on each world's {@link WorldJobScheduler} queue.
      */
     public void updatePrivacyState() {
-        BetterMapConfig globalConfig = BetterMapConfig.getInstance();
-        boolean globalHide = globalConfig.isHidePlayersOnMap();
-        boolean radarEnabled = globalConfig.isRadarEnabled();
-        int radarRange = globalConfig.getRadarRange();
-        boolean allowMarkerTeleports = globalConfig.isAllowMapMarkerTeleports();
-
         try {
-            for (World world : this.monitoredWorlds) {
+            MarkerProviderRegistry.getInstance().refreshAll();
+
+            Universe universe = Universe.get();
+            if (universe == null) return;
+
+            WorldJobScheduler scheduler = WorldJobScheduler.getInstance();
+            for (World world : universe.getWorlds().values()) {
                 if (world == null) continue;
 
-                world.execute(() -> {
-                    this.removeProvider(world);
-
-                    try {
-                        for (PlayerRef playerRef : world.getPlayerRefs()) {
-                            if (playerRef == null) continue;
-
-                            Holder<EntityStore> holder = playerRef.getHolder();
-                            if (holder == null) continue;
-                            Player player = holder.getComponent(Player.getComponentType());
-                            if (player == null) continue;
-
-                            WorldMapTracker tracker = player.getWorldMapTracker();
-
-                            UUID playerUuid = playerRef.getUuid();
-                            PlayerConfig playerConfig = playerUuid != null
-                                ? PlayerConfigManager.getInstance().getPlayerConfig(playerUuid)
-                                : null;
-                            boolean hide = globalHide && !canBypassGlobalHidePlayers(player, playerConfig);
-                            if (!hide && playerConfig != null && playerConfig.isHidePlayersOnMap()) {
-                                hide = true;
-                            }
-
-                            if (hide) {
-                                tracker.setPlayerMapFilter(ignored -> false);
-                            } else if (radarEnabled && radarRange >= 0) {
-                                final int rangeSq = radarRange * radarRange;
-                                final String worldName = world.getName();
-                                final String viewerUuid = playerRef.getUuid().toString();
-
-                                tracker.setPlayerMapFilter(otherPlayer -> {
-                                    try {
-                                        var radarDataList = PlayerRadarManager.getInstance().getRadarData(worldName);
-
-                                        PlayerRadarManager.RadarData viewerData = null;
-                                        for (var data : radarDataList) {
-                                            if (data.uuid.equals(viewerUuid)) {
-                                                viewerData = data;
-                                                break;
-                                            }
-                                        }
-                                        if (viewerData == null) return true;
-
-                                        String otherUuid = null;
-                                        var otherRef = otherPlayer.getReference();
-                                        if (otherRef != null) {
-                                            var store = otherRef.getStore();
-                                            var otherPlayerRef = store.getComponent(otherRef, PlayerRef.getComponentType());
-                                            if (otherPlayerRef != null) {
-                                                otherUuid = otherPlayerRef.getUuid().toString();
-                                            }
-                                        }
-                                        if (otherUuid == null) return true;
-
-                                        PlayerRadarManager.RadarData otherData = null;
-                                        for (var data : radarDataList) {
-                                            if (data.uuid.equals(otherUuid)) {
-                                                otherData = data;
-                                                break;
-                                            }
-                                        }
-                                        if (otherData == null) return true;
-
-                                        double dx = otherData.position.x - viewerData.position.x;
-                                        double dy = otherData.position.y - viewerData.position.y;
-                                        double dz = otherData.position.z - viewerData.position.z;
-                                        double distanceSquared = dx * dx + dy * dy + dz * dz;
-
-                                        return distanceSquared <= rangeSq;
-                                    } catch (Exception e) {
-                                        return true;
-                                    }
-                                });
-                            } else {
-                                tracker.setPlayerMapFilter(null);
-                            }
-
-                            syncMarkerTeleportPermission(player, allowMarkerTeleports);
-                        }
-                    } catch (Exception _) {}
-                });
+                scheduler.submitForPlayers(world, "mapPrivacy", WorldJobScheduler.Priority.NORMAL,
+                    (playerRef, player) -> this.applyPlayerFilter(player, world));
             }
-
         } catch (Exception e) {
             LOGGER.severe("Error updating privacy state: " + e.getMessage());
         }
     }
 
     private void applyPlayerSettings(Player player, World world) {
+        // A joining player may bypass the global hide, which changes the provider layout.
+        MarkerProviderRegistry.getInstance().invalidate();
+        this.applyPlayerFilter(player, world);
+    }
+
+    private void applyPlayerFilter(Player player, World world) {
         BetterMapConfig globalConfig = BetterMapConfig.getInstance();
-        boolean globalHide = globalConfig.isHidePlayersOnMap();
         boolean radarEnabled = globalConfig.isRadarEnabled();
         int radarRange = globalConfig.getRadarRange();
         boolean allowMarkerTeleports = globalConfig.isAllowMapMarkerTeleports();
 
         UUID playerUuid = ((CommandSender) player).getUuid();
-        PlayerConfig playerConfig = playerUuid != null
-            ? PlayerConfigManager.getInstance().getPlayerConfig(playerUuid)
-            : null;
-        boolean hide = globalHide && !canBypassGlobalHidePlayers(player, playerConfig);
-        if (!hide && playerConfig != null && playerConfig.isHidePlayersOnMap()) {
-            hide = true;
-        }
-
-        if (world != null) {
-            this.monitoredWorlds.add(world);
-            this.removeProvider(world);
-        }
+        ViewerPolicy policy = ViewerPolicyManager.getInstance().getPolicy(player);
+        boolean hide = policy != null && policy.isHidePlayers();
 
         try {
             WorldMapTracker tracker = player.getWorldMapTracker();
 
             if (hide) {
                 tracker.setPlayerMapFilter(ignored -> false);
-            } else if (radarEnabled && radarRange >= 0 && world != null) {
-                final int rangeSq = radarRange * radarRange;
+            } else if (radarEnabled && radarRange >= 0 && world != null && playerUuid != null) {
                 final String worldName = world.getName();
-
-                String viewerUuid = null;
-                var ref = player.getReference();
-                if (ref != null) {
-                    var store = ref.getStore();
-                    var pRef = store.getComponent(ref, PlayerRef.getComponentType());
-                    if (pRef != null) {
-                        viewerUuid = pRef.getUuid().toString();
-                    }
-                }
-                final String finalViewerUuid = viewerUuid;
-
-                if (finalViewerUuid != null) {
-                    tracker.setPlayerMapFilter(otherPlayer -> {
-                        try {
-                            var radarDataList = PlayerRadarManager.getInstance().getRadarData(worldName);
-
-                            PlayerRadarManager.RadarData viewerData = null;
-                            for (var data : radarDataList) {
-                                if (data.uuid.equals(finalViewerUuid)) {
-                                    viewerData = data;
-                                    break;
-                                }
-                            }
-                            if (viewerData == null) return true;
-
-                            String otherUuid = null;
-                            var otherRef = otherPlayer.getReference();
-                            if (otherRef != null) {
-                                var store = otherRef.getStore();
-                                var otherPlayerRef = store.getComponent(otherRef, PlayerRef.getComponentType());
-                                if (otherPlayerRef != null) {
-                                    otherUuid = otherPlayerRef.getUuid().toString();
-                                }
-                            }
-                            if (otherUuid == null) return true;
-
-                            PlayerRadarManager.RadarData otherData = null;
-                            for (var data : radarDataList) {
-                                if (data.uuid.equals(otherUuid)) {
-                                    otherData = data;
-                                    break;
-                                }
-                            }
-                            if (otherData == null) return true;
-
-                            double dx = otherData.position.x - viewerData.position.x;
-                            double dy = otherData.position.y - viewerData.position.y;
-                            double dz = otherData.position.z - viewerData.position.z;
-                            double distanceSquared = dx * dx + dy * dy + dz * dz;
-
-                            return distanceSquared <= rangeSq;
-                        } catch (Exception e) {
-                            return true;
-                        }
-                    });
-                } else {
-                    tracker.setPlayerMapFilter(null);
-                }
+                final UUID viewerUuid = playerUuid;
+                tracker.setPlayerMapFilter(otherPlayer -> isVisibleOnMap(worldName, viewerUuid, otherPlayer));
             } else {
                 tracker.setPlayerMapFilter(null);
             }
@@ -288,41 +133,34 @@ public class MapPrivacyManager {
         }
     }
 
-    private void removeProvider(World world) {
+    /**
+     * Tests the visibility bit precomputed in the world's radar snapshot.
+     * Players missing from the snapshot (e.g. just joined) stay visible until the next refresh.
+     */
+    private boolean isVisibleOnMap(String worldName, UUID viewerUuid, Player otherPlayer) {
+        RadarSnapshot snapshot = PlayerRadarManager.getInstance().acquireRadarSnapshot(worldName);
         try {
-            if (world == null) return;
-
-            BetterMapConfig config = BetterMapConfig.getInstance();
-            boolean shouldRemove = config.isRadarEnabled();
-            if (!shouldRemove && config.isHidePlayersOnMap()) {
-                shouldRemove = !hasGlobalHideOverride(world);
-            }
-
-            WorldMapManager mapManager = world.getWorldMapManager();
-
-            Map<String, WorldMapManager.MarkerProvider> providers = mapManager.getMarkerProviders();
-            if (providers == null) return;
-
-            List<String> targetKeys = Arrays.asList("playerMarkers", "playerIcons", "players");
-
-            Map<String, WorldMapManager.MarkerProvider> worldBackups = backedUpProviders.computeIfAbsent(world, ignored -> new HashMap<>());
+            int viewerSlot = snapshot.slotOf(viewerUuid);
+            int otherSlot = snapshot.slotOf(((CommandSender) otherPlayer).getUuid());
+            return viewerSlot < 0 || otherSlot < 0 || snapshot.isVisible(viewerSlot, otherSlot);
+        } catch (Exception e) {
+            return true;
+        } finally {
+            snapshot.release();
+        }
+    }
 
-            if (shouldRemove) {
-                for (String key : targetKeys) {
-                    if (!providers.containsKey(key)) continue;
+    private void describeProviders(World world, MarkerProviderRegistry.Plan plan) {
+        BetterMapConfig config = BetterMapConfig.getInstance();
+        boolean shouldRemove = config.isRadarEnabled();
+        if (!shouldRemove && config.isHidePlayersOnMap()) {
+            shouldRemove = !hasGlobalHideOverride(world);
+        }
 
-                    worldBackups.put(key, providers.get(key));
-                    providers.remove(key);
-                }
-            } else {
-                for (String key : targetKeys) {
-                    if (worldBackups.containsKey(key) && !providers.containsKey(key)) {
-                        providers.put(key, worldBackups.get(key));
-                    }
-                }
+        if (shouldRemove) {
+            for (String key : PLAYER_PROVIDER_KEYS) {
+                plan.remove(key);
             }
-        } catch (Exception e) {
-            LOGGER.severe("Error managing provider: " + e.getMessage());
         }
     }
 
@@ -340,11 +178,8 @@ public class MapPrivacyManager {
                 Player player = holder.getComponent(Player.getComponentType());
                 if (player == null) continue;
 
-                UUID playerUuid = ((CommandSender) player).getUuid();
-                PlayerConfig playerConfig = playerUuid != null
-                    ? PlayerConfigManager.getInstance().getPlayerConfig(playerUuid)
-                    : null;
-                if (canBypassGlobalHidePlayers(player, playerConfig)) {
+                ViewerPolicy policy = ViewerPolicyManager.getInstance().getPolicy(player);
+                if (policy != null && policy.isBypassGlobalPlayersHide()) {
                     return true;
                 }
             }
@@ -355,16 +190,6 @@ public class MapPrivacyManager {
         return false;
     }
 
-    private boolean canBypassGlobalHidePlayers(Player player, PlayerConfig playerConfig) {
-        if (player == null) {
-            return false;
-        }
-
-        return playerConfig != null
-            && playerConfig.isOverrideGlobalPlayersHide()
-            && PermissionsUtil.canOverridePlayers(player);
-    }
-
     private void syncMarkerTeleportPermission(Player player, boolean allowMarkerTeleports) {
         if (player == null) {
             return;
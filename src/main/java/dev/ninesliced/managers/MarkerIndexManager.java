@@ -0,0 +1,369 @@
+package dev.ninesliced.managers;
+
+import com.hypixel.hytale.builtin.teleport.TeleportPlugin;
+import com.hypixel.hytale.builtin.teleport.Warp;
+import com.hypixel.hytale.math.vector.Transform;
+import com.hypixel.hytale.protocol.packets.worldmap.MapMarker;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.worldmap.WorldMapManager;
+import dev.ninesliced.utils.ChunkUtil;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Per-world index of POIs and warps by the chunk they are located in.
+ * <p>
+ * Markers are grouped both by exploration chunk (for revealing) and by map chunk region
+ * (for range queries around a viewer), so marker providers only visit the regions within
+ * their view radius instead of every marker of the world.
+ * <p>
+ * POIs and warps rarely change, so the index is only re-checked against the live
+ * sources at most once every {@link #INDEX_CHECK_INTERVAL_MS}. It is rebuilt, and its
+ * version changed, only when a marker was added, removed, renamed or moved, which lets
+ * dependent state (such as revealed markers) stay valid across checks.
+ */
+public class MarkerIndexManager {
+    private static final Logger LOGGER = Logger.getLogger(MarkerIndexManager.class.getName());
+    private static final long INDEX_CHECK_INTERVAL_MS = 1000L;
+    private static final int MAP_CHUNK_SHIFT = 5;
+    private static final int REGION_SHIFT = 3;
+    private static MarkerIndexManager instance;
+
+    private final Map<String, WorldIndex> indexes = new ConcurrentHashMap<>();
+    private final AtomicLong versions = new AtomicLong();
+
+    private MarkerIndexManager() {
+    }
+
+    /**
+     * Gets the singleton instance.
+     *
+     * @return The manager instance.
+     */
+    public static synchronized MarkerIndexManager getInstance() {
+        if (instance == null) {
+            instance = new MarkerIndexManager();
+        }
+        return instance;
+    }
+
+    /**
+     * Gets the index for a world, refreshing it from the live POIs and warps if the last check is old.
+     *
+     * @param world The world.
+     * @return The current index.
+     */
+    @Nonnull
+    public WorldIndex getIndex(@Nonnull World world) {
+        String worldName = world.getName();
+        WorldIndex current = indexes.get(worldName);
+        long now = System.currentTimeMillis();
+        if (current != null && now - current.checkedAt < INDEX_CHECK_INTERVAL_MS) {
+            return current;
+        }
+
+        WorldIndex rebuilt;
+        try {
+            rebuilt = build(world, current, now);
+        } catch (Exception e) {
+            LOGGER.warning("Failed to index markers for world " + worldName + ": " + e.getMessage());
+            if (current != null) {
+                current.checkedAt = now;
+                return current;
+            }
+            rebuilt = new WorldIndex(versions.incrementAndGet(), now, Collections.emptyMap());
+        }
+        indexes.put(worldName, rebuilt);
+        return rebuilt;
+    }
+
+    /**
+     * Gets the last built index for a world without refreshing it.
+     *
+     * @param worldName The world name.
+     * @return The index, or null if none was built yet.
+     */
+    @Nullable
+    public WorldIndex peekIndex(@Nonnull String worldName) {
+        return indexes.get(worldName);
+    }
+
+    /**
+     * Drops the index of a world, e.g. when it is removed.
+     *
+     * @param worldName The world name.
+     */
+    public void removeWorld(@Nonnull String worldName) {
+        indexes.remove(worldName);
+    }
+
+    private WorldIndex build(World world, @Nullable WorldIndex previous, long now) {
+        Map<String, IndexedMarker> markers = new HashMap<>();
+
+        WorldMapManager mapManager = world.getWorldMapManager();
+        Map<String, MapMarker> pointsOfInterest = mapManager != null ? mapManager.getPointsOfInterest() : null;
+        if (pointsOfInterest != null) {
+            for (Map.Entry<String, MapMarker> entry : pointsOfInterest.entrySet()) {
+                MapMarker poi = entry.getValue();
+                if (poi == null) continue;
+                IndexedMarker marker;
+                if (poi.transform != null && poi.transform.position != null) {
+                    marker = new IndexedMarker(false, entry.getKey(), poi.name,
+                        poi.transform.position.x, poi.transform.position.z);
+                } else {
+                    marker = new IndexedMarker(false, entry.getKey(), poi.name);
+                }
+                markers.put(marker.key(), marker);
+            }
+        }
+
+        TeleportPlugin plugin = TeleportPlugin.get();
+        Map<String, Warp> warps = plugin != null ? plugin.getWarps() : null;
+        if (warps != null) {
+            for (Map.Entry<String, Warp> entry : warps.entrySet()) {
+                Warp warp = entry.getValue();
+                if (warp == null || !world.getName().equals(warp.getWorld())) continue;
+                Transform transform = warp.getTransform();
+                if (transform == null || transform.getPosition() == null) continue;
+                IndexedMarker marker = new IndexedMarker(true, entry.getKey(), warp.getId(),
+                    transform.getPosition().x, transform.getPosition().z);
+                markers.put(marker.key(), marker);
+            }
+        }
+
+        if (previous != null && previous.markers.equals(markers)) {
+            previous.checkedAt = now;
+            return previous;
+        }
+        return new WorldIndex(versions.incrementAndGet(), now, markers);
+    }
+
+    /**
+     * Immutable snapshot of the POIs and warps of a world, grouped by chunk and by map chunk region.
+     */
+    public static final class WorldIndex {
+        private final long version;
+        private volatile long checkedAt;
+        private final Map<String, IndexedMarker> markers;
+        private final Long2ObjectMap<List<IndexedMarker>> byChunk = new Long2ObjectOpenHashMap<>();
+        private final Long2ObjectMap<List<IndexedMarker>> byRegion = new Long2ObjectOpenHashMap<>();
+        private final List<IndexedMarker> unpositioned = new ArrayList<>();
+
+        private WorldIndex(long version, long checkedAt, Map<String, IndexedMarker> markers) {
+            this.version = version;
+            this.checkedAt = checkedAt;
+            this.markers = markers;
+            for (IndexedMarker marker : markers.values()) {
+                if (marker.chunkIndex == Long.MIN_VALUE) {
+                    unpositioned.add(marker);
+                } else {
+                    byChunk.computeIfAbsent(marker.chunkIndex, ignored -> new ArrayList<>()).add(marker);
+                    long region = ChunkUtil.chunkCoordsToIndex(
+                        marker.mapChunkX >> REGION_SHIFT, marker.mapChunkZ >> REGION_SHIFT);
+                    byRegion.computeIfAbsent(region, ignored -> new ArrayList<>()).add(marker);
+                }
+            }
+        }
+
+        /**
+         * Gets the index version. It changes whenever the indexed markers change.
+         *
+         * @return The version.
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Gets the markers located in a chunk.
+         *
+         * @param chunkIndex The world chunk index.
+         * @return The markers, or an empty list.
+         */
+        @Nonnull
+        public List<IndexedMarker> getMarkersInChunk(long chunkIndex) {
+            List<IndexedMarker> list = byChunk.get(chunkIndex);
+            return list != null ? list : Collections.emptyList();
+        }
+
+        /**
+         * Gets the chunks that contain at least one marker.
+         *
+         * @return The chunk indices with their markers.
+         */
+        @Nonnull
+        public Long2ObjectMap<List<IndexedMarker>> getChunks() {
+            return byChunk;
+        }
+
+        /**
+         * Gets an indexed POI by id.
+         *
+         * @param id The POI id.
+         * @return The indexed POI, or null if it is not indexed.
+         */
+        @Nullable
+        public IndexedMarker getPoi(@Nonnull String id) {
+            return markers.get("poi:" + id);
+        }
+
+        /**
+         * Gets an indexed warp by id.
+         *
+         * @param id The warp id.
+         * @return The indexed warp, or null if it is not indexed.
+         */
+        @Nullable
+        public IndexedMarker getWarp(@Nonnull String id) {
+            return markers.get("warp:" + id);
+        }
+
+        /**
+         * Visits the markers of one kind that may be within a view radius around a map chunk.
+         * Only the regions overlapping the square view area are visited; markers without a
+         * position are always visited and left to the tracker's own range check.
+         *
+         * @param warps      True to visit warps, false to visit POIs.
+         * @param chunkX     The viewer's map chunk X.
+         * @param chunkZ     The viewer's map chunk Z.
+         * @param viewRadius The view radius in map chunks.
+         * @param visitor    Called for each candidate marker.
+         */
+        public void forEachInRange(boolean warps, int chunkX, int chunkZ, int viewRadius,
+                                   @Nonnull Consumer<IndexedMarker> visitor) {
+            for (IndexedMarker marker : unpositioned) {
+                if (marker.warp == warps) {
+                    visitor.accept(marker);
+                }
+            }
+            if (byRegion.isEmpty()) {
+                return;
+            }
+
+            int radius = Math.max(0, viewRadius);
+            int minRegionX = (int) Math.max(Integer.MIN_VALUE, (long) chunkX - radius) >> REGION_SHIFT;
+            int maxRegionX = (int) Math.min(Integer.MAX_VALUE, (long) chunkX + radius) >> REGION_SHIFT;
+            int minRegionZ = (int) Math.max(Integer.MIN_VALUE, (long) chunkZ - radius) >> REGION_SHIFT;
+            int maxRegionZ = (int) Math.min(Integer.MAX_VALUE, (long) chunkZ + radius) >> REGION_SHIFT;
+            long regionCount = ((long) maxRegionX - minRegionX + 1) * ((long) maxRegionZ - minRegionZ + 1);
+
+            if (regionCount > byRegion.size()) {
+                // Huge radius: scanning the occupied regions is cheaper than probing every region in range.
+                for (Long2ObjectMap.Entry<List<IndexedMarker>> entry : byRegion.long2ObjectEntrySet()) {
+                    int regionX = ChunkUtil.indexToChunkX(entry.getLongKey());
+                    int regionZ = ChunkUtil.indexToChunkZ(entry.getLongKey());
+                    if (regionX >= minRegionX && regionX <= maxRegionX && regionZ >= minRegionZ && regionZ <= maxRegionZ) {
+                        visitRegion(entry.getValue(), warps, chunkX, chunkZ, radius, visitor);
+                    }
+                }
+                return;
+            }
+
+            for (int regionX = minRegionX; regionX <= maxRegionX; regionX++) {
+                for (int regionZ = minRegionZ; regionZ <= maxRegionZ; regionZ++) {
+                    List<IndexedMarker> region = byRegion.get(ChunkUtil.chunkCoordsToIndex(regionX, regionZ));
+                    if (region != null) {
+                        visitRegion(region, warps, chunkX, chunkZ, radius, visitor);
+                    }
+                }
+            }
+        }
+
+        private static void visitRegion(List<IndexedMarker> region, boolean warps, int chunkX, int chunkZ,
+                                        int radius, Consumer<IndexedMarker> visitor) {
+            for (IndexedMarker marker : region) {
+                if (marker.warp == warps && marker.isInRange(chunkX, chunkZ, radius)) {
+                    visitor.accept(marker);
+                }
+            }
+        }
+
+        /**
+         * Gets markers without a position, which count as always explored.
+         *
+         * @return The unpositioned markers.
+         */
+        @Nonnull
+        public List<IndexedMarker> getUnpositioned() {
+            return unpositioned;
+        }
+    }
+
+    /**
+     * A single indexed POI or warp.
+     */
+    public static final class IndexedMarker {
+        public final boolean warp;
+        public final String id;
+        public final String name;
+        public final long chunkIndex;
+        public final int mapChunkX;
+        public final int mapChunkZ;
+
+        private IndexedMarker(boolean warp, String id, String name) {
+            this.warp = warp;
+            this.id = id;
+            this.name = name;
+            this.chunkIndex = Long.MIN_VALUE;
+            this.mapChunkX = 0;
+            this.mapChunkZ = 0;
+        }
+
+        private IndexedMarker(boolean warp, String id, String name, double x, double z) {
+            this.warp = warp;
+            this.id = id;
+            this.name = name;
+            this.chunkIndex = ChunkUtil.chunkCoordsToIndex(ChunkUtil.blockToChunkCoord(x), ChunkUtil.blockToChunkCoord(z));
+            this.mapChunkX = (int) Math.floor(x) >> MAP_CHUNK_SHIFT;
+            this.mapChunkZ = (int) Math.floor(z) >> MAP_CHUNK_SHIFT;
+        }
+
+        /**
+         * Checks if the marker may be within a view radius around a map chunk.
+         * Markers without a position always pass and are left to the tracker's own range check.
+         *
+         * @param chunkX     The viewer's map chunk X.
+         * @param chunkZ     The viewer's map chunk Z.
+         * @param viewRadius The view radius in map chunks.
+         * @return True if the marker is within the square view area.
+         */
+        public boolean isInRange(int chunkX, int chunkZ, int viewRadius) {
+            if (chunkIndex == Long.MIN_VALUE) {
+                return true;
+            }
+            return Math.abs((long) mapChunkX - chunkX) <= viewRadius
+                && Math.abs((long) mapChunkZ - chunkZ) <= viewRadius;
+        }
+
+        private String key() {
+            return (warp ? "warp:" : "poi:") + id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof IndexedMarker other)) return false;
+            return warp == other.warp && chunkIndex == other.chunkIndex
+                && mapChunkX == other.mapChunkX && mapChunkZ == other.mapChunkZ
+                && Objects.equals(id, other.id) && Objects.equals(name, other.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(warp, id, name, chunkIndex, mapChunkX, mapChunkZ);
+        }
+    }
+}
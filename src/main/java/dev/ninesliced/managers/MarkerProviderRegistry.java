@@ -0,0 +1,307 @@
+package dev.ninesliced.managers;
+
+import com.hypixel.hytale.server.core.universe.Universe;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.worldmap.WorldMapManager;
+import dev.ninesliced.configs.BetterMapConfig;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Owns the BetterMap entries in each world's marker provider map.
+ * <p>
+ * Managers register a {@link Layout} that describes which providers they want installed,
+ * replaced or removed. For each world the registry applies the merged layout on the world
+ * thread, backs up the providers it displaces and restores them once no layout claims their
+ * key anymore. A layout is re-applied only when the config version or the registry revision
+ * changed, or when {@link #verify(World)} finds that a managed key no longer holds the
+ * provider the registry put there, so nothing is polled.
+ */
+public class MarkerProviderRegistry {
+    private static final Logger LOGGER = Logger.getLogger(MarkerProviderRegistry.class.getName());
+    private static MarkerProviderRegistry instance;
+
+    private final List<Layout> layouts = new CopyOnWriteArrayList<>();
+    private final Map<String, WorldProviders> worlds = new ConcurrentHashMap<>();
+    private final AtomicLong revision = new AtomicLong();
+
+    private MarkerProviderRegistry() {
+    }
+
+    /**
+     * Gets the singleton instance.
+     *
+     * @return The registry instance.
+     */
+    public static synchronized MarkerProviderRegistry getInstance() {
+        if (instance == null) {
+            instance = new MarkerProviderRegistry();
+        }
+        return instance;
+    }
+
+    /**
+     * Adds a layout. Layouts are merged in the order they were added.
+     *
+     * @param layout The layout.
+     */
+    public void addLayout(@Nonnull Layout layout) {
+        layouts.add(layout);
+        invalidate();
+    }
+
+    /**
+     * Marks all worlds as outdated, e.g. after a player override changed.
+     * The layouts are re-applied on each world's next exploration pass.
+     */
+    public void invalidate() {
+        revision.incrementAndGet();
+    }
+
+    /**
+     * Marks all worlds as outdated and re-applies the layouts on each world thread right away.
+     */
+    public void refreshAll() {
+        invalidate();
+        Universe universe = Universe.get();
+        if (universe == null) {
+            return;
+        }
+        for (World world : universe.getWorlds().values()) {
+            if (world == null) continue;
+            WorldJobScheduler.getInstance().submit(world, "markerProviders", WorldJobScheduler.Priority.HIGH,
+                () -> apply(world));
+        }
+    }
+
+    /**
+     * Re-applies the layouts if the world is outdated or a managed provider was overwritten.
+     * Must be called on the world thread; it only costs a few map lookups when nothing changed.
+     *
+     * @param world The world.
+     */
+    public void verify(@Nonnull World world) {
+        WorldMapManager mapManager = world.getWorldMapManager();
+        if (mapManager == null) {
+            return;
+        }
+
+        WorldProviders state = worlds.get(world.getName());
+        if (state == null
+            || state.mapManager != mapManager
+            || state.configVersion != BetterMapConfig.getInstance().getVersion()
+            || state.revision != revision.get()) {
+            apply(world);
+            return;
+        }
+
+        String overwritten = state.findOverwrittenKey(mapManager.getMarkerProviders());
+        if (overwritten != null) {
+            LOGGER.fine("Marker provider " + overwritten + " was replaced in world " + world.getName() + ", restoring");
+            apply(world);
+        }
+    }
+
+    /**
+     * Applies the merged layouts to a world. Must be called on the world thread.
+     *
+     * @param world The world.
+     */
+    public void apply(@Nonnull World world) {
+        try {
+            WorldMapManager mapManager = world.getWorldMapManager();
+            if (mapManager == null) {
+                return;
+            }
+            Map<String, WorldMapManager.MarkerProvider> providers = mapManager.getMarkerProviders();
+            if (providers == null) {
+                return;
+            }
+
+            WorldProviders state = worlds.get(world.getName());
+            if (state == null || state.mapManager != mapManager) {
+                state = new WorldProviders(mapManager);
+                worlds.put(world.getName(), state);
+            }
+            state.configVersion = BetterMapConfig.getInstance().getVersion();
+            state.revision = revision.get();
+
+            Plan plan = new Plan();
+            for (Layout layout : layouts) {
+                try {
+                    layout.describe(world, plan);
+                } catch (Exception e) {
+                    LOGGER.warning("Error describing marker providers for world " + world.getName() + ": " + e.getMessage());
+                }
+            }
+
+            state.apply(providers, plan);
+        } catch (Exception e) {
+            LOGGER.warning("Error applying marker providers for world " + world.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Drops the state kept for a world that was unloaded.
+     *
+     * @param worldName The world name.
+     */
+    public void forgetWorld(@Nonnull String worldName) {
+        worlds.remove(worldName);
+    }
+
+    /**
+     * Describes the providers a manager wants in a world.
+     */
+    @FunctionalInterface
+    public interface Layout {
+
+        /**
+         * Adds this layout's entries to the plan. Called on the world thread.
+         *
+         * @param world The world.
+         * @param plan  The plan to add to.
+         */
+        void describe(@Nonnull World world, @Nonnull Plan plan);
+    }
+
+    /**
+     * The merged provider entries of all layouts for one world.
+     * A removal wins over a replacement of the same key.
+     */
+    public static final class Plan {
+        private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+        private Plan() {
+        }
+
+        /**
+         * Installs a provider, whether or not the key is currently used.
+         *
+         * @param key      The provider key.
+         * @param provider The provider.
+         */
+        public void install(@Nonnull String key, @Nonnull WorldMapManager.MarkerProvider provider) {
+            entries.put(key, new Entry(provider, false));
+        }
+
+        /**
+         * Installs a provider in place of an existing one only.
+         *
+         * @param key      The provider key.
+         * @param provider The provider.
+         */
+        public void replace(@Nonnull String key, @Nonnull WorldMapManager.MarkerProvider provider) {
+            Entry existing = entries.get(key);
+            if (existing == null || existing.provider != null) {
+                entries.put(key, new Entry(provider, true));
+            }
+        }
+
+        /**
+         * Removes the provider under a key.
+         *
+         * @param key The provider key.
+         */
+        public void remove(@Nonnull String key) {
+            entries.put(key, new Entry(null, false));
+        }
+    }
+
+    private static final class Entry {
+        private final WorldMapManager.MarkerProvider provider;
+        private final boolean replaceOnly;
+
+        private Entry(@Nullable WorldMapManager.MarkerProvider provider, boolean replaceOnly) {
+            this.provider = provider;
+            this.replaceOnly = replaceOnly;
+        }
+    }
+
+    /**
+     * Provider state of one world. Only touched on that world's thread.
+     */
+    private static final class WorldProviders {
+        private final WorldMapManager mapManager;
+        private final Map<String, WorldMapManager.MarkerProvider> originals = new HashMap<>();
+        private final Map<String, WorldMapManager.MarkerProvider> managed = new HashMap<>();
+        private long configVersion = Long.MIN_VALUE;
+        private long revision = Long.MIN_VALUE;
+
+        private WorldProviders(WorldMapManager mapManager) {
+            this.mapManager = mapManager;
+        }
+
+        @Nullable
+        private String findOverwrittenKey(Map<String, WorldMapManager.MarkerProvider> providers) {
+            for (Map.Entry<String, WorldMapManager.MarkerProvider> entry : managed.entrySet()) {
+                if (providers.get(entry.getKey()) != entry.getValue()) {
+                    return entry.getKey();
+                }
+            }
+            return null;
+        }
+
+        private void apply(Map<String, WorldMapManager.MarkerProvider> providers, Plan plan) {
+            for (Map.Entry<String, Entry> planned : plan.entries.entrySet()) {
+                String key = planned.getKey();
+                WorldMapManager.MarkerProvider wanted = planned.getValue().provider;
+                WorldMapManager.MarkerProvider current = providers.get(key);
+                WorldMapManager.MarkerProvider previous = managed.get(key);
+
+                if (current != null && current != wanted && current != previous) {
+                    originals.putIfAbsent(key, current);
+                }
+
+                if (wanted == null) {
+                    if (current != null) {
+                        providers.remove(key);
+                    }
+                    managed.put(key, null);
+                    continue;
+                }
+
+                if (planned.getValue().replaceOnly && current == null && !originals.containsKey(key)) {
+                    managed.remove(key);
+                    continue;
+                }
+
+                if (current != wanted) {
+                    providers.put(key, wanted);
+                }
+                managed.put(key, wanted);
+            }
+
+            List<String> released = new ArrayList<>();
+            for (String key : managed.keySet()) {
+                if (!plan.entries.containsKey(key)) {
+                    released.add(key);
+                }
+            }
+
+            for (String key : released) {
+                WorldMapManager.MarkerProvider ours = managed.remove(key);
+                WorldMapManager.MarkerProvider original = originals.remove(key);
+                WorldMapManager.MarkerProvider current = providers.get(key);
+                if (current != ours && current != null) {
+                    continue;
+                }
+                if (original != null) {
+                    providers.put(key, original);
+                } else if (current != null) {
+                    providers.remove(key);
+                }
+            }
+        }
+    }
+}
@@ -75,11 +75,13 @@ public class PlayerConfigManager {
         }
 
         playerConfigs.put(uuid, config);
+        ViewerPolicyManager.getInstance().invalidate(uuid);
     }
 
     public void savePlayerConfig(UUID uuid) {
         PlayerConfig config = playerConfigs.get(uuid);
         if (config == null) return;
+        ViewerPolicyManager.getInstance().invalidate(uuid);
 
         Path configFile = configDir.resolve(uuid.toString() + ".json");
         try (Writer writer = Files.newBufferedWriter(configFile)) {
@@ -92,6 +94,7 @@ public class PlayerConfigManager {
     public void unloadPlayerConfig(UUID uuid) {
         savePlayerConfig(uuid);
         playerConfigs.remove(uuid);
+        ViewerPolicyManager.getInstance().invalidate(uuid);
     }
 
     public boolean hasPoiPrivacyOverrides() {
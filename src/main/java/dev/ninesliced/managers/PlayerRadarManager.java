@@ -9,16 +9,16 @@ import com.hypixel.hytale.server.core.universe.PlayerRef;
 import com.hypixel.hytale.server.core.universe.world.World;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 import com.hypixel.hytale.server.core.universe.world.worldmap.WorldMapManager;
+import dev.ninesliced.configs.BetterMapConfig;
+import dev.ninesliced.configs.ViewerPolicy;
 import dev.ninesliced.providers.PlayerRadarProvider;
 
 import javax.annotation.Nonnull;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Logger;
 
 /**
@@ -34,7 +34,7 @@ public class PlayerRadarManager {
     private static PlayerRadarManager instance;
 
     private final Set<String> registeredWorlds = new HashSet<>();
-    private final Map<String, List<RadarData>> worldRadarCache = new ConcurrentHashMap<>();
+    private final Map<String, RadarBuffers> worldRadarCache = new ConcurrentHashMap<>();
     private final PlayerRadarProvider radarProvider;
 
     private PlayerRadarManager() {
@@ -63,19 +63,31 @@ public class PlayerRadarManager {
     }
 
     /**
-     * Updates the radar data cache for the given world.
+     * Refreshes the radar snapshot of the given world.
      * Must be called from the main world thread.
+     * <p>
+     * The snapshot that is not currently published is refilled in place, including the
+     * per-viewer player visibility, and then published.
+     * If a slow reader still holds it, the refresh is skipped and retried on the next call.
      *
      * @param world The world to update.
      */
     public void updateRadarData(@Nonnull World world) {
-        List<RadarData> radarDataList = new ArrayList<>();
+        RadarBuffers buffers = worldRadarCache.computeIfAbsent(world.getName(), ignored -> new RadarBuffers());
+        RadarSnapshot back = buffers.back();
+        if (back.isInUse()) {
+            return;
+        }
 
+        BetterMapConfig config = BetterMapConfig.getInstance();
+        back.clear(config.getRadarRange(), config.isRadarEnabled() && config.getRadarRange() >= 0);
         try {
             for (PlayerRef playerRef : world.getPlayerRefs()) {
                 Vector3d pos = null;
                 Vector3f rot = null;
 
+                boolean hidePlayers = false;
+
                 Ref<EntityStore> ref = playerRef.getReference();
                 if (ref != null && ref.isValid()) {
                     TransformComponent tc = ref.getStore().getComponent(ref, TransformComponent.getComponentType());
@@ -83,6 +95,11 @@ public class PlayerRadarManager {
                         pos = tc.getPosition();
                         rot = tc.getRotation();
                     }
+                    Player player = ref.getStore().getComponent(ref, Player.getComponentType());
+                    if (player != null) {
+                        ViewerPolicy policy = ViewerPolicyManager.getInstance().getPolicy(player);
+                        hidePlayers = policy != null && policy.isHidePlayers();
+                    }
                 }
 
                 if (pos == null) {
@@ -94,29 +111,42 @@ public class PlayerRadarManager {
 
                 if (pos == null) continue;
 
-                RadarData data = new RadarData(
-                        playerRef.getUuid().toString(),
-                        playerRef.getUsername(),
-                        new Vector3d(pos.x, pos.y, pos.z),
-                        rot != null ? new Vector3f(rot.x, rot.y, rot.z) : Vector3f.ZERO
-                );
-
-                radarDataList.add(data);
+                if (rot != null) {
+                    back.add(playerRef.getUuid(), playerRef.getUsername(), pos.x, pos.y, pos.z,
+                            rot.x, rot.y, rot.z, rot.getYaw(), hidePlayers);
+                } else {
+                    back.add(playerRef.getUuid(), playerRef.getUsername(), pos.x, pos.y, pos.z,
+                            0.0f, 0.0f, 0.0f, 0.0f, hidePlayers);
+                }
             }
         } catch (Exception _) {}
 
-        worldRadarCache.put(world.getName(), radarDataList);
+        back.seal();
+        buffers.published.set(back);
     }
 
     /**
-     * Gets the cached radar data for a world.
-     * Safe to call from any thread.
+     * Acquires the current radar snapshot of a world for reading.
+     * Safe to call from any thread; the caller must {@link RadarSnapshot#release()} it when done.
      *
      * @param worldName The name of the world.
-     * @return List of radar data.
+     * @return The radar snapshot, empty if none was built yet.
      */
-    public List<RadarData> getRadarData(String worldName) {
-        return worldRadarCache.getOrDefault(worldName, Collections.emptyList());
+    @Nonnull
+    public RadarSnapshot acquireRadarSnapshot(String worldName) {
+        RadarBuffers buffers = worldRadarCache.get(worldName);
+        if (buffers == null) {
+            RadarSnapshot.EMPTY.retain();
+            return RadarSnapshot.EMPTY;
+        }
+        while (true) {
+            RadarSnapshot snapshot = buffers.published.get();
+            snapshot.retain();
+            if (buffers.published.get() == snapshot) {
+                return snapshot;
+            }
+            snapshot.release();
+        }
     }
 
     /**
@@ -191,19 +221,15 @@ public class PlayerRadarManager {
     }
 
     /**
-     * Data class for caching player radar information.
+     * The two reusable radar snapshots of a world and the one currently published.
      */
-    public static class RadarData {
-        public final String uuid;
-        public final String name;
-        public final Vector3d position;
-        public final Vector3f rotation;
-
-        public RadarData(String uuid, String name, Vector3d position, Vector3f rotation) {
-            this.uuid = uuid;
-            this.name = name;
-            this.position = position;
-            this.rotation = rotation;
+    private static final class RadarBuffers {
+        private final RadarSnapshot first = new RadarSnapshot();
+        private final RadarSnapshot second = new RadarSnapshot();
+        private final AtomicReference<RadarSnapshot> published = new AtomicReference<>(RadarSnapshot.EMPTY);
+
+        private RadarSnapshot back() {
+            return published.get() == first ? second : first;
         }
     }
 }
@@ -0,0 +1,307 @@
+package dev.ninesliced.managers;
+
+import dev.ninesliced.utils.ChunkUtil;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.ints.IntComparator;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Radar snapshot of the players in one world, stored as a structure of arrays.
+ * <p>
+ * Players are stored in slots, indexed by UUID for constant-time viewer lookup and
+ * bucketed into a spatial hash grid on the XZ plane whose cells are as large as the
+ * radar range, so a range query only visits the cells around the viewer.
+ * <p>
+ * A visibility bitset per viewer is also computed once per refresh, folding in the radar range
+ * and the viewer's player hide settings, so the native player map filter is a single bit test.
+ * <p>
+ * Snapshots are reused: the {@link PlayerRadarManager} keeps two per world and refills
+ * the one that is not published, in place, growing the arrays only when more players join.
+ * Readers must hold a snapshot acquired from the manager while reading it and
+ * {@link #release()} it after, so it is never refilled under them.
+ */
+public final class RadarSnapshot {
+    static final RadarSnapshot EMPTY = new RadarSnapshot();
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int MIN_CELL_SIZE = 16;
+
+    private final AtomicInteger readers = new AtomicInteger();
+    private final Object2IntOpenHashMap<UUID> slots = new Object2IntOpenHashMap<>();
+    private final Long2IntOpenHashMap cellStarts = new Long2IntOpenHashMap();
+    private final IntComparator byCell = (a, b) -> Long.compare(this.slotCells[a], this.slotCells[b]);
+    private final IntConsumer markVisible = other -> this.visibility[this.fillRow + (other >>> 6)] |= 1L << other;
+
+    private int size;
+    private int cellSize = -1;
+    private int visibilityRange = -1;
+    private int rowWords;
+    private int fillRow;
+    private long[] visibility = new long[0];
+
+    private UUID[] uuids = new UUID[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private double[] x = new double[INITIAL_CAPACITY];
+    private double[] y = new double[INITIAL_CAPACITY];
+    private double[] z = new double[INITIAL_CAPACITY];
+    private float[] rotX = new float[INITIAL_CAPACITY];
+    private float[] rotY = new float[INITIAL_CAPACITY];
+    private float[] rotZ = new float[INITIAL_CAPACITY];
+    private float[] yaw = new float[INITIAL_CAPACITY];
+    private boolean[] hidesPlayers = new boolean[INITIAL_CAPACITY];
+    private long[] slotCells = new long[INITIAL_CAPACITY];
+    private int[] cellSlots = new int[INITIAL_CAPACITY];
+
+    RadarSnapshot() {
+        slots.defaultReturnValue(-1);
+        cellStarts.defaultReturnValue(-1);
+    }
+
+    void retain() {
+        readers.incrementAndGet();
+    }
+
+    /**
+     * Marks the snapshot as no longer read by the caller.
+     */
+    public void release() {
+        readers.decrementAndGet();
+    }
+
+    boolean isInUse() {
+        return readers.get() > 0;
+    }
+
+    /**
+     * Empties the snapshot before refilling it.
+     *
+     * @param radarRange      The configured radar range in blocks, negative for infinite range (no grid).
+     * @param rangeVisibility True if players outside the radar range are hidden from the native player map.
+     */
+    void clear(int radarRange, boolean rangeVisibility) {
+        Arrays.fill(uuids, 0, size, null);
+        Arrays.fill(names, 0, size, null);
+        size = 0;
+        cellSize = radarRange < 0 ? -1 : Math.max(MIN_CELL_SIZE, radarRange);
+        visibilityRange = rangeVisibility ? radarRange : -1;
+        slots.clear();
+        cellStarts.clear();
+    }
+
+    /**
+     * Appends a player to the snapshot, growing the arrays if needed.
+     */
+    void add(@Nonnull UUID uuid, @Nullable String name, double px, double py, double pz,
+             float rx, float ry, float rz, float playerYaw, boolean hidePlayers) {
+        if (size == uuids.length) {
+            grow();
+        }
+        int slot = size++;
+        uuids[slot] = uuid;
+        names[slot] = name;
+        x[slot] = px;
+        y[slot] = py;
+        z[slot] = pz;
+        rotX[slot] = rx;
+        rotY[slot] = ry;
+        rotZ[slot] = rz;
+        yaw[slot] = playerYaw;
+        hidesPlayers[slot] = hidePlayers;
+        slots.put(uuid, slot);
+    }
+
+    /**
+     * Builds the spatial hash grid and the visibility bitsets once all players were added.
+     */
+    void seal() {
+        if (cellSize >= 0 && size > 0) {
+            buildGrid();
+        }
+        buildVisibility();
+    }
+
+    private void buildGrid() {
+        for (int slot = 0; slot < size; slot++) {
+            slotCells[slot] = ChunkUtil.chunkCoordsToIndex(cellCoord(x[slot]), cellCoord(z[slot]));
+            cellSlots[slot] = slot;
+        }
+        IntArrays.quickSort(cellSlots, 0, size, byCell);
+        for (int i = 0; i < size; i++) {
+            long cell = slotCells[cellSlots[i]];
+            if (i == 0 || slotCells[cellSlots[i - 1]] != cell) {
+                cellStarts.put(cell, i);
+            }
+        }
+    }
+
+    private void buildVisibility() {
+        rowWords = (size + 63) >>> 6;
+        int words = size * rowWords;
+        if (visibility.length < words) {
+            visibility = new long[Math.max(words, visibility.length * 2)];
+        } else {
+            Arrays.fill(visibility, 0, words, 0L);
+        }
+
+        for (int viewer = 0; viewer < size; viewer++) {
+            if (hidesPlayers[viewer]) {
+                continue;
+            }
+            fillRow = viewer * rowWords;
+            if (visibilityRange < 0) {
+                Arrays.fill(visibility, fillRow, fillRow + rowWords, -1L);
+            } else {
+                markVisible.accept(viewer);
+                forEachInRange(viewer, visibilityRange, markVisible);
+            }
+        }
+    }
+
+    private void grow() {
+        int capacity = uuids.length * 2;
+        uuids = Arrays.copyOf(uuids, capacity);
+        names = Arrays.copyOf(names, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        z = Arrays.copyOf(z, capacity);
+        rotX = Arrays.copyOf(rotX, capacity);
+        rotY = Arrays.copyOf(rotY, capacity);
+        rotZ = Arrays.copyOf(rotZ, capacity);
+        yaw = Arrays.copyOf(yaw, capacity);
+        hidesPlayers = Arrays.copyOf(hidesPlayers, capacity);
+        slotCells = Arrays.copyOf(slotCells, capacity);
+        cellSlots = Arrays.copyOf(cellSlots, capacity);
+    }
+
+    /**
+     * Gets the number of players in the snapshot.
+     *
+     * @return The player count.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the slot of a player.
+     *
+     * @param uuid The player UUID.
+     * @return The slot, or -1 if the player is not in the snapshot.
+     */
+    public int slotOf(@Nullable UUID uuid) {
+        return uuid != null ? slots.getInt(uuid) : -1;
+    }
+
+    public UUID getUuid(int slot) {
+        return uuids[slot];
+    }
+
+    @Nullable
+    public String getName(int slot) {
+        return names[slot];
+    }
+
+    public double getX(int slot) {
+        return x[slot];
+    }
+
+    public double getY(int slot) {
+        return y[slot];
+    }
+
+    public double getZ(int slot) {
+        return z[slot];
+    }
+
+    public float getRotX(int slot) {
+        return rotX[slot];
+    }
+
+    public float getRotY(int slot) {
+        return rotY[slot];
+    }
+
+    public float getRotZ(int slot) {
+        return rotZ[slot];
+    }
+
+    public float getYaw(int slot) {
+        return yaw[slot];
+    }
+
+    /**
+     * Checks if a viewer may see another player on the native player map.
+     *
+     * @param viewer The viewer's slot.
+     * @param other  The other player's slot.
+     * @return True if the other player is visible to the viewer.
+     */
+    public boolean isVisible(int viewer, int other) {
+        return (visibility[viewer * rowWords + (other >>> 6)] & (1L << other)) != 0L;
+    }
+
+    /**
+     * Gets the squared 3D distance between the players in two slots.
+     *
+     * @param a The first slot.
+     * @param b The second slot.
+     * @return The squared distance in blocks.
+     */
+    public double distanceSquared(int a, int b) {
+        double dx = x[b] - x[a];
+        double dy = y[b] - y[a];
+        double dz = z[b] - z[a];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Visits every other player within range of the player in a slot.
+     *
+     * @param slot    The viewer's slot.
+     * @param range   The range in blocks, negative for infinite range.
+     * @param visitor Called with the slot of each player in range.
+     */
+    public void forEachInRange(int slot, int range, @Nonnull IntConsumer visitor) {
+        int span = range >= 0 && cellSize > 0 ? (range + cellSize - 1) / cellSize : 0;
+        if (range < 0 || cellSize < 0 || (2L * span + 1) * (2L * span + 1) > cellStarts.size()) {
+            for (int other = 0; other < size; other++) {
+                if (other != slot && (range < 0 || distanceSquared(slot, other) <= (double) range * range)) {
+                    visitor.accept(other);
+                }
+            }
+            return;
+        }
+
+        double rangeSquared = (double) range * range;
+        int centerX = cellCoord(x[slot]);
+        int centerZ = cellCoord(z[slot]);
+
+        for (int cellX = centerX - span; cellX <= centerX + span; cellX++) {
+            for (int cellZ = centerZ - span; cellZ <= centerZ + span; cellZ++) {
+                long cell = ChunkUtil.chunkCoordsToIndex(cellX, cellZ);
+                int start = cellStarts.get(cell);
+                if (start < 0) {
+                    continue;
+                }
+                for (int i = start; i < size && slotCells[cellSlots[i]] == cell; i++) {
+                    int other = cellSlots[i];
+                    if (other != slot && distanceSquared(slot, other) <= rangeSquared) {
+                        visitor.accept(other);
+                    }
+                }
+            }
+        }
+    }
+
+    private int cellCoord(double blockCoord) {
+        return (int) Math.floor(blockCoord / cellSize);
+    }
+}
@@ -0,0 +1,175 @@
+package dev.ninesliced.managers;
+
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.entity.entities.Player;
+import com.hypixel.hytale.server.core.universe.world.World;
+import dev.ninesliced.configs.BetterMapConfig;
+import dev.ninesliced.exploration.ExplorationTracker;
+import dev.ninesliced.exploration.RevealedMarkers;
+import dev.ninesliced.utils.HiddenNameMatcher;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongPredicate;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the sets of POIs and warps each player has revealed by exploring.
+ * <p>
+ * Sets are seeded once from the explored chunks and then grown incrementally from the
+ * chunks newly marked while exploring, looked up in the {@link MarkerIndexManager}.
+ * In shared exploration mode a single set per world is kept instead, grown by every player.
+ */
+public class RevealedMarkerManager {
+    private static final Logger LOGGER = Logger.getLogger(RevealedMarkerManager.class.getName());
+    private static RevealedMarkerManager instance;
+
+    private final Map<String, RevealedMarkers> sharedRevealed = new ConcurrentHashMap<>();
+
+    private RevealedMarkerManager() {
+    }
+
+    /**
+     * Gets the singleton instance.
+     *
+     * @return The manager instance.
+     */
+    public static synchronized RevealedMarkerManager getInstance() {
+        if (instance == null) {
+            instance = new RevealedMarkerManager();
+        }
+        return instance;
+    }
+
+    /**
+     * Gets the markers revealed for a viewer, seeding the set first if it is stale.
+     *
+     * @param world  The world.
+     * @param viewer The viewing player.
+     * @param shared True to use the world-wide set of shared exploration mode.
+     * @return The revealed markers, or null if the viewer has no exploration data.
+     */
+    @Nullable
+    public RevealedMarkers getRevealed(@Nonnull World world, @Nonnull Player viewer, boolean shared) {
+        String worldName = world.getName();
+        MarkerIndexManager.WorldIndex index = MarkerIndexManager.getInstance().getIndex(world);
+
+        if (shared) {
+            RevealedMarkers revealed = sharedRevealed.computeIfAbsent(worldName, ignored -> new RevealedMarkers());
+            if (!revealed.isCurrent(worldName, index.getVersion())) {
+                Set<Long> explored = ExplorationManager.getInstance().getAllExploredChunks(worldName);
+                seed(revealed, worldName, index, explored::contains);
+            }
+            return revealed;
+        }
+
+        ExplorationTracker.PlayerExplorationData data = ExplorationTracker.getInstance().getPlayerData(viewer);
+        if (data == null) {
+            return null;
+        }
+        RevealedMarkers revealed = data.getRevealedMarkers();
+        if (!revealed.isCurrent(worldName, index.getVersion())) {
+            seed(revealed, worldName, index, data.getExploredChunks()::isChunkExplored);
+        }
+        return revealed;
+    }
+
+    /**
+     * Reveals the markers located in newly explored chunks and optionally notifies the player.
+     * Sets that were never seeded are left alone; they are built from the explored chunks on first use.
+     *
+     * @param player The exploring player.
+     * @param world  The world.
+     * @param data   The player's exploration data.
+     * @param chunks The chunks marked by this exploration step.
+     */
+    public void onChunksExplored(@Nonnull Player player, @Nonnull World world,
+                                 @Nonnull ExplorationTracker.PlayerExplorationData data, @Nonnull LongSet chunks) {
+        String worldName = world.getName();
+        MarkerIndexManager.WorldIndex index = MarkerIndexManager.getInstance().peekIndex(worldName);
+        if (index == null || chunks.isEmpty()) {
+            return;
+        }
+
+        RevealedMarkers personal = data.getRevealedMarkers();
+        boolean personalCurrent = personal.isCurrent(worldName, index.getVersion());
+        RevealedMarkers shared = sharedRevealed.get(worldName);
+        boolean sharedCurrent = shared != null && shared.isCurrent(worldName, index.getVersion());
+        if (!personalCurrent && !sharedCurrent) {
+            return;
+        }
+
+        BetterMapConfig config = BetterMapConfig.getInstance();
+        boolean notify = config.isNotifyMarkerDiscovery();
+        boolean sharedMode = config.isShareAllExploration();
+
+        LongIterator it = chunks.iterator();
+        while (it.hasNext()) {
+            List<MarkerIndexManager.IndexedMarker> markers = index.getMarkersInChunk(it.nextLong());
+            for (MarkerIndexManager.IndexedMarker marker : markers) {
+                boolean personalNew = personalCurrent && reveal(personal, marker);
+                boolean sharedNew = sharedCurrent && reveal(shared, marker);
+                if (notify && (sharedMode ? sharedNew : personalNew)) {
+                    notifyDiscovery(player, marker);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the shared set of a world so it is rebuilt on next use.
+     *
+     * @param worldName The world name.
+     */
+    public void invalidateShared(@Nonnull String worldName) {
+        RevealedMarkers revealed = sharedRevealed.get(worldName);
+        if (revealed != null) {
+            revealed.invalidate();
+        }
+    }
+
+    private static void seed(RevealedMarkers revealed, String worldName, MarkerIndexManager.WorldIndex index,
+                             LongPredicate isExplored) {
+        revealed.reset(worldName, -1L);
+        for (MarkerIndexManager.IndexedMarker marker : index.getUnpositioned()) {
+            reveal(revealed, marker);
+        }
+        for (Long2ObjectMap.Entry<List<MarkerIndexManager.IndexedMarker>> entry : index.getChunks().long2ObjectEntrySet()) {
+            if (!isExplored.test(entry.getLongKey())) {
+                continue;
+            }
+            for (MarkerIndexManager.IndexedMarker marker : entry.getValue()) {
+                reveal(revealed, marker);
+            }
+        }
+        revealed.markCurrent(index.getVersion());
+    }
+
+    private static boolean reveal(RevealedMarkers revealed, MarkerIndexManager.IndexedMarker marker) {
+        return marker.warp ? revealed.revealWarp(marker.id) : revealed.revealPoi(marker.id);
+    }
+
+    private static void notifyDiscovery(Player player, MarkerIndexManager.IndexedMarker marker) {
+        try {
+            String label = marker.warp ? "warp " + marker.name : displayName(marker.name);
+            player.sendMessage(Message.raw("Discovered " + label));
+        } catch (Exception e) {
+            LOGGER.fine("Failed to send discovery notification: " + e.getMessage());
+        }
+    }
+
+    private static String displayName(@Nullable String name) {
+        if (name == null) {
+            return "a point of interest";
+        }
+        String stripped = HiddenNameMatcher.stripTags(name);
+        return stripped.isEmpty() ? "a point of interest" : stripped;
+    }
+}
@@ -0,0 +1,51 @@
+package dev.ninesliced.managers;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * A waypoint as it is stored on disk.
+ */
+final class StoredWaypoint {
+    @SerializedName("Id")
+    final String id;
+
+    @SerializedName("Name")
+    final String name;
+
+    @SerializedName("Icon")
+    final String icon;
+
+    @SerializedName("X")
+    final double x;
+
+    @SerializedName("Y")
+    final double y;
+
+    @SerializedName("Z")
+    final double z;
+
+    @SerializedName("World")
+    final String world;
+
+    @SerializedName("Shared")
+    final boolean shared;
+
+    @SerializedName("OwnerUuid")
+    final String ownerUuid;
+
+    @SerializedName("OwnerName")
+    final String ownerName;
+
+    StoredWaypoint(String id, String name, String icon, double x, double y, double z, String world, boolean shared, String ownerUuid, String ownerName) {
+        this.id = id;
+        this.name = name;
+        this.icon = icon;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.world = world;
+        this.shared = shared;
+        this.ownerUuid = ownerUuid;
+        this.ownerName = ownerName;
+    }
+}
@@ -0,0 +1,89 @@
+package dev.ninesliced.managers;
+
+import com.hypixel.hytale.server.core.command.system.CommandSender;
+import com.hypixel.hytale.server.core.entity.entities.Player;
+import dev.ninesliced.configs.BetterMapConfig;
+import dev.ninesliced.configs.PlayerConfig;
+import dev.ninesliced.configs.ViewerPolicy;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches one {@link ViewerPolicy} per player so marker providers don't re-derive
+ * config and permission state on every map update.
+ * <p>
+ * A cached policy is rebuilt when the global config version changes, when the player's
+ * config is loaded, saved or unloaded, or after {@link #PERMISSION_TTL_MS} since there is
+ * no notification when permissions change.
+ */
+public class ViewerPolicyManager {
+    private static final long PERMISSION_TTL_MS = 5000L;
+    private static ViewerPolicyManager instance;
+
+    private final Map<UUID, ViewerPolicy> policies = new ConcurrentHashMap<>();
+
+    private ViewerPolicyManager() {
+    }
+
+    /**
+     * Gets the singleton instance.
+     *
+     * @return The manager instance.
+     */
+    public static synchronized ViewerPolicyManager getInstance() {
+        if (instance == null) {
+            instance = new ViewerPolicyManager();
+        }
+        return instance;
+    }
+
+    /**
+     * Gets the current policy for a viewer, rebuilding it if it is stale.
+     *
+     * @param viewer The viewing player.
+     * @return The policy, or null if the player has no UUID.
+     */
+    @Nullable
+    public ViewerPolicy getPolicy(@Nonnull Player viewer) {
+        UUID uuid = ((CommandSender) viewer).getUuid();
+        if (uuid == null) {
+            return null;
+        }
+
+        ViewerPolicy policy = policies.get(uuid);
+        if (policy != null && isFresh(policy)) {
+            return policy;
+        }
+
+        PlayerConfigManager configManager = PlayerConfigManager.getInstance();
+        PlayerConfig playerConfig = configManager != null ? configManager.getPlayerConfig(uuid) : null;
+        policy = ViewerPolicy.compute(viewer, playerConfig);
+        policies.put(uuid, policy);
+        return policy;
+    }
+
+    /**
+     * Drops the cached policy for a player.
+     *
+     * @param uuid The player UUID.
+     */
+    public void invalidate(@Nonnull UUID uuid) {
+        policies.remove(uuid);
+    }
+
+    /**
+     * Drops all cached policies.
+     */
+    public void invalidateAll() {
+        policies.clear();
+    }
+
+    private static boolean isFresh(ViewerPolicy policy) {
+        return policy.getConfigVersion() == BetterMapConfig.getInstance().getVersion()
+            && System.currentTimeMillis() - policy.getCreatedAtMs() < PERMISSION_TTL_MS;
+    }
+}
@@ -0,0 +1,144 @@
+package dev.ninesliced.managers;
+
+import com.google.gson.Gson;
+import com.google.gson.annotations.SerializedName;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * One-time importer for the JSON waypoint files used before the waypoint logs.
+ * <p>
+ * Reads {@code global-pings.json} and every {@code <world>/<uuid>-pings.json}, writes their
+ * waypoints into the world logs and renames each imported file to {@code *.migrated}. A file
+ * that fails to import is left in place and retried on the next start.
+ */
+final class WaypointJsonImporter {
+    private static final Logger LOGGER = Logger.getLogger(WaypointJsonImporter.class.getName());
+    private static final String GLOBAL_FILE_NAME = "global-pings.json";
+    private static final String PLAYER_FILE_SUFFIX = "-pings.json";
+    private static final String MIGRATED_SUFFIX = ".migrated";
+
+    private static final Gson GSON = new Gson();
+
+    private WaypointJsonImporter() {
+    }
+
+    /**
+     * Imports all legacy JSON files found under the data directory.
+     *
+     * @param dataRoot    The waypoint data directory.
+     * @param persistence The persistence to import into.
+     */
+    static void importLegacyFiles(@Nonnull Path dataRoot, @Nonnull WaypointPersistence persistence) {
+        if (!Files.isDirectory(dataRoot)) {
+            return;
+        }
+
+        int files = 0;
+        int waypoints = 0;
+
+        Path globalFile = dataRoot.resolve(GLOBAL_FILE_NAME);
+        if (Files.isRegularFile(globalFile)) {
+            try {
+                waypoints += importGlobal(globalFile, persistence);
+                markMigrated(globalFile);
+                files++;
+            } catch (Exception e) {
+                LOGGER.warning("Failed to import global waypoints from " + globalFile + ": " + e.getMessage());
+            }
+        }
+
+        try (DirectoryStream<Path> worlds = Files.newDirectoryStream(dataRoot, Files::isDirectory)) {
+            for (Path worldDir : worlds) {
+                try (DirectoryStream<Path> playerFiles = Files.newDirectoryStream(worldDir, "*" + PLAYER_FILE_SUFFIX)) {
+                    for (Path playerFile : playerFiles) {
+                        try {
+                            waypoints += importPlayer(worldDir.getFileName().toString(), playerFile, persistence);
+                            markMigrated(playerFile);
+                            files++;
+                        } catch (Exception e) {
+                            LOGGER.warning("Failed to import waypoints from " + playerFile + ": " + e.getMessage());
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warning("Failed to scan " + dataRoot + " for legacy waypoint files: " + e.getMessage());
+        }
+
+        if (files > 0) {
+            LOGGER.info("Imported " + waypoints + " waypoints from " + files + " legacy JSON files");
+        }
+    }
+
+    private static int importGlobal(Path file, WaypointPersistence persistence) throws IOException {
+        GlobalWaypointFile data;
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            data = GSON.fromJson(reader, GlobalWaypointFile.class);
+        }
+        if (data == null || data.waypoints == null) {
+            return 0;
+        }
+
+        Map<String, List<StoredWaypoint>> byWorld = new LinkedHashMap<>();
+        for (StoredWaypoint waypoint : data.waypoints) {
+            if (waypoint == null || waypoint.id == null) continue;
+            String world = waypoint.world != null ? waypoint.world : "";
+            byWorld.computeIfAbsent(world, ignored -> new ArrayList<>()).add(waypoint);
+        }
+
+        int count = 0;
+        for (Map.Entry<String, List<StoredWaypoint>> entry : byWorld.entrySet()) {
+            persistence.importWaypoints(entry.getKey(), WaypointLog.GLOBAL_SCOPE, entry.getValue(), null);
+            count += entry.getValue().size();
+        }
+        return count;
+    }
+
+    private static int importPlayer(String worldName, Path file, WaypointPersistence persistence) throws IOException {
+        String fileName = file.getFileName().toString();
+        UUID playerUuid = UUID.fromString(fileName.substring(0, fileName.length() - PLAYER_FILE_SUFFIX.length()));
+
+        PlayerWaypointFile data;
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            data = GSON.fromJson(reader, PlayerWaypointFile.class);
+        }
+        if (data == null) {
+            return 0;
+        }
+
+        List<StoredWaypoint> waypoints = data.waypoints != null ? Arrays.asList(data.waypoints) : List.of();
+        List<String> lastSentIds = data.lastSentMarkerIds != null ? Arrays.asList(data.lastSentMarkerIds) : null;
+        persistence.importWaypoints(worldName, playerUuid.toString(), waypoints, lastSentIds);
+        return waypoints.size();
+    }
+
+    private static void markMigrated(Path file) throws IOException {
+        Files.move(file, file.resolveSibling(file.getFileName() + MIGRATED_SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static final class PlayerWaypointFile {
+        @SerializedName("Waypoints")
+        private StoredWaypoint[] waypoints;
+        @SerializedName("LastSentMarkerIds")
+        private String[] lastSentMarkerIds;
+    }
+
+    private static final class GlobalWaypointFile {
+        @SerializedName("Waypoints")
+        private StoredWaypoint[] waypoints;
+    }
+}
@@ -0,0 +1,468 @@
+package dev.ninesliced.managers;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only record file holding all waypoints of one world.
+ * <p>
+ * Every change is appended as a single checksummed record: a put, a delete or the personal marker
+ * ids last sent to a player. The file is replayed into an in-memory index on open, so inserts, updates and
+ * deletes never rewrite unrelated records. Once most records are superseded the file is compacted
+ * into a fresh one holding only the live records. Flushes and compactions are forced to disk.
+ * <p>
+ * An incomplete record at the end of the file, e.g. after a crash, is cut off on open. A damaged
+ * record with data after it is never truncated: the file is moved aside for recovery and a fresh
+ * log is written from the records read before it.
+ * <p>
+ * Not thread safe; {@link WaypointPersistence} serializes access to each world's log.
+ */
+final class WaypointLog {
+    private static final Logger LOGGER = Logger.getLogger(WaypointLog.class.getName());
+    private static final int DATA_VERSION = 1;
+    private static final int HEADER_SIZE = 4;
+    private static final int MAX_RECORD_SIZE = 1 << 20;
+    /**
+     * Payload budget of one sent ids record. Lists over it are split across continuation records,
+     * leaving room for the scope and a single maximum length id.
+     */
+    private static final int SENT_IDS_CHUNK_SIZE = MAX_RECORD_SIZE - 3 * 65536;
+    private static final int COMPACT_MIN_RECORDS = 1024;
+
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+    private static final byte OP_SENT_IDS = 3;
+    private static final byte OP_SENT_IDS_MORE = 4;
+
+    /**
+     * Scope of the global waypoints. Personal waypoints are scoped by their owner's UUID.
+     */
+    static final String GLOBAL_SCOPE = "global";
+
+    /**
+     * Prefix of the scope of a waypoint layer, followed by the layer name.
+     */
+    static final String LAYER_SCOPE_PREFIX = "layer:";
+
+    private final Path file;
+    private final Map<String, LinkedHashMap<String, StoredWaypoint>> waypoints = new HashMap<>();
+    private final Map<String, List<String>> sentIds = new HashMap<>();
+    private FileChannel channel;
+    private DataOutputStream out;
+    private long records;
+
+    private WaypointLog(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Opens a log, replaying its records and creating the file if it does not exist.
+     */
+    @Nonnull
+    static WaypointLog open(@Nonnull Path file) throws IOException {
+        WaypointLog log = new WaypointLog(file);
+        Files.createDirectories(file.getParent());
+        if (Files.exists(file) && Files.size(file) >= HEADER_SIZE) {
+            log.replay();
+        } else {
+            log.writeFresh(file);
+            forceDirectory(file.getParent());
+        }
+        log.openForAppend();
+        return log;
+    }
+
+    /**
+     * Gets the waypoints of a scope in insertion order.
+     */
+    @Nonnull
+    Map<String, StoredWaypoint> getWaypoints(@Nonnull String scope) {
+        Map<String, StoredWaypoint> scoped = waypoints.get(scope);
+        return scoped != null ? Collections.unmodifiableMap(scoped) : Collections.emptyMap();
+    }
+
+    /**
+     * Gets the scopes that hold at least one waypoint.
+     */
+    @Nonnull
+    Set<String> getScopes() {
+        Set<String> scopes = new HashSet<>();
+        for (Map.Entry<String, LinkedHashMap<String, StoredWaypoint>> entry : waypoints.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                scopes.add(entry.getKey());
+            }
+        }
+        return scopes;
+    }
+
+    @Nonnull
+    List<String> getSentIds(@Nonnull String scope) {
+        List<String> ids = sentIds.get(scope);
+        return ids != null ? ids : Collections.emptyList();
+    }
+
+    /**
+     * Appends an insert or update of a waypoint. Call {@link #flush()} after a batch.
+     */
+    void put(@Nonnull String scope, @Nonnull StoredWaypoint waypoint) throws IOException {
+        append(encodePut(scope, waypoint));
+        applyPut(scope, waypoint);
+    }
+
+    /**
+     * Appends a delete of a waypoint if the scope holds it.
+     */
+    void delete(@Nonnull String scope, @Nonnull String id) throws IOException {
+        Map<String, StoredWaypoint> scoped = waypoints.get(scope);
+        if (scoped == null || !scoped.containsKey(id)) {
+            return;
+        }
+        append(encode(OP_DELETE, scope, data -> data.writeUTF(id)));
+        applyDelete(scope, id);
+    }
+
+    /**
+     * Appends the personal marker ids last sent to a player if they changed. Long lists are split
+     * into several records so none of them exceeds the record size limit.
+     */
+    void setSentIds(@Nonnull String scope, @Nonnull List<String> ids) throws IOException {
+        if (getSentIds(scope).equals(ids)) {
+            return;
+        }
+        for (byte[] payload : encodeSentIds(scope, ids)) {
+            append(payload);
+        }
+        sentIds.put(scope, new ArrayList<>(ids));
+    }
+
+    /**
+     * Flushes appended records to disk, forcing them to the device, and compacts the file if most
+     * of it is superseded.
+     */
+    void flush() throws IOException {
+        out.flush();
+        channel.force(false);
+        long live = sentIds.size();
+        for (Map<String, StoredWaypoint> scoped : waypoints.values()) {
+            live += scoped.size();
+        }
+        if (records > COMPACT_MIN_RECORDS && records > live * 2) {
+            compact();
+        }
+    }
+
+    void close() {
+        try {
+            out.flush();
+            channel.force(false);
+            out.close();
+        } catch (IOException e) {
+            LOGGER.warning("Failed to close waypoint log " + file + ": " + e.getMessage());
+        }
+    }
+
+    private void replay() throws IOException {
+        long fileSize = Files.size(file);
+        long validLength = HEADER_SIZE;
+        boolean torn = false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int version = in.readInt();
+            if (version != DATA_VERSION) {
+                throw new IOException("Unknown waypoint log version " + version);
+            }
+            CRC32 crc = new CRC32();
+            while (validLength < fileSize) {
+                if (fileSize - validLength < 8) {
+                    torn = true;
+                    break;
+                }
+                int length = in.readInt();
+                int checksum = in.readInt();
+                if (length <= 0 || length > MAX_RECORD_SIZE) {
+                    torn = validLength + 8 == fileSize || (length == 0 && checksum == 0 && onlyZeros(in));
+                    break;
+                }
+                if (validLength + 8L + length > fileSize) {
+                    torn = true;
+                    break;
+                }
+                byte[] payload = in.readNBytes(length);
+                if (payload.length != length) {
+                    torn = true;
+                    break;
+                }
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    torn = validLength + 8L + length == fileSize;
+                    break;
+                }
+                applyRecord(payload);
+                records++;
+                validLength += 8L + payload.length;
+            }
+        }
+
+        if (validLength >= fileSize) {
+            return;
+        }
+        if (torn) {
+            LOGGER.warning("Dropping an incomplete record at the end of " + file);
+            try (FileChannel truncating = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                truncating.truncate(validLength);
+                truncating.force(true);
+            }
+            return;
+        }
+
+        Path damaged = file.resolveSibling(file.getFileName() + ".damaged-" + System.currentTimeMillis());
+        LOGGER.warning("Damaged record at offset " + validLength + " of " + file + "; moved it to " + damaged
+                + " and kept the " + records + " records before it");
+        Files.move(file, damaged);
+        writeFresh(file);
+        forceDirectory(file.getParent());
+    }
+
+    /**
+     * Checks whether the rest of a stream is zero filled, as left by a crash after the file grew
+     * but before its data reached the disk.
+     */
+    private static boolean onlyZeros(DataInputStream in) throws IOException {
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void applyRecord(byte[] payload) throws IOException {
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(payload));
+        byte op = data.readByte();
+        String scope = data.readUTF();
+        switch (op) {
+            case OP_PUT -> applyPut(scope, readWaypoint(data));
+            case OP_DELETE -> applyDelete(scope, data.readUTF());
+            case OP_SENT_IDS -> sentIds.put(scope, readIds(data));
+            case OP_SENT_IDS_MORE -> sentIds.computeIfAbsent(scope, ignored -> new ArrayList<>()).addAll(readIds(data));
+            default -> LOGGER.warning("Skipping unknown waypoint record type " + op + " in " + file);
+        }
+    }
+
+    private void applyPut(String scope, StoredWaypoint waypoint) {
+        waypoints.computeIfAbsent(scope, ignored -> new LinkedHashMap<>()).put(waypoint.id, waypoint);
+    }
+
+    private void applyDelete(String scope, String id) {
+        Map<String, StoredWaypoint> scoped = waypoints.get(scope);
+        if (scoped != null) {
+            scoped.remove(id);
+            if (scoped.isEmpty()) {
+                waypoints.remove(scope);
+            }
+        }
+    }
+
+    private void append(byte[] payload) throws IOException {
+        writeRecord(out, payload);
+        records++;
+    }
+
+    private void compact() throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        out.close();
+        try {
+            writeFresh(temp);
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            forceDirectory(file.getParent());
+        } finally {
+            openForAppend();
+        }
+    }
+
+    /**
+     * Writes the header and every live record to a new file and forces it to disk, resetting the
+     * record count.
+     */
+    private void writeFresh(Path target) throws IOException {
+        long written = 0;
+        try (FileChannel fileChannel = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream fresh = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(fileChannel)));
+            fresh.writeInt(DATA_VERSION);
+            for (Map.Entry<String, LinkedHashMap<String, StoredWaypoint>> scoped : waypoints.entrySet()) {
+                for (StoredWaypoint waypoint : scoped.getValue().values()) {
+                    writeRecord(fresh, encodePut(scoped.getKey(), waypoint));
+                    written++;
+                }
+            }
+            for (Map.Entry<String, List<String>> ids : sentIds.entrySet()) {
+                for (byte[] payload : encodeSentIds(ids.getKey(), ids.getValue())) {
+                    writeRecord(fresh, payload);
+                    written++;
+                }
+            }
+            fresh.flush();
+            fileChannel.force(true);
+        }
+        records = written;
+    }
+
+    private void openForAppend() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+        out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+    }
+
+    /**
+     * Forces a directory entry change, e.g. a rename, to disk where the platform supports it.
+     */
+    private static void forceDirectory(Path directory) {
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException | UnsupportedOperationException ignored) {
+            // Directories cannot be opened as channels on some platforms, e.g. Windows.
+        }
+    }
+
+    private static void writeRecord(DataOutputStream target, byte[] payload) throws IOException {
+        if (payload.length > MAX_RECORD_SIZE) {
+            throw new IOException("Waypoint record of " + payload.length + " bytes exceeds the "
+                    + MAX_RECORD_SIZE + " byte limit");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        target.writeInt(payload.length);
+        target.writeInt((int) crc.getValue());
+        target.write(payload);
+    }
+
+    private static byte[] encodePut(String scope, StoredWaypoint waypoint) throws IOException {
+        return encode(OP_PUT, scope, data -> writeWaypoint(data, waypoint));
+    }
+
+    private static byte[] encode(byte op, String scope, RecordBody body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(96);
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeByte(op);
+        data.writeUTF(scope);
+        body.write(data);
+        data.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writeWaypoint(DataOutputStream data, StoredWaypoint waypoint) throws IOException {
+        data.writeUTF(waypoint.id);
+        writeNullable(data, waypoint.name);
+        writeNullable(data, waypoint.icon);
+        data.writeDouble(waypoint.x);
+        data.writeDouble(waypoint.y);
+        data.writeDouble(waypoint.z);
+        writeNullable(data, waypoint.world);
+        data.writeBoolean(waypoint.shared);
+        writeNullable(data, waypoint.ownerUuid);
+        writeNullable(data, waypoint.ownerName);
+    }
+
+    private static StoredWaypoint readWaypoint(DataInputStream data) throws IOException {
+        String id = data.readUTF();
+        String name = readNullable(data);
+        String icon = readNullable(data);
+        double x = data.readDouble();
+        double y = data.readDouble();
+        double z = data.readDouble();
+        String world = readNullable(data);
+        boolean shared = data.readBoolean();
+        String ownerUuid = readNullable(data);
+        String ownerName = readNullable(data);
+        return new StoredWaypoint(id, name, icon, x, y, z, world, shared, ownerUuid, ownerName);
+    }
+
+    /**
+     * Encodes a sent ids list as one record, or as a first record followed by continuation records
+     * when it does not fit in {@link #SENT_IDS_CHUNK_SIZE}.
+     */
+    private static List<byte[]> encodeSentIds(String scope, List<String> ids) throws IOException {
+        List<byte[]> payloads = new ArrayList<>(1);
+        int from = 0;
+        do {
+            int to = from;
+            long size = 0;
+            while (to < ids.size()) {
+                long idSize = 2L + ids.get(to).length() * 3L;
+                if (to > from && size + idSize > SENT_IDS_CHUNK_SIZE) {
+                    break;
+                }
+                size += idSize;
+                to++;
+            }
+            List<String> chunk = ids.subList(from, to);
+            byte op = payloads.isEmpty() ? OP_SENT_IDS : OP_SENT_IDS_MORE;
+            payloads.add(encode(op, scope, data -> writeIds(data, chunk)));
+            from = to;
+        } while (from < ids.size());
+        return payloads;
+    }
+
+    private static void writeIds(DataOutputStream data, List<String> ids) throws IOException {
+        data.writeInt(ids.size());
+        for (String id : ids) {
+            data.writeUTF(id);
+        }
+    }
+
+    private static List<String> readIds(DataInputStream data) throws IOException {
+        int count = data.readInt();
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(data.readUTF());
+        }
+        return ids;
+    }
+
+    private static void writeNullable(DataOutputStream data, @Nullable String value) throws IOException {
+        data.writeBoolean(value != null);
+        if (value != null) {
+            data.writeUTF(value);
+        }
+    }
+
+    @Nullable
+    private static String readNullable(DataInputStream data) throws IOException {
+        return data.readBoolean() ? data.readUTF() : null;
+    }
+
+    @FunctionalInterface
+    private interface RecordBody {
+        void write(DataOutputStream data) throws IOException;
+    }
+}
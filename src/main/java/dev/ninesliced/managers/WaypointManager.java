@@ -1,56 +1,107 @@
 package dev.ninesliced.managers;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.annotations.SerializedName;
 import com.hypixel.hytale.component.Holder;
 import com.hypixel.hytale.component.Ref;
 import com.hypixel.hytale.protocol.Transform;
-import com.hypixel.hytale.protocol.packets.worldmap.ContextMenuItem;
 import com.hypixel.hytale.protocol.packets.worldmap.MapMarker;
 import com.hypixel.hytale.protocol.packets.worldmap.UpdateWorldMap;
 import com.hypixel.hytale.server.core.command.system.CommandSender;
 import com.hypixel.hytale.server.core.entity.entities.Player;
 import com.hypixel.hytale.server.core.entity.entities.player.data.PlayerWorldData;
 import com.hypixel.hytale.server.core.universe.PlayerRef;
-import com.hypixel.hytale.server.core.universe.Universe;
 import com.hypixel.hytale.server.core.universe.world.World;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
-import com.hypixel.hytale.server.core.util.PositionUtil;
 import dev.ninesliced.configs.BetterMapConfig;
+import dev.ninesliced.configs.PlayerConfig;
 import dev.ninesliced.listeners.ExplorationEventListener;
 import dev.ninesliced.utils.PermissionsUtil;
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.IOException;
-import java.nio.file.Files;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.logging.Logger;
-import java.util.regex.Pattern;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 public class WaypointManager {
     private static final Logger LOGGER = Logger.getLogger(WaypointManager.class.getName());
-    private static final Pattern HTML_TAG_PATTERN = Pattern.compile("<[^>]*>");
-    private static final String GLOBAL_ID_PREFIX = "global_waypoint_";
+    static final String GLOBAL_ID_PREFIX = "global_waypoint_";
+    static final String LAYER_ID_PREFIX = "layer_waypoint_";
+    private static final int MAX_LAYER_NAME_LENGTH = 32;
+    private static final int UUID_LENGTH = 36;
 
-    private static WaypointPersistence persistence;
+    private static WaypointStore store;
+    private static WaypointTransfer transfer;
     private static final Set<String> loadedPlayers = ConcurrentHashMap.newKeySet();
+    private static final Set<String> loadingPlayers = ConcurrentHashMap.newKeySet();
+    private static final Map<String, SentMarkers> sentMarkers = new ConcurrentHashMap<>();
+    private static final Map<String, WaypointNameIndex> nameIndexes = new ConcurrentHashMap<>();
+    private static final Map<String, WaypointSpatialIndex> spatialIndexes = new ConcurrentHashMap<>();
+    private static final WaypointMarkerCache markerCache = new WaypointMarkerCache();
+    private static final Map<String, SharedMarkers> sharedMarkers = new ConcurrentHashMap<>();
+    private static final Map<String, Set<String>> visibleLayers = new ConcurrentHashMap<>();
 
     private WaypointManager() {
     }
 
     public static void initialize(@Nonnull Path configDir) {
-        persistence = new WaypointPersistence(configDir);
+        WaypointPersistence persistence = new WaypointPersistence(configDir);
+        store = new WaypointStore(persistence);
+        transfer = new WaypointTransfer(store, persistence, configDir.resolve("transfers"));
+    }
+
+    /**
+     * Writes all pending waypoint changes to disk and closes the storage. Called on plugin
+     * shutdown, after the executor drained, so no queued write can reopen a closed log.
+     */
+    public static void shutdown() {
+        if (store != null) {
+            store.flushAll();
+        }
+    }
+
+    /**
+     * Imports waypoints from a JSON Lines file in the transfer directory, on the I/O pool.
+     *
+     * @param fileName The file name, relative to the transfer directory.
+     * @param feedback Receives progress and result messages.
+     * @return A future completing when the import finished or failed.
+     */
+    @Nonnull
+    public static CompletableFuture<Void> importWaypoints(@Nonnull String fileName, @Nonnull Consumer<String> feedback) {
+        if (transfer == null) {
+            feedback.accept("Waypoints are not initialized.");
+            return CompletableFuture.completedFuture(null);
+        }
+        return transfer.importFile(fileName, feedback);
+    }
+
+    /**
+     * Exports all waypoints to a JSON Lines file in the transfer directory, on the I/O pool.
+     *
+     * @param fileName The file name, relative to the transfer directory.
+     * @param feedback Receives progress and result messages.
+     * @return A future completing when the export finished or failed.
+     */
+    @Nonnull
+    public static CompletableFuture<Void> exportWaypoints(@Nonnull String fileName, @Nonnull Consumer<String> feedback) {
+        if (transfer == null) {
+            feedback.accept("Waypoints are not initialized.");
+            return CompletableFuture.completedFuture(null);
+        }
+        return transfer.exportFile(fileName, feedback);
     }
 
     @Nullable
@@ -72,25 +123,104 @@ public class WaypointManager {
         ensureLoaded(player, world);
 
         String markerId = (global ? GLOBAL_ID_PREFIX : "waypoint_") + UUID.randomUUID();
-        MapMarker marker = new MapMarker(markerId, name, normalizeIcon(icon), transform, buildContextMenu(player, markerId));
+        MapMarker marker = new MapMarker(markerId, name, normalizeIcon(icon), transform, null);
 
         if (global) {
-            saveGlobalMarker(marker, world, player);
-            invalidatePlayerCache(player, world);
-            if (world.isInThread()) {
-                refreshPlayerMarkers(player);
-            } else {
-                world.execute(() -> refreshPlayerMarkers(player));
-            }
+            saveSharedMarker(WaypointLog.GLOBAL_SCOPE, marker, world, player);
         } else {
             savePersonalMarker(player, world, marker);
-            invalidatePlayerCache(player, world);
+        }
+    }
+
+    /**
+     * Adds a waypoint to a waypoint layer, shared with every member of the layer.
+     *
+     * @param player    The player adding the waypoint. Must be a member of the layer.
+     * @param layer     The layer name.
+     * @param name      The waypoint name.
+     * @param icon      The marker icon.
+     * @param transform The waypoint position.
+     * @return True if the waypoint was added, false if the layer does not exist or the player is not a member.
+     */
+    public static boolean addLayerWaypoint(@Nonnull Player player, @Nonnull String layer, @Nonnull String name,
+                                           @Nonnull String icon, @Nonnull Transform transform) {
+        World world = player.getWorld();
+        if (world == null || !ExplorationEventListener.isTrackedWorld(world)) return false;
+
+        String layerName = normalizeLayerName(layer);
+        if (layerName == null || !getWaypointLayers(player).contains(layerName)) {
+            return false;
+        }
+
+        ensureLoaded(player, world);
+
+        String markerId = LAYER_ID_PREFIX + layerName + "_" + UUID.randomUUID();
+        MapMarker marker = new MapMarker(markerId, name, normalizeIcon(icon), transform, null);
+        return saveSharedMarker(layerScope(layerName), marker, world, player);
+    }
+
+    /**
+     * Gets the configured waypoint layers a player is a member of, whether shown or hidden.
+     *
+     * @param player The player.
+     * @return The layer names, in configuration order.
+     */
+    @Nonnull
+    public static List<String> getWaypointLayers(@Nonnull Player player) {
+        List<String> layers = new ArrayList<>();
+        List<String> configured = BetterMapConfig.getInstance().getWaypointLayers();
+        if (configured == null) {
+            return layers;
+        }
+        for (String raw : configured) {
+            String layer = raw != null ? normalizeLayerName(raw) : null;
+            if (layer != null && !layers.contains(layer) && PermissionsUtil.canUseWaypointLayer(player, layer)) {
+                layers.add(layer);
+            }
+        }
+        return layers;
+    }
+
+    /**
+     * Checks if a player has hidden a waypoint layer from their map.
+     */
+    public static boolean isWaypointLayerHidden(@Nonnull Player player, @Nonnull String layer) {
+        PlayerConfig config = PlayerConfigManager.getInstance().getPlayerConfig(((CommandSender) player).getUuid());
+        return config != null && config.getHiddenWaypointLayers().contains(normalizeLayerName(layer));
+    }
+
+    /**
+     * Shows a hidden waypoint layer on a player's map, or hides a shown one.
+     * The change is remembered in the player's config.
+     *
+     * @param player The player. Must be a member of the layer.
+     * @param layer  The layer name.
+     * @return True if the layer is now shown, false if it is now hidden.
+     */
+    public static boolean toggleWaypointLayer(@Nonnull Player player, @Nonnull String layer) {
+        UUID uuid = ((CommandSender) player).getUuid();
+        PlayerConfig config = PlayerConfigManager.getInstance().getPlayerConfig(uuid);
+        String layerName = normalizeLayerName(layer);
+        if (config == null || layerName == null) {
+            return false;
+        }
+
+        List<String> hidden = config.getHiddenWaypointLayers();
+        boolean shown = hidden.remove(layerName);
+        if (!shown) {
+            hidden.add(layerName);
+        }
+        PlayerConfigManager.getInstance().savePlayerConfig(uuid);
+
+        World world = player.getWorld();
+        if (world != null && ExplorationEventListener.isTrackedWorld(world)) {
             if (world.isInThread()) {
                 refreshPlayerMarkers(player);
             } else {
                 world.execute(() -> refreshPlayerMarkers(player));
             }
         }
+        return shown;
     }
 
     public static boolean removeWaypoint(@Nonnull Player player, @Nonnull String idOrName) {
@@ -99,47 +229,35 @@ public class WaypointManager {
 
         ensureLoaded(player, world);
 
-        MapMarker target = findWaypoint(player, idOrName);
+        WaypointNameIndex index = nameIndex(player, world);
+        MapMarker target = index.find(idOrName);
         if (target == null || target.id == null) {
             return false;
         }
 
-        if (isGlobalId(target.id)) {
-            boolean result = removeGlobalMarker(target.id, world.getName(), player);
-            if (result) {
-                invalidatePlayerCache(player, world);
-                if (world.isInThread()) {
-                    refreshPlayerMarkers(player);
-                } else {
-                    world.execute(() -> refreshPlayerMarkers(player));
-                }
+        String scope = sharedScope(target.id);
+        if (scope != null) {
+            if (!canEditLayerWaypoint(player, target.id)) {
+                return false;
             }
-            return result;
+            return removeSharedMarker(scope, target.id, world, player);
         }
 
-        PlayerWorldData perWorldData = player.getPlayerConfigData().getPerWorldData(world.getName());
-        MapMarker[] currentMarkers = perWorldData.getWorldMapMarkers();
-        if (currentMarkers == null) return false;
+        WaypointStore.PlayerWaypoints personal = personalWaypoints(player, world);
+        if (personal == null) return false;
 
-        List<MapMarker> newMarkerList = new ArrayList<>();
-        boolean found = false;
-
-        for (MapMarker marker : currentMarkers) {
-            boolean match = marker != null && marker.id != null && marker.id.equalsIgnoreCase(target.id);
-            if (!match && marker != null && marker.name != null) {
-                match = stripColorTags(marker.name).equalsIgnoreCase(idOrName);
+        Set<String> removedIds = new HashSet<>();
+        removedIds.add(target.id);
+        for (MapMarker named : index.named(idOrName)) {
+            if (named.id != null && sharedScope(named.id) == null) {
+                removedIds.add(named.id);
             }
-
-            if (match) {
-                found = true;
-                continue;
-            }
-            newMarkerList.add(marker);
         }
+        boolean found = store.update(personal, waypoints ->
+            waypoints.removeIf(waypoint -> waypoint.id != null && removedIds.contains(waypoint.id)));
+        removedIds.forEach(markerCache::evict);
 
         if (found) {
-            persistPersonal(player, world.getName(), newMarkerList);
-            invalidatePlayerCache(player, world);
             if (world.isInThread()) {
                 refreshPlayerMarkers(player);
             } else {
@@ -155,45 +273,55 @@ public class WaypointManager {
 
         ensureLoaded(player, world);
 
-        if (isGlobalId(id)) {
-            boolean result = updateGlobalMarker(id, newName, newIcon, newTransform, world.getName(), player);
-            if (result) {
-                invalidatePlayerCache(player, world);
-                if (world.isInThread()) {
-                    refreshPlayerMarkers(player);
-                } else {
-                    world.execute(() -> refreshPlayerMarkers(player));
-                }
+        String scope = sharedScope(id);
+        if (scope != null) {
+            if (!canEditLayerWaypoint(player, id)) {
+                return false;
             }
-            return result;
+            return updateSharedMarker(scope, id, newName, newIcon, newTransform, world, player);
         }
 
-        PlayerWorldData perWorldData = player.getPlayerConfigData().getPerWorldData(world.getName());
-        MapMarker[] currentMarkers = perWorldData.getWorldMapMarkers();
-        if (currentMarkers == null) return false;
+        WaypointStore.PlayerWaypoints personal = personalWaypoints(player, world);
+        if (personal == null) return false;
 
-        List<MapMarker> rebuilt = new ArrayList<>();
-        boolean found = false;
+        String worldName = world.getName();
+        boolean found = store.update(personal, waypoints -> {
+            for (int i = 0; i < waypoints.size(); i++) {
+                StoredWaypoint waypoint = waypoints.get(i);
+                if (waypoint.id == null || !waypoint.id.equals(id)) continue;
 
-        for (MapMarker m : currentMarkers) {
-            if (m != null && m.id != null && m.id.equals(id)) {
-                found = true;
-                String nameToUse = newName != null ? newName : m.name;
-                String iconToUse = newIcon != null ? normalizeIcon(newIcon) : m.markerImage;
-                Transform transformToUse = newTransform != null ? newTransform : m.transform;
-                String newId = (iconToUse != null && !iconToUse.equals(m.markerImage)) ? ("waypoint_" + UUID.randomUUID()) : m.id;
-                rebuilt.add(new MapMarker(newId, nameToUse, iconToUse, transformToUse, buildContextMenu(player, newId)));
-                continue;
+                String iconToUse = newIcon != null ? normalizeIcon(newIcon) : waypoint.icon;
+                String newId = (iconToUse != null && !iconToUse.equals(waypoint.icon)) ? ("waypoint_" + UUID.randomUUID()) : waypoint.id;
+                double x = waypoint.x;
+                double y = waypoint.y;
+                double z = waypoint.z;
+                if (newTransform != null && newTransform.position != null) {
+                    x = newTransform.position.x;
+                    y = newTransform.position.y;
+                    z = newTransform.position.z;
+                }
+                waypoints.set(i, new StoredWaypoint(
+                    newId,
+                    newName != null ? newName : waypoint.name,
+                    iconToUse,
+                    x,
+                    y,
+                    z,
+                    worldName,
+                    false,
+                    waypoint.ownerUuid,
+                    waypoint.ownerName
+                ));
+                return true;
             }
-            rebuilt.add(m);
-        }
+            return false;
+        });
 
         if (!found) {
             return false;
         }
+        markerCache.evict(id);
 
-        persistPersonal(player, world.getName(), rebuilt);
-        invalidatePlayerCache(player, world);
         if (world.isInThread()) {
             refreshPlayerMarkers(player);
         } else {
@@ -202,23 +330,6 @@ public class WaypointManager {
         return true;
     }
 
-    @Nullable
-    private static ContextMenuItem[] buildContextMenu(@Nonnull Player player, @Nonnull String markerId) {
-        List<ContextMenuItem> menuItems = new ArrayList<>();
-        boolean isGlobal = isGlobalId(markerId);
-        menuItems.add(new ContextMenuItem(isGlobal ? "Global Waypoint" : "Personal Waypoint", ""));
-        if (PermissionsUtil.canTeleport(player)
-            && BetterMapConfig.getInstance().isAllowWaypointTeleports()) {
-            menuItems.add(new ContextMenuItem("Teleport To", "bm waypoint teleport " + markerId));
-        }
-        if (isGlobal) {
-            menuItems.add(new ContextMenuItem("Delete", "bm waypoint removeglobal " + markerId));
-        } else {
-            menuItems.add(new ContextMenuItem("Delete", "bm waypoint remove " + markerId));
-        }
-        return menuItems.isEmpty() ? null : menuItems.toArray(new ContextMenuItem[0]);
-    }
-
     public static MapMarker getWaypoint(@Nonnull Player player, @Nonnull String id) {
         World world = player.getWorld();
         if (world == null || !ExplorationEventListener.isTrackedWorld(world)) return null;
@@ -234,27 +345,123 @@ public class WaypointManager {
         return null;
     }
 
+    /**
+     * Finds a waypoint by exact id, or else by exact name ignoring case and color tags.
+     *
+     * @param player   The player whose waypoints to search.
+     * @param nameOrId The id or name.
+     * @return The waypoint marker, or null if none matches.
+     */
+    @Nullable
     public static MapMarker findWaypoint(@Nonnull Player player, @Nonnull String nameOrId) {
         World world = player.getWorld();
         if (world == null || !ExplorationEventListener.isTrackedWorld(world)) return null;
 
-        ensureLoaded(player, world);
+        return nameIndex(player, world).find(nameOrId);
+    }
 
-        MapMarker[] all = getWaypoints(player);
-        for (MapMarker m : all) {
-            if (m == null) continue;
-            if (m.id != null && m.id.equalsIgnoreCase(nameOrId)) return m;
-            if (m.name != null) {
-                if (m.name.equalsIgnoreCase(nameOrId)) return m;
-                if (stripColorTags(m.name).equalsIgnoreCase(nameOrId)) return m;
-            }
+    /**
+     * Finds the waypoints whose name, or a word in it, starts with a prefix.
+     *
+     * @param player The player whose waypoints to search.
+     * @param prefix The prefix, matched ignoring case and color tags. An empty prefix matches all waypoints.
+     * @param limit  The maximum number of waypoints to return.
+     * @return The matching waypoint markers in list order.
+     */
+    @Nonnull
+    public static List<MapMarker> findWaypointsByPrefix(@Nonnull Player player, @Nonnull String prefix, int limit) {
+        World world = player.getWorld();
+        if (world == null || !ExplorationEventListener.isTrackedWorld(world)) return Collections.emptyList();
+
+        return nameIndex(player, world).prefix(prefix, limit);
+    }
+
+    /**
+     * Resolves a waypoint argument: an exact id or name match wins, otherwise the waypoints
+     * whose name starts with the input are returned, so a unique prefix resolves to one waypoint.
+     *
+     * @param player The player whose waypoints to search.
+     * @param input  The id, name or name prefix.
+     * @param limit  The maximum number of candidates to return.
+     * @return The exact match alone, or the prefix candidates.
+     */
+    @Nonnull
+    public static List<MapMarker> matchWaypoints(@Nonnull Player player, @Nonnull String input, int limit) {
+        World world = player.getWorld();
+        if (world == null || !ExplorationEventListener.isTrackedWorld(world)) return Collections.emptyList();
+
+        WaypointNameIndex index = nameIndex(player, world);
+        MapMarker exact = index.find(input);
+        if (exact != null) {
+            return List.of(exact);
         }
-        return null;
+        return index.prefix(input, limit);
+    }
+
+    /**
+     * Finds the waypoints closest to a position, personal and global alike.
+     *
+     * @param player The player whose waypoints to search.
+     * @param x      The block X.
+     * @param z      The block Z.
+     * @param limit  The maximum number of waypoints to return.
+     * @return The waypoint markers, closest first by horizontal distance.
+     */
+    @Nonnull
+    public static List<MapMarker> findNearestWaypoints(@Nonnull Player player, double x, double z, int limit) {
+        World world = player.getWorld();
+        if (world == null || !ExplorationEventListener.isTrackedWorld(world)) return Collections.emptyList();
+
+        return spatialIndex(player, world).nearest(x, z, limit);
+    }
+
+    /**
+     * Finds the waypoints within a horizontal radius of a position.
+     *
+     * @param player The player whose waypoints to search.
+     * @param x      The block X.
+     * @param z      The block Z.
+     * @param radius The radius in blocks.
+     * @return The waypoint markers, closest first.
+     */
+    @Nonnull
+    public static List<MapMarker> findWaypointsWithin(@Nonnull Player player, double x, double z, double radius) {
+        World world = player.getWorld();
+        if (world == null || !ExplorationEventListener.isTrackedWorld(world)) return Collections.emptyList();
+
+        return spatialIndex(player, world).within(x, z, radius);
+    }
+
+    private static WaypointSpatialIndex spatialIndex(@Nonnull Player player, @Nonnull World world) {
+        MapMarker[] markers = getWaypoints(player);
+        String key = cacheKey(((CommandSender) player).getUuid(), world.getName());
+        WaypointSpatialIndex index = spatialIndexes.get(key);
+        if (index == null || !index.isFor(markers)) {
+            index = new WaypointSpatialIndex(markers != null ? markers : new MapMarker[0]);
+            spatialIndexes.put(key, index);
+        }
+        return index;
+    }
+
+    private static WaypointNameIndex nameIndex(@Nonnull Player player, @Nonnull World world) {
+        MapMarker[] markers = getWaypoints(player);
+        String key = cacheKey(((CommandSender) player).getUuid(), world.getName());
+        WaypointNameIndex index = nameIndexes.get(key);
+        if (index == null || !index.isFor(markers)) {
+            index = new WaypointNameIndex(markers != null ? markers : new MapMarker[0]);
+            nameIndexes.put(key, index);
+        }
+        return index;
     }
 
     private static void refreshPlayerMarkers(@Nonnull Player player) {
         World world = player.getWorld();
         if (world == null || !ExplorationEventListener.isTrackedWorld(world)) return;
+        if (!isLoaded(player, world)) {
+            // The full list is sent once the player's waypoints are loaded.
+            ensureLoaded(player, world);
+            return;
+        }
 
         PlayerWorldData perWorldData = player.getPlayerConfigData().getPerWorldData(world.getName());
         MapMarker[] currentMarkers = perWorldData.getWorldMapMarkers();
@@ -268,30 +475,26 @@ public class WaypointManager {
             }
         }
 
-        List<MapMarker> personal = new ArrayList<>();
-        if (persistence != null) {
-            UUID uuid = ((CommandSender) player).getUuid();
-            List<StoredWaypoint> stored = persistence.loadPlayer(uuid, player.getDisplayName(), world.getName());
-            for (StoredWaypoint waypoint : stored) {
-                MapMarker marker = toMarker(waypoint, player);
-                if (marker != null) {
-                    personal.add(marker);
-                }
-            }
-        }
-
-        List<MapMarker> globals = getGlobalMarkers(world.getName(), player);
-        List<MapMarker> combined = new ArrayList<>(personal);
-        combined.addAll(globals);
-
-        MapMarker[] newMarkers = combined.toArray(new MapMarker[0]);
+        MapMarker[] newMarkers = buildMarkers(player, world);
         perWorldData.setWorldMapMarkers(newMarkers);
 
         sendMarkersToClient(player, newMarkers, oldMarkerIds);
     }
 
+    /**
+     * Checks if a player's waypoints in a world were loaded and sent, without loading them.
+     */
+    static boolean isLoaded(@Nonnull Player player, @Nonnull World world) {
+        return loadedPlayers.contains(cacheKey(((CommandSender) player).getUuid(), world.getName()));
+    }
+
+    /**
+     * Sends a player's full waypoint list once their waypoints in the world are in memory.
+     * If they are not, a load is started on the I/O pool and this returns at once; the load
+     * calls back on the world thread. Never reads storage on the calling thread.
+     */
     private static void ensureLoaded(@Nonnull Player player, @Nonnull World world) {
-        if (persistence == null) {
+        if (store == null) {
             return;
         }
 
@@ -302,25 +505,22 @@ public class WaypointManager {
         UUID uuid = ((CommandSender) player).getUuid();
         String worldName = world.getName();
         String worldCacheKey = cacheKey(uuid, worldName);
+        if (loadedPlayers.contains(worldCacheKey)) {
+            return;
+        }
+        if (store.getLoaded(uuid, worldName) == null || !store.isSharedLoaded(worldName, WaypointLog.GLOBAL_SCOPE)) {
+            requestLoad(player, world);
+            return;
+        }
         if (!loadedPlayers.add(worldCacheKey)) {
             return;
         }
 
-        List<StoredWaypoint> stored = persistence.loadPlayer(uuid, player.getDisplayName(), worldName);
-        List<MapMarker> markers = new ArrayList<>();
-        if (!stored.isEmpty()) {
-            for (StoredWaypoint waypoint : stored) {
-                MapMarker marker = toMarker(waypoint, player);
-                if (marker != null) {
-                    markers.add(marker);
-                }
-            }
-        }
-        markers.addAll(getGlobalMarkers(worldName, player));
+        MapMarker[] newMarkers = buildMarkers(player, world);
 
         PlayerWorldData perWorldData = player.getPlayerConfigData().getPerWorldData(worldName);
         MapMarker[] oldMarkers = perWorldData.getWorldMapMarkers();
-        List<String> oldMarkerIds = new ArrayList<>();
+        Set<String> oldMarkerIds = new LinkedHashSet<>();
         if (oldMarkers != null) {
             for (MapMarker m : oldMarkers) {
                 if (m != null && m.id != null) {
@@ -328,18 +528,36 @@ public class WaypointManager {
                 }
             }
         }
-        
-        List<String> persistedOldIds = persistence.loadLastSentMarkerIds(uuid, worldName);
-        for (String id : persistedOldIds) {
-            if (!oldMarkerIds.contains(id)) {
-                oldMarkerIds.add(id);
-            }
+
+        WaypointStore.PlayerWaypoints personal = personalWaypoints(player, world);
+        if (personal != null) {
+            oldMarkerIds.addAll(personal.getLastSentIds());
         }
-        
-        MapMarker[] newMarkers = markers.toArray(new MapMarker[0]);
+
         perWorldData.setWorldMapMarkers(newMarkers);
-        
-        sendMarkersToClient(player, newMarkers, oldMarkerIds);
+
+        sendMarkersToClient(player, newMarkers, new ArrayList<>(oldMarkerIds));
+    }
+
+    /**
+     * Starts loading a player's waypoints in a world on the I/O pool, unless a load is already
+     * running, and sends them once loaded if the player is still in that world.
+     */
+    private static void requestLoad(@Nonnull Player player, @Nonnull World world) {
+        String key = cacheKey(((CommandSender) player).getUuid(), world.getName());
+        if (!loadingPlayers.add(key)) {
+            return;
+        }
+        store.preload(((CommandSender) player).getUuid(), player.getDisplayName(), world.getName(),
+            visibleScopes(player), () -> {
+                loadingPlayers.remove(key);
+                world.execute(() -> {
+                    World current = player.getWorld();
+                    if (current != null && current.getName().equals(world.getName())) {
+                        ensureLoaded(player, world);
+                    }
+                });
+            });
     }
 
     /**
@@ -350,189 +568,352 @@ public class WaypointManager {
      */
     public static void onPlayerJoin(@Nonnull Player player) {
         World world = player.getWorld();
-        if (world == null || !isTrackedWorld(world)) {
+        if (world != null) {
+            onPlayerJoinWorld(player, world);
+        }
+    }
+
+    /**
+     * Called when a player enters a world, on first join or after a world change. Starts loading
+     * their waypoints in that world in the background, so the first waypoint command or menu
+     * there does not have to wait for storage.
+     *
+     * @param player The player.
+     * @param world  The world the player entered.
+     */
+    public static void onPlayerJoinWorld(@Nonnull Player player, @Nonnull World world) {
+        if (!isTrackedWorld(world)) {
             return;
         }
-        
+
         invalidatePlayerCache(player, world);
-        
-        if (world.isInThread()) {
-            ensureLoaded(player, world);
-        } else {
-            world.execute(() -> ensureLoaded(player, world));
+
+        if (store == null) {
+            return;
+        }
+        store.markOnline(((CommandSender) player).getUuid());
+        requestLoad(player, world);
+    }
+
+    /**
+     * Called when a player disconnects. Writes their pending waypoint changes and drops them from memory.
+     *
+     * @param playerUuid The player UUID.
+     */
+    public static void onPlayerQuit(@Nonnull UUID playerUuid) {
+        loadedPlayers.removeIf(key -> key.startsWith(playerUuid + "|"));
+        sentMarkers.keySet().removeIf(key -> key.startsWith(playerUuid + "|"));
+        markerCache.evictPersonal(playerUuid.toString());
+        nameIndexes.keySet().removeIf(key -> key.startsWith(playerUuid + "|"));
+        spatialIndexes.keySet().removeIf(key -> key.startsWith(playerUuid + "|"));
+        visibleLayers.keySet().removeIf(key -> key.startsWith(playerUuid + "|"));
+        if (store != null) {
+            store.unload(playerUuid);
+        }
+    }
+
+    /**
+     * Builds the full marker list of a player in a world: their personal waypoints, the global
+     * ones and those of the layers they see. Also refreshes the cached set of visible layers
+     * used to pick the recipients of layer changes.
+     */
+    private static MapMarker[] buildMarkers(@Nonnull Player player, @Nonnull World world) {
+        boolean teleport = canTeleportToWaypoints(player);
+        List<MapMarker> markers = getPersonalMarkers(player, world, teleport);
+        markers.addAll(getSharedMarkers(player, world, WaypointLog.GLOBAL_SCOPE, teleport));
+        for (String layer : updateVisibleLayers(player, world)) {
+            markers.addAll(getSharedMarkers(player, world, layerScope(layer), teleport));
         }
+        return markers.toArray(new MapMarker[0]);
     }
 
-    private static List<MapMarker> getGlobalMarkers(@Nonnull String worldName, @Nonnull Player player) {
-        if (persistence == null) {
+    /**
+     * Gets the markers of a shared scope in a world. The marker set is cached per scope and
+     * shared by all viewers in the same menu state until the scope's version changes.
+     * <p>
+     * A scope that is not loaded yet, such as a layer the player just showed, reads as empty;
+     * it is loaded on the I/O pool and the player's markers are refreshed once it is.
+     */
+    private static List<MapMarker> getSharedMarkers(@Nonnull Player player, @Nonnull World world, @Nonnull String scope, boolean teleport) {
+        if (store == null) {
             return Collections.emptyList();
         }
-        List<StoredWaypoint> stored = persistence.loadGlobal();
-        if (stored.isEmpty()) {
+        String worldName = world.getName();
+        if (!store.isSharedLoaded(worldName, scope)) {
+            store.whenSharedLoaded(worldName, scope, () -> world.execute(() -> refreshPlayerMarkers(player)));
             return Collections.emptyList();
         }
-        List<MapMarker> markers = new ArrayList<>();
-        for (StoredWaypoint waypoint : stored) {
-            if (waypoint.world == null || !worldName.equalsIgnoreCase(waypoint.world)) {
-                continue;
-            }
-            MapMarker marker = toMarker(waypoint, player);
-            if (marker != null) {
-                markers.add(marker);
+        String key = scope + "|" + worldName.toLowerCase(Locale.ROOT);
+        long version = store.getSharedVersion(worldName, scope);
+        SharedMarkers cached = sharedMarkers.get(key);
+        if (cached == null || cached.version != version) {
+            cached = new SharedMarkers(version);
+            sharedMarkers.put(key, cached);
+        }
+        return cached.get(store.getShared(worldName, scope), teleport);
+    }
+
+    private static List<String> updateVisibleLayers(@Nonnull Player player, @Nonnull World world) {
+        List<String> layers = getVisibleLayers(player);
+        visibleLayers.put(cacheKey(((CommandSender) player).getUuid(), world.getName()), Set.copyOf(layers));
+        return layers;
+    }
+
+    /**
+     * Gets the layers a player is a member of and has not hidden.
+     */
+    private static List<String> getVisibleLayers(@Nonnull Player player) {
+        List<String> layers = getWaypointLayers(player);
+        if (!layers.isEmpty()) {
+            PlayerConfig config = PlayerConfigManager.getInstance().getPlayerConfig(((CommandSender) player).getUuid());
+            if (config != null) {
+                layers.removeAll(config.getHiddenWaypointLayers());
             }
         }
-        return markers;
+        return layers;
     }
 
+    /**
+     * Gets the shared scopes whose waypoints a player sees: the global one and their visible layers.
+     */
+    private static List<String> visibleScopes(@Nonnull Player player) {
+        List<String> scopes = new ArrayList<>();
+        scopes.add(WaypointLog.GLOBAL_SCOPE);
+        for (String layer : getVisibleLayers(player)) {
+            scopes.add(layerScope(layer));
+        }
+        return scopes;
+    }
+
+    /**
+     * Adds a personal waypoint and refreshes the player's markers. If the player's waypoints are
+     * still loading, the add completes on the I/O pool once they are loaded.
+     */
     private static void savePersonalMarker(@Nonnull Player player, @Nonnull World world, @Nonnull MapMarker marker) {
-        if (persistence == null) return;
-        
+        if (store == null || !ExplorationEventListener.isTrackedWorld(world)) return;
+
         UUID uuid = ((CommandSender) player).getUuid();
-        String worldName = world.getName();
-        List<StoredWaypoint> existing = persistence.loadPlayer(uuid, player.getDisplayName(), worldName);
-        
-        List<MapMarker> newMarkerList = new ArrayList<>();
-        for (StoredWaypoint waypoint : existing) {
-            MapMarker m = toMarker(waypoint, player);
-            if (m != null) {
-                newMarkerList.add(m);
+        StoredWaypoint waypoint = fromMarker(marker, world.getName(), player.getDisplayName(), uuid, false);
+        if (waypoint == null) return;
+
+        store.whenLoaded(uuid, player.getDisplayName(), world.getName(), personal -> {
+            store.update(personal, waypoints -> waypoints.add(waypoint));
+            if (world.isInThread()) {
+                refreshPlayerMarkers(player);
+            } else {
+                world.execute(() -> refreshPlayerMarkers(player));
             }
-        }
-        newMarkerList.add(marker);
+        });
+    }
 
-        persistPersonal(player, worldName, newMarkerList);
+    /**
+     * Gets a player's personal waypoints in a world if they are loaded. Never reads storage.
+     */
+    @Nullable
+    private static WaypointStore.PlayerWaypoints personalWaypoints(@Nonnull Player player, @Nonnull World world) {
+        if (store == null || !ExplorationEventListener.isTrackedWorld(world)) {
+            return null;
+        }
+        return store.getLoaded(((CommandSender) player).getUuid(), world.getName());
     }
 
-    private static void persistPersonal(@Nonnull Player player, @Nonnull String worldName, @Nonnull List<MapMarker> markers) {
-        if (persistence == null || !ExplorationEventListener.isTrackedWorld(player.getWorld())) {
-            return;
+    private static List<MapMarker> getPersonalMarkers(@Nonnull Player player, @Nonnull World world, boolean teleport) {
+        List<MapMarker> markers = new ArrayList<>();
+        WaypointStore.PlayerWaypoints personal = personalWaypoints(player, world);
+        if (personal == null) {
+            return markers;
         }
-        List<StoredWaypoint> stored = new ArrayList<>();
-        for (MapMarker marker : markers) {
-            if (marker == null || marker.id == null) continue;
-            if (isGlobalId(marker.id)) continue;
-            StoredWaypoint waypoint = fromMarker(marker, worldName, player.getDisplayName(), ((CommandSender) player).getUuid(), false);
-            if (waypoint != null) {
-                stored.add(waypoint);
+        for (StoredWaypoint waypoint : personal.getWaypoints()) {
+            MapMarker marker = toMarker(waypoint, teleport);
+            if (marker != null) {
+                markers.add(marker);
             }
         }
-        UUID uuid = ((CommandSender) player).getUuid();
-        List<String> lastSentIds = persistence.loadLastSentMarkerIds(uuid, worldName);
-        persistence.savePlayer(uuid, player.getDisplayName(), worldName, stored, lastSentIds);
+        return markers;
     }
 
-    private static void saveGlobalMarker(@Nonnull MapMarker marker, @Nonnull World world, @Nonnull Player player) {
-        if (persistence == null || !ExplorationEventListener.isTrackedWorld(world)) {
-            return;
+    private static boolean saveSharedMarker(@Nonnull String scope, @Nonnull MapMarker marker, @Nonnull World world, @Nonnull Player player) {
+        if (store == null || !ExplorationEventListener.isTrackedWorld(world)) {
+            return false;
         }
-        List<StoredWaypoint> existing = persistence.loadGlobal();
-        List<StoredWaypoint> mutable = new ArrayList<>(existing);
         StoredWaypoint converted = fromMarker(marker, world.getName(), player.getDisplayName(), ((CommandSender) player).getUuid(), true);
         if (converted == null) {
-            return;
+            return false;
         }
-        mutable.add(converted);
-        persistence.saveGlobal(mutable);
-        world.execute(() -> refreshAllPlayersMarkers(world));
+        // A layer the player has hidden may not be loaded yet; the add then completes on the I/O pool.
+        store.whenSharedLoaded(world.getName(), scope, () -> {
+            long version = store.putShared(world.getName(), scope, null, converted);
+            broadcastSharedChange(world, scope, version, Collections.singletonList(converted), Collections.emptyList(), player);
+        });
+        return true;
     }
 
+    /**
+     * Rebuilds and resends the full waypoint list of every player in a world.
+     *
+     * @param world The world.
+     */
     public static void refreshAllPlayersMarkers(@Nonnull World world) {
         if (world == null || !ExplorationEventListener.isTrackedWorld(world)) {
             return;
         }
 
-        for (PlayerRef playerRef : world.getPlayerRefs()) {
-            Ref<EntityStore> ref = playerRef.getReference();
-            if (ref == null || !ref.isValid()) continue;
-            
-            Player p = ref.getStore().getComponent(ref, Player.getComponentType());
-            if (p == null) continue;
+        WorldJobScheduler.getInstance().submitForPlayers(world, "waypoints", WorldJobScheduler.Priority.NORMAL,
+            (playerRef, p) -> refreshPlayerMarkers(p));
+    }
 
-            invalidatePlayerCache(p, world);
-            refreshPlayerMarkers(p);
+    private static boolean removeSharedMarker(@Nonnull String scope, @Nonnull String markerId, @Nonnull World world, @Nonnull Player player) {
+        if (store == null) {
+            return false;
         }
+        long version = store.removeShared(world.getName(), scope, markerId);
+        if (version < 0) {
+            return false;
+        }
+        markerCache.evict(markerId);
+        broadcastSharedChange(world, scope, version, Collections.emptyList(), Collections.singletonList(markerId), player);
+        return true;
     }
 
-    private static boolean removeGlobalMarker(@Nonnull String markerId, @Nonnull String worldName, @Nonnull Player player) {
-        if (persistence == null) {
+    private static boolean updateSharedMarker(@Nonnull String scope, @Nonnull String markerId, @Nullable String newName, @Nullable String newIcon, @Nullable Transform newTransform, @Nonnull World world, @Nonnull Player player) {
+        if (store == null) {
             return false;
         }
-        List<StoredWaypoint> existing = persistence.loadGlobal();
-        List<StoredWaypoint> updated = new ArrayList<>();
-        boolean found = false;
-        for (StoredWaypoint waypoint : existing) {
-            if (waypoint.id != null && waypoint.id.equals(markerId)) {
-                found = true;
-                continue;
-            }
-            updated.add(waypoint);
+        String worldName = world.getName();
+        StoredWaypoint waypoint = store.getSharedWaypoint(worldName, scope, markerId);
+        if (waypoint == null) {
+            return false;
         }
-        if (found) {
-            persistence.saveGlobal(updated);
-            World world = Universe.get().getWorld(worldName);
-            if (world != null) {
-                world.execute(() -> refreshAllPlayersMarkers(world));
-            }
+
+        String iconToUse = newIcon != null ? normalizeIcon(newIcon) : waypoint.icon;
+
+        String newId = waypoint.id;
+        if (iconToUse != null && !iconToUse.equals(waypoint.icon)) {
+            newId = WaypointLog.GLOBAL_SCOPE.equals(scope)
+                ? GLOBAL_ID_PREFIX + UUID.randomUUID()
+                : LAYER_ID_PREFIX + scope.substring(WaypointLog.LAYER_SCOPE_PREFIX.length()) + "_" + UUID.randomUUID();
         }
-        return found;
-    }
 
-    private static boolean updateGlobalMarker(@Nonnull String markerId, @Nullable String newName, @Nullable String newIcon, @Nullable Transform newTransform, @Nonnull String worldName, @Nonnull Player actor) {
-        if (persistence == null) {
+        double x = waypoint.x;
+        double y = waypoint.y;
+        double z = waypoint.z;
+        if (newTransform != null && newTransform.position != null) {
+            x = newTransform.position.x;
+            y = newTransform.position.y;
+            z = newTransform.position.z;
+        }
+        StoredWaypoint updated = new StoredWaypoint(
+            newId,
+            newName != null ? newName : waypoint.name,
+            iconToUse,
+            x,
+            y,
+            z,
+            worldName,
+            true,
+            waypoint.ownerUuid,
+            waypoint.ownerName
+        );
+
+        long version = store.putShared(worldName, scope, markerId, updated);
+        if (version < 0) {
             return false;
         }
-        List<StoredWaypoint> existing = persistence.loadGlobal();
-        boolean found = false;
-        List<StoredWaypoint> rebuilt = new ArrayList<>();
-        for (StoredWaypoint waypoint : existing) {
-            if (waypoint.id != null && waypoint.id.equals(markerId)) {
-                found = true;
-                String iconToUse = newIcon != null ? normalizeIcon(newIcon) : waypoint.icon;
-                
-                String newId = waypoint.id;
-                if (iconToUse != null && !iconToUse.equals(waypoint.icon)) {
-                    newId = GLOBAL_ID_PREFIX + UUID.randomUUID();
-                }
+        if (!newId.equals(markerId)) {
+            markerCache.evict(markerId);
+        }
+        List<String> removedIds = newId.equals(markerId) ? Collections.emptyList() : Collections.singletonList(markerId);
+        broadcastSharedChange(world, scope, version, Collections.singletonList(updated), removedIds, player);
+        return true;
+    }
 
-                double x = waypoint.x;
-                double y = waypoint.y;
-                double z = waypoint.z;
-                if (newTransform != null && newTransform.position != null) {
-                    x = newTransform.position.x;
-                    y = newTransform.position.y;
-                    z = newTransform.position.z;
-                }
-                StoredWaypoint updated = new StoredWaypoint(
-                    newId,
-                    newName != null ? newName : waypoint.name,
-                    iconToUse,
-                    x,
-                    y,
-                    z,
-                    worldName,
-                    true,
-                    waypoint.ownerUuid,
-                    waypoint.ownerName
-                );
-                rebuilt.add(updated);
-            } else {
-                rebuilt.add(waypoint);
+    /**
+     * Sends a change of a world's shared waypoints to the players in that world who see them:
+     * everyone for global waypoints, and only the members showing the layer for a layer.
+     * Only the added or updated markers and the removed ids are sent, not the full list.
+     * <p>
+     * On the world thread, the acting player gets the change right away, so a menu refreshed
+     * right after the change already lists it. The other viewers are updated by queued jobs.
+     *
+     * @param actor The player who made the change, or null.
+     */
+    private static void broadcastSharedChange(@Nonnull World world, @Nonnull String scope, long version,
+                                              @Nonnull List<StoredWaypoint> upserted, @Nonnull List<String> removedIds,
+                                              @Nullable Player actor) {
+        if (version < 0) {
+            return;
+        }
+        String worldName = world.getName();
+        Predicate<UUID> viewers;
+        if (WaypointLog.GLOBAL_SCOPE.equals(scope)) {
+            viewers = uuid -> true;
+        } else {
+            String layer = scope.substring(WaypointLog.LAYER_SCOPE_PREFIX.length());
+            viewers = uuid -> {
+                Set<String> layers = visibleLayers.get(cacheKey(uuid, worldName));
+                return layers != null && layers.contains(layer);
+            };
+        }
+        UUID applied = null;
+        if (actor != null && world.isInThread() && actor.getWorld() == world) {
+            applied = ((CommandSender) actor).getUuid();
+            if (viewers.test(applied)) {
+                applySharedChange(actor, world, upserted, removedIds);
             }
         }
-        if (found) {
-            persistence.saveGlobal(rebuilt);
-            World world = Universe.get().getWorld(worldName);
-            if (world != null) {
-                world.execute(() -> refreshAllPlayersMarkers(world));
+        UUID skipped = applied;
+        Predicate<UUID> recipients = skipped == null ? viewers : uuid -> !uuid.equals(skipped) && viewers.test(uuid);
+        Runnable submit = () -> WorldJobScheduler.getInstance().submitForPlayers(world,
+            "waypoints:" + scope + ":" + version, WorldJobScheduler.Priority.NORMAL, recipients,
+            (playerRef, p) -> applySharedChange(p, world, upserted, removedIds));
+        if (world.isInThread()) {
+            submit.run();
+        } else {
+            world.execute(submit);
+        }
+    }
+
+    /**
+     * Applies a shared change to one player's markers. Only the changed markers are looked up,
+     * and only they and the removed ids are sent; the other markers are carried over as they are.
+     */
+    private static void applySharedChange(@Nonnull Player player, @Nonnull World world,
+                                          @Nonnull List<StoredWaypoint> upserted, @Nonnull List<String> removedIds) {
+        UUID uuid = ((CommandSender) player).getUuid();
+        if (!loadedPlayers.contains(cacheKey(uuid, world.getName()))) {
+            // The full list is sent once the player's waypoints are loaded.
+            return;
+        }
+
+        boolean teleport = canTeleportToWaypoints(player);
+        List<MapMarker> changed = new ArrayList<>(upserted.size());
+        Map<String, MapMarker> unplaced = new HashMap<>();
+        for (StoredWaypoint waypoint : upserted) {
+            MapMarker marker = toMarker(waypoint, teleport);
+            changed.add(marker);
+            unplaced.put(marker.id, marker);
+        }
+        Set<String> removed = removedIds.isEmpty() ? Collections.emptySet() : new HashSet<>(removedIds);
+
+        PlayerWorldData perWorldData = player.getPlayerConfigData().getPerWorldData(world.getName());
+        MapMarker[] currentMarkers = perWorldData.getWorldMapMarkers();
+        List<MapMarker> next = new ArrayList<>((currentMarkers != null ? currentMarkers.length : 0) + changed.size());
+        if (currentMarkers != null) {
+            for (MapMarker m : currentMarkers) {
+                if (m == null || m.id == null || removed.contains(m.id)) continue;
+                MapMarker replacement = unplaced.remove(m.id);
+                next.add(replacement != null ? replacement : m);
             }
         }
-        return found;
+        next.addAll(unplaced.values());
+        MapMarker[] newMarkers = next.toArray(new MapMarker[0]);
+        perWorldData.setWorldMapMarkers(newMarkers);
+
+        sendMarkerChanges(player, newMarkers, changed, removedIds);
     }
 
-    private static MapMarker toMarker(@Nonnull StoredWaypoint waypoint, @Nonnull Player player) {
-        Transform transform = PositionUtil.toTransformPacket(new com.hypixel.hytale.math.vector.Transform(waypoint.x, waypoint.y, waypoint.z));
-        ContextMenuItem[] menu = buildContextMenu(player, waypoint.id);
-        return new MapMarker(waypoint.id, waypoint.name, normalizeIcon(waypoint.icon), transform, menu);
+    private static MapMarker toMarker(@Nonnull StoredWaypoint waypoint, boolean teleport) {
+        return markerCache.get(waypoint, teleport);
     }
 
     private static StoredWaypoint fromMarker(@Nonnull MapMarker marker, @Nonnull String worldName, @Nonnull String ownerName, @Nonnull UUID ownerUuid, boolean shared) {
@@ -553,7 +934,7 @@ public class WaypointManager {
         );
     }
 
-    private static String normalizeIcon(@Nullable String icon) {
+    static String normalizeIcon(@Nullable String icon) {
         if (icon == null || icon.isEmpty()) {
             return "Coordinate.png";
         }
@@ -567,9 +948,71 @@ public class WaypointManager {
         return id.startsWith(GLOBAL_ID_PREFIX);
     }
 
-    private static String stripColorTags(String input) {
-        if (input == null) return "";
-        return HTML_TAG_PATTERN.matcher(input).replaceAll("");
+    /**
+     * Gets the layer of a layer waypoint id. Layer ids are the prefix, the layer name and a UUID.
+     *
+     * @param id The waypoint id.
+     * @return The layer name, or null if the id is not a layer waypoint id.
+     */
+    @Nullable
+    public static String getLayerOfId(@Nonnull String id) {
+        if (!id.startsWith(LAYER_ID_PREFIX) || id.length() < LAYER_ID_PREFIX.length() + UUID_LENGTH + 2) {
+            return null;
+        }
+        return id.substring(LAYER_ID_PREFIX.length(), id.length() - UUID_LENGTH - 1);
+    }
+
+    public static boolean isLayerId(@Nonnull String id) {
+        return getLayerOfId(id) != null;
+    }
+
+    /**
+     * Gets the storage scope of a shared waypoint id.
+     *
+     * @return The global or layer scope, or null for a personal waypoint.
+     */
+    @Nullable
+    static String sharedScope(@Nonnull String id) {
+        if (isGlobalId(id)) {
+            return WaypointLog.GLOBAL_SCOPE;
+        }
+        String layer = getLayerOfId(id);
+        return layer != null ? layerScope(layer) : null;
+    }
+
+    private static String layerScope(@Nonnull String layer) {
+        return WaypointLog.LAYER_SCOPE_PREFIX + layer;
+    }
+
+    /**
+     * Normalizes a layer name to lower case.
+     *
+     * @return The name, or null if it is empty, too long or has characters other than letters, digits, '_' and '-'.
+     */
+    @Nullable
+    static String normalizeLayerName(@Nullable String layer) {
+        if (layer == null) {
+            return null;
+        }
+        String name = layer.trim().toLowerCase(Locale.ROOT);
+        if (name.isEmpty() || name.length() > MAX_LAYER_NAME_LENGTH) {
+            return null;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!(c >= 'a' && c <= 'z') && !(c >= '0' && c <= '9') && c != '_' && c != '-') {
+                return null;
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Layer waypoints can only be edited by the layer's members; other waypoints are checked by the callers.
+     */
+    private static boolean canEditLayerWaypoint(@Nonnull Player player, @Nonnull String id) {
+        String layer = getLayerOfId(id);
+        return layer == null || PermissionsUtil.canUseWaypointLayer(player, layer);
     }
 
     public static boolean isTrackedWorld(@Nullable World world) {
@@ -583,60 +1026,78 @@ public class WaypointManager {
     private static void invalidatePlayerCache(@Nonnull Player player, @Nonnull World world) {
         UUID uuid = ((CommandSender) player).getUuid();
         loadedPlayers.remove(cacheKey(uuid, world.getName()));
+        sentMarkers.remove(cacheKey(uuid, world.getName()));
+        nameIndexes.remove(cacheKey(uuid, world.getName()));
+        spatialIndexes.remove(cacheKey(uuid, world.getName()));
+        visibleLayers.remove(cacheKey(uuid, world.getName()));
     }
 
     /**
-     * Sends a full marker update to the client using the UpdateWorldMap packet.
-     * Removes markers that no longer exist and adds/updates the current markers.
-     * Also saves the sent marker IDs to persistence for handling server restarts.
+     * Sends the player's waypoint markers to the client using the UpdateWorldMap packet.
+     * <p>
+     * The markers last sent to each player in each world are remembered by id. Markers come from
+     * {@link WaypointMarkerCache}, which builds a new instance whenever a waypoint or the viewer's
+     * menu state changes, so a marker is new or changed exactly when its instance differs from the
+     * one last sent. Only those markers and the ids that disappeared are sent. The first send after
+     * a join has no such state and falls back to a full resync, also removing the given old ids.
+     * The sent personal marker ids are recorded in the waypoint store for handling server restarts.
+     * Global and layer ids are left out: they are the same for every player in a world, so one shared
+     * change would otherwise rewrite the record of every player, and the join resync recomputes them.
      */
     private static void sendMarkersToClient(@Nonnull Player player, @Nonnull MapMarker[] markers, @Nonnull List<String> oldMarkerIds) {
         World world = player.getWorld();
         if (world == null) return;
-        
+
         Runnable sendTask = () -> {
             try {
-                Ref<EntityStore> ref = player.getReference();
-                if (ref == null || !ref.isValid()) {
-                    return;
-                }
-                PlayerRef playerRef = ref.getStore().getComponent(ref, PlayerRef.getComponentType());
-                if (playerRef == null) {
-                    return;
-                }
+                String key = cacheKey(((CommandSender) player).getUuid(), world.getName());
+                SentMarkers previous = sentMarkers.get(key);
 
-                Set<String> newMarkerIds = new java.util.HashSet<>();
+                SentMarkers current = new SentMarkers(markers.length);
+                List<MapMarker> changed = new ArrayList<>();
+                List<String> personalIds = new ArrayList<>();
                 for (MapMarker m : markers) {
-                    if (m != null && m.id != null) {
-                        newMarkerIds.add(m.id);
+                    if (m == null || m.id == null) continue;
+                    current.markers.put(m.id, m);
+                    if (sharedScope(m.id) == null) {
+                        personalIds.add(m.id);
+                    }
+                    if (previous == null || previous.markers.get(m.id) != m) {
+                        changed.add(m);
                     }
                 }
 
                 List<String> idsToRemove = new ArrayList<>();
-                for (String oldId : oldMarkerIds) {
-                    if (!newMarkerIds.contains(oldId)) {
-                        idsToRemove.add(oldId);
+                Iterable<String> sentIds = previous != null ? previous.markers.keySet() : oldMarkerIds;
+                for (String sentId : sentIds) {
+                    if (!current.markers.containsKey(sentId)) {
+                        idsToRemove.add(sentId);
                     }
                 }
 
+                if (previous != null && changed.isEmpty() && idsToRemove.isEmpty()) {
+                    return;
+                }
+
                 UpdateWorldMap packet = new UpdateWorldMap(
                     null,
-                    markers,
+                    changed.isEmpty() ? null : changed.toArray(new MapMarker[0]),
                     idsToRemove.isEmpty() ? null : idsToRemove.toArray(new String[0])
                 );
-                playerRef.getPacketHandler().write(packet);
-                
-                if (persistence != null) {
-                    UUID uuid = ((CommandSender) player).getUuid();
-                    String worldName = world.getName();
-                    List<StoredWaypoint> personalWaypoints = persistence.loadPlayer(uuid, player.getDisplayName(), worldName);
-                    persistence.savePlayer(uuid, player.getDisplayName(), worldName, personalWaypoints, new ArrayList<>(newMarkerIds));
+                if (!writePacket(player, packet)) {
+                    return;
+                }
+                sentMarkers.put(key, current);
+
+                WaypointStore.PlayerWaypoints personal = personalWaypoints(player, world);
+                if (personal != null) {
+                    store.setLastSentIds(personal, personalIds);
                 }
             } catch (Exception e) {
                 LOGGER.warning("Failed to send markers to client for " + player.getDisplayName() + ": " + e.getMessage());
             }
         };
-        
+
         if (world.isInThread()) {
             sendTask.run();
         } else {
@@ -644,180 +1105,127 @@ public class WaypointManager {
         }
     }
 
-    private static final class WaypointPersistence {
-        private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
-        private final Path dataRoot;
-        private final Path globalFile;
-
-        WaypointPersistence(@Nonnull Path baseDir) {
-            this.dataRoot = baseDir.resolve("data");
-            this.globalFile = this.dataRoot.resolve("global-pings.json");
-        }
+    /**
+     * Sends a known set of changed markers and removed ids, updating the markers last sent in place.
+     * Used for shared changes, which never touch personal ids. Falls back to
+     * {@link #sendMarkersToClient} when nothing was sent to the player in this world yet.
+     *
+     * @param markers    The player's full marker list after the change.
+     * @param changed    The added or updated markers.
+     * @param removedIds The removed ids.
+     */
+    private static void sendMarkerChanges(@Nonnull Player player, @Nonnull MapMarker[] markers,
+                                          @Nonnull List<MapMarker> changed, @Nonnull List<String> removedIds) {
+        World world = player.getWorld();
+        if (world == null) return;
 
-        List<StoredWaypoint> loadPlayer(@Nonnull UUID playerUuid, @Nonnull String playerName, @Nonnull String worldName) {
+        Runnable sendTask = () -> {
             try {
-                Path dir = dataRoot.resolve(worldName);
-                if (!Files.exists(dir)) {
-                    return Collections.emptyList();
-                }
-                Path file = dir.resolve(playerUuid + "-pings.json");
-                if (!Files.exists(file)) {
-                    return Collections.emptyList();
-                }
-                try (BufferedReader reader = Files.newBufferedReader(file)) {
-                    PlayerWaypointFile data = gson.fromJson(reader, PlayerWaypointFile.class);
-                    if (data == null || data.waypoints == null) {
-                        return Collections.emptyList();
-                    }
-                    return new ArrayList<>(Arrays.asList(data.waypoints));
+                SentMarkers sent = sentMarkers.get(cacheKey(((CommandSender) player).getUuid(), world.getName()));
+                if (sent == null) {
+                    sendMarkersToClient(player, markers, removedIds);
+                    return;
                 }
-            } catch (Exception e) {
-                LOGGER.warning("Failed to load waypoints for " + playerName + ": " + e.getMessage());
-                return Collections.emptyList();
-            }
-        }
 
-        List<String> loadLastSentMarkerIds(@Nonnull UUID playerUuid, @Nonnull String worldName) {
-            try {
-                Path dir = dataRoot.resolve(worldName);
-                if (!Files.exists(dir)) {
-                    return Collections.emptyList();
-                }
-                Path file = dir.resolve(playerUuid + "-pings.json");
-                if (!Files.exists(file)) {
-                    return Collections.emptyList();
+                List<MapMarker> toSend = new ArrayList<>(changed.size());
+                Set<String> changedIds = new HashSet<>();
+                for (MapMarker m : changed) {
+                    changedIds.add(m.id);
+                    if (sent.markers.get(m.id) != m) {
+                        toSend.add(m);
+                    }
                 }
-                try (BufferedReader reader = Files.newBufferedReader(file)) {
-                    PlayerWaypointFile data = gson.fromJson(reader, PlayerWaypointFile.class);
-                    if (data == null || data.lastSentMarkerIds == null) {
-                        return Collections.emptyList();
+                List<String> idsToRemove = new ArrayList<>(removedIds.size());
+                for (String removedId : removedIds) {
+                    if (!changedIds.contains(removedId) && sent.markers.containsKey(removedId)) {
+                        idsToRemove.add(removedId);
                     }
-                    return new ArrayList<>(Arrays.asList(data.lastSentMarkerIds));
                 }
-            } catch (Exception e) {
-                return Collections.emptyList();
-            }
-        }
+                if (toSend.isEmpty() && idsToRemove.isEmpty()) {
+                    return;
+                }
 
-        void savePlayer(@Nonnull UUID playerUuid, @Nonnull String playerName, @Nonnull String worldName, @Nonnull List<StoredWaypoint> waypoints, @Nonnull List<String> lastSentMarkerIds) {
-            try {
-                Path dir = dataRoot.resolve(worldName);
-                Files.createDirectories(dir);
-                Path file = dir.resolve(playerUuid + "-pings.json");
-                PlayerWaypointFile data = new PlayerWaypointFile(
-                    playerUuid.toString(), 
-                    playerName, 
-                    waypoints.toArray(new StoredWaypoint[0]),
-                    lastSentMarkerIds.toArray(new String[0])
+                UpdateWorldMap packet = new UpdateWorldMap(
+                    null,
+                    toSend.isEmpty() ? null : toSend.toArray(new MapMarker[0]),
+                    idsToRemove.isEmpty() ? null : idsToRemove.toArray(new String[0])
                 );
-                try (BufferedWriter writer = Files.newBufferedWriter(file)) {
-                    gson.toJson(data, writer);
+                if (!writePacket(player, packet)) {
+                    return;
                 }
-            } catch (IOException e) {
-                LOGGER.warning("Failed to save waypoints for " + playerName + ": " + e.getMessage());
-            }
-        }
-
-        List<StoredWaypoint> loadGlobal() {
-            try {
-                if (!Files.exists(globalFile)) {
-                    return new ArrayList<>();
+                for (MapMarker m : toSend) {
+                    sent.markers.put(m.id, m);
                 }
-                try (BufferedReader reader = Files.newBufferedReader(globalFile)) {
-                    GlobalWaypointFile data = gson.fromJson(reader, GlobalWaypointFile.class);
-                    if (data == null || data.waypoints == null) {
-                        return new ArrayList<>();
-                    }
-                    return new ArrayList<>(Arrays.asList(data.waypoints));
+                for (String removedId : idsToRemove) {
+                    sent.markers.remove(removedId);
                 }
             } catch (Exception e) {
-                LOGGER.warning("Failed to load global waypoints: " + e.getMessage());
-                return new ArrayList<>();
+                LOGGER.warning("Failed to send marker changes to client for " + player.getDisplayName() + ": " + e.getMessage());
             }
-        }
+        };
 
-        void saveGlobal(@Nonnull List<StoredWaypoint> waypoints) {
-            try {
-                Files.createDirectories(dataRoot);
-                GlobalWaypointFile data = new GlobalWaypointFile(waypoints.toArray(new StoredWaypoint[0]));
-                try (BufferedWriter writer = Files.newBufferedWriter(globalFile)) {
-                    gson.toJson(data, writer);
-                }
-            } catch (IOException e) {
-                LOGGER.warning("Failed to save global waypoints: " + e.getMessage());
-            }
+        if (world.isInThread()) {
+            sendTask.run();
+        } else {
+            world.execute(sendTask);
         }
     }
 
-    private static final class StoredWaypoint {
-        @SerializedName("Id")
-        private final String id;
-
-        @SerializedName("Name")
-        private final String name;
-
-        @SerializedName("Icon")
-        private final String icon;
-
-        @SerializedName("X")
-        private final double x;
-
-        @SerializedName("Y")
-        private final double y;
-
-        @SerializedName("Z")
-        private final double z;
-
-        @SerializedName("World")
-        private final String world;
-
-        @SerializedName("Shared")
-        private final boolean shared;
-
-        @SerializedName("OwnerUuid")
-        private final String ownerUuid;
-
-        @SerializedName("OwnerName")
-        private final String ownerName;
+    private static boolean canTeleportToWaypoints(@Nonnull Player player) {
+        return PermissionsUtil.canTeleport(player) && BetterMapConfig.getInstance().isAllowWaypointTeleports();
+    }
 
-        StoredWaypoint(String id, String name, String icon, double x, double y, double z, String world, boolean shared, String ownerUuid, String ownerName) {
-            this.id = id;
-            this.name = name;
-            this.icon = icon;
-            this.x = x;
-            this.y = y;
-            this.z = z;
-            this.world = world;
-            this.shared = shared;
-            this.ownerUuid = ownerUuid != null ? ownerUuid.toString() : null;
-            this.ownerName = ownerName;
+    private static boolean writePacket(@Nonnull Player player, @Nonnull UpdateWorldMap packet) {
+        Ref<EntityStore> ref = player.getReference();
+        if (ref == null || !ref.isValid()) {
+            return false;
         }
+        PlayerRef playerRef = ref.getStore().getComponent(ref, PlayerRef.getComponentType());
+        if (playerRef == null) {
+            return false;
+        }
+        playerRef.getPacketHandler().write(packet);
+        return true;
     }
 
-    private static final class PlayerWaypointFile {
-        @SerializedName("PlayerUuid")
-        private final String playerUuid;
-        @SerializedName("PlayerName")
-        private final String playerName;
-        @SerializedName("Waypoints")
-        private final StoredWaypoint[] waypoints;
-        @SerializedName("LastSentMarkerIds")
-        private final String[] lastSentMarkerIds;
+    /**
+     * The markers of one shared scope at one version, built once per menu state.
+     */
+    private static final class SharedMarkers {
+        private final long version;
+        private List<MapMarker> plain;
+        private List<MapMarker> withTeleport;
 
-        PlayerWaypointFile(String playerUuid, String playerName, StoredWaypoint[] waypoints, String[] lastSentMarkerIds) {
-            this.playerUuid = playerUuid;
-            this.playerName = playerName;
-            this.waypoints = waypoints;
-            this.lastSentMarkerIds = lastSentMarkerIds;
+        private SharedMarkers(long version) {
+            this.version = version;
+        }
+
+        private synchronized List<MapMarker> get(List<StoredWaypoint> waypoints, boolean teleport) {
+            List<MapMarker> markers = teleport ? withTeleport : plain;
+            if (markers == null) {
+                List<MapMarker> built = new ArrayList<>(waypoints.size());
+                for (StoredWaypoint waypoint : waypoints) {
+                    built.add(toMarker(waypoint, teleport));
+                }
+                markers = Collections.unmodifiableList(built);
+                if (teleport) {
+                    withTeleport = markers;
+                } else {
+                    plain = markers;
+                }
+            }
+            return markers;
         }
     }
 
-    private static final class GlobalWaypointFile {
-        @SerializedName("Waypoints")
-        private final StoredWaypoint[] waypoints;
+    /**
+     * The marker instances last sent to one player in one world, by marker id.
+     */
+    private static final class SentMarkers {
+        private final Object2ObjectOpenHashMap<String, MapMarker> markers;
 
-        GlobalWaypointFile(StoredWaypoint[] waypoints) {
-            this.waypoints = waypoints;
+        private SentMarkers(int expected) {
+            this.markers = new Object2ObjectOpenHashMap<>(expected);
         }
     }
 }
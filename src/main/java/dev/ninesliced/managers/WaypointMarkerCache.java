@@ -0,0 +1,146 @@
+package dev.ninesliced.managers;
+
+import com.hypixel.hytale.protocol.Transform;
+import com.hypixel.hytale.protocol.packets.worldmap.ContextMenuItem;
+import com.hypixel.hytale.protocol.packets.worldmap.MapMarker;
+import com.hypixel.hytale.server.core.util.PositionUtil;
+
+import javax.annotation.Nonnull;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of the map markers built from stored waypoints.
+ * <p>
+ * Stored waypoints are immutable and replaced on every edit, so the stored instance is the
+ * waypoint's version: a cached marker is reused for as long as the store hands out the same
+ * instance, and rebuilt once it hands out a new one. A marker only differs between viewers by
+ * whether its context menu offers teleporting, so each waypoint keeps one marker per menu state,
+ * shared by every player in that state. Context menus are built from immutable templates, one per
+ * combination of scope and teleport access; layer templates are created on first use of a layer.
+ */
+final class WaypointMarkerCache {
+    private static final MenuTemplate PERSONAL = new MenuTemplate("Personal Waypoint", false, "bm waypoint remove ");
+    private static final MenuTemplate PERSONAL_TELEPORT = new MenuTemplate("Personal Waypoint", true, "bm waypoint remove ");
+    private static final MenuTemplate GLOBAL = new MenuTemplate("Global Waypoint", false, "bm waypoint removeglobal ");
+    private static final MenuTemplate GLOBAL_TELEPORT = new MenuTemplate("Global Waypoint", true, "bm waypoint removeglobal ");
+
+    private static final Map<String, MenuTemplate[]> LAYER_TEMPLATES = new ConcurrentHashMap<>();
+
+    private final Map<String, CachedMarker> markers = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the marker for a stored waypoint, building it on first use of this version.
+     *
+     * @param waypoint The stored waypoint.
+     * @param teleport Whether the viewer may teleport to waypoints.
+     * @return The marker. It is shared and must not be modified.
+     */
+    @Nonnull
+    MapMarker get(@Nonnull StoredWaypoint waypoint, boolean teleport) {
+        CachedMarker cached = markers.get(waypoint.id);
+        if (cached == null || cached.source != waypoint) {
+            cached = new CachedMarker(waypoint);
+            markers.put(waypoint.id, cached);
+        }
+        return cached.get(teleport);
+    }
+
+    /**
+     * Drops the marker of a waypoint that was deleted or re-created under a new id.
+     */
+    void evict(@Nonnull String id) {
+        markers.remove(id);
+    }
+
+    /**
+     * Drops the markers of a player's personal waypoints, e.g. when they disconnect.
+     */
+    void evictPersonal(@Nonnull String ownerUuid) {
+        markers.values().removeIf(cached -> !cached.source.shared && ownerUuid.equals(cached.source.ownerUuid));
+    }
+
+    /**
+     * Gets the context menu of a waypoint.
+     *
+     * @param id       The waypoint id.
+     * @param teleport Whether the viewer may teleport to waypoints.
+     * @return The menu items.
+     */
+    @Nonnull
+    static ContextMenuItem[] contextMenu(@Nonnull String id, boolean teleport) {
+        MenuTemplate template;
+        String layer = WaypointManager.getLayerOfId(id);
+        if (layer != null) {
+            MenuTemplate[] templates = LAYER_TEMPLATES.computeIfAbsent(layer, name -> new MenuTemplate[]{
+                new MenuTemplate("Layer: " + name, false, "bm waypoint remove "),
+                new MenuTemplate("Layer: " + name, true, "bm waypoint remove ")
+            });
+            template = templates[teleport ? 1 : 0];
+        } else if (WaypointManager.isGlobalId(id)) {
+            template = teleport ? GLOBAL_TELEPORT : GLOBAL;
+        } else {
+            template = teleport ? PERSONAL_TELEPORT : PERSONAL;
+        }
+        return template.build(id);
+    }
+
+    private static final class CachedMarker {
+        private final StoredWaypoint source;
+        private MapMarker plain;
+        private MapMarker withTeleport;
+
+        private CachedMarker(StoredWaypoint source) {
+            this.source = source;
+        }
+
+        private synchronized MapMarker get(boolean teleport) {
+            if (teleport) {
+                if (withTeleport == null) {
+                    withTeleport = build(true);
+                }
+                return withTeleport;
+            }
+            if (plain == null) {
+                plain = build(false);
+            }
+            return plain;
+        }
+
+        private MapMarker build(boolean teleport) {
+            // The other menu state of this version already has the packet transform; share it.
+            MapMarker other = teleport ? plain : withTeleport;
+            Transform transform = other != null
+                ? other.transform
+                : PositionUtil.toTransformPacket(new com.hypixel.hytale.math.vector.Transform(source.x, source.y, source.z));
+            return new MapMarker(source.id, source.name, WaypointManager.normalizeIcon(source.icon), transform, contextMenu(source.id, teleport));
+        }
+    }
+
+    /**
+     * The fixed shape of a waypoint context menu. The header item is shared; only the
+     * commands that carry the waypoint id are created per waypoint.
+     */
+    private static final class MenuTemplate {
+        private final ContextMenuItem header;
+        private final boolean teleport;
+        private final String deleteCommand;
+
+        private MenuTemplate(String title, boolean teleport, String deleteCommand) {
+            this.header = new ContextMenuItem(title, "");
+            this.teleport = teleport;
+            this.deleteCommand = deleteCommand;
+        }
+
+        private ContextMenuItem[] build(String id) {
+            if (teleport) {
+                return new ContextMenuItem[]{
+                    header,
+                    new ContextMenuItem("Teleport To", "bm waypoint teleport " + id),
+                    new ContextMenuItem("Delete", deleteCommand + id)
+                };
+            }
+            return new ContextMenuItem[]{header, new ContextMenuItem("Delete", deleteCommand + id)};
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package dev.ninesliced.managers;
+
+import com.hypixel.hytale.protocol.packets.worldmap.MapMarker;
+import dev.ninesliced.utils.HiddenNameMatcher;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Lookup index over the waypoint markers of one player in one world.
+ * <p>
+ * Ids and names are normalized once when the index is built: ids are lower-cased, names lose
+ * their markup and are trimmed and lower-cased. Exact lookups are hash probes, and prefix
+ * lookups binary search a sorted array holding each name and every word start within it, so
+ * {@code "ba"} finds both "Base" and "My Base". The index belongs to one marker array and is
+ * rebuilt when the player's markers are replaced.
+ */
+final class WaypointNameIndex {
+    private final MapMarker[] source;
+    private final MapMarker[] markers;
+    private final Map<String, MapMarker> byId = new HashMap<>();
+    private final Map<String, List<MapMarker>> byName = new HashMap<>();
+    private final String[] keys;
+    private final int[] ordinals;
+
+    WaypointNameIndex(@Nonnull MapMarker[] source) {
+        this.source = source;
+
+        List<MapMarker> indexed = new ArrayList<>(source.length);
+        List<Key> prefixKeys = new ArrayList<>(source.length);
+        for (MapMarker marker : source) {
+            if (marker == null) continue;
+            int ordinal = indexed.size();
+            indexed.add(marker);
+            if (marker.id != null) {
+                byId.putIfAbsent(marker.id.toLowerCase(Locale.ROOT), marker);
+            }
+
+            String name = HiddenNameMatcher.normalize(marker.name);
+            if (name.isEmpty()) continue;
+            byName.computeIfAbsent(name, ignored -> new ArrayList<>(1)).add(marker);
+            prefixKeys.add(new Key(name, ordinal));
+            for (int i = 1; i < name.length(); i++) {
+                if (isWordBreak(name.charAt(i - 1)) && !isWordBreak(name.charAt(i))) {
+                    prefixKeys.add(new Key(name.substring(i), ordinal));
+                }
+            }
+        }
+
+        prefixKeys.sort((a, b) -> a.text.compareTo(b.text));
+        this.markers = indexed.toArray(new MapMarker[0]);
+        this.keys = new String[prefixKeys.size()];
+        this.ordinals = new int[prefixKeys.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = prefixKeys.get(i).text;
+            ordinals[i] = prefixKeys.get(i).ordinal;
+        }
+    }
+
+    /**
+     * Checks if this index was built from the given marker array.
+     */
+    boolean isFor(@Nullable MapMarker[] markers) {
+        return source == markers;
+    }
+
+    /**
+     * Finds a marker by exact id, or else by exact name, ignoring case and markup.
+     *
+     * @param nameOrId The id or name.
+     * @return The marker, or null if none matches.
+     */
+    @Nullable
+    MapMarker find(@Nonnull String nameOrId) {
+        MapMarker byIdMatch = byId.get(nameOrId.toLowerCase(Locale.ROOT));
+        if (byIdMatch != null) {
+            return byIdMatch;
+        }
+        List<MapMarker> named = byName.get(HiddenNameMatcher.normalize(nameOrId));
+        return named != null ? named.get(0) : null;
+    }
+
+    /**
+     * Gets all markers with exactly the given name, ignoring case and markup.
+     */
+    @Nonnull
+    List<MapMarker> named(@Nonnull String name) {
+        List<MapMarker> named = byName.get(HiddenNameMatcher.normalize(name));
+        return named != null ? Collections.unmodifiableList(named) : Collections.emptyList();
+    }
+
+    /**
+     * Finds the markers whose name, or a word in it, starts with the given prefix.
+     * An empty prefix matches every marker.
+     *
+     * @param prefix The prefix, matched ignoring case and markup.
+     * @param limit  The maximum number of markers to return.
+     * @return The matching markers in list order.
+     */
+    @Nonnull
+    List<MapMarker> prefix(@Nonnull String prefix, int limit) {
+        String query = HiddenNameMatcher.normalize(prefix);
+        List<MapMarker> result = new ArrayList<>(Math.min(limit, markers.length));
+        if (query.isEmpty()) {
+            for (int i = 0; i < markers.length && result.size() < limit; i++) {
+                result.add(markers[i]);
+            }
+            return result;
+        }
+
+        BitSet matched = new BitSet(markers.length);
+        int start = Arrays.binarySearch(keys, query);
+        if (start < 0) {
+            start = -start - 1;
+        }
+        for (int i = start; i < keys.length && keys[i].startsWith(query); i++) {
+            matched.set(ordinals[i]);
+        }
+        for (int i = matched.nextSetBit(0); i >= 0 && result.size() < limit; i = matched.nextSetBit(i + 1)) {
+            result.add(markers[i]);
+        }
+        return result;
+    }
+
+    private static boolean isWordBreak(char c) {
+        return Character.isWhitespace(c) || c == '_' || c == '-';
+    }
+
+    private static final class Key {
+        private final String text;
+        private final int ordinal;
+
+        private Key(String text, int ordinal) {
+            this.text = text;
+            this.ordinal = ordinal;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package dev.ninesliced.managers;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Reads and writes the waypoint storage.
+ * <p>
+ * All waypoints of a world live in one {@link WaypointLog}, personal ones scoped by the owner's
+ * UUID, global ones by {@link WaypointLog#GLOBAL_SCOPE} and layer ones by their layer scope. Saving compares the given list with
+ * the log and appends only the records that were added, replaced or removed, so a change never
+ * rewrites the other waypoints of the world. Legacy JSON files are imported once on startup.
+ * <p>
+ * Each world's log has its own lock, so a long import batch or a compaction in one world never
+ * blocks reads or writes of another world.
+ */
+final class WaypointPersistence {
+    private static final Logger LOGGER = Logger.getLogger(WaypointPersistence.class.getName());
+    private static final String LOG_FILE_NAME = "waypoints.log";
+
+    private final Path dataRoot;
+    private final Map<String, WaypointLog> logs = new ConcurrentHashMap<>();
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+
+    WaypointPersistence(@Nonnull Path baseDir) {
+        this.dataRoot = baseDir.resolve("data");
+        WaypointJsonImporter.importLegacyFiles(this.dataRoot, this);
+    }
+
+    @Nullable
+    PlayerRecords loadPlayer(@Nonnull UUID playerUuid, @Nonnull String playerName, @Nonnull String worldName) {
+        synchronized (lock(worldName)) {
+            try {
+                WaypointLog log = log(worldName);
+                String scope = playerUuid.toString();
+                List<StoredWaypoint> waypoints = new ArrayList<>(log.getWaypoints(scope).values());
+                List<String> lastSentIds = new ArrayList<>(log.getSentIds(scope));
+                if (waypoints.isEmpty() && lastSentIds.isEmpty()) {
+                    return null;
+                }
+                return new PlayerRecords(waypoints, lastSentIds);
+            } catch (Exception e) {
+                LOGGER.warning("Failed to load waypoints for " + playerName + ": " + e.getMessage());
+                return null;
+            }
+        }
+    }
+
+    void savePlayer(@Nonnull UUID playerUuid, @Nonnull String playerName, @Nonnull String worldName,
+                    @Nonnull List<StoredWaypoint> waypoints, @Nonnull List<String> lastSentMarkerIds) {
+        synchronized (lock(worldName)) {
+            try {
+                WaypointLog log = log(worldName);
+                String scope = playerUuid.toString();
+                sync(log, scope, waypoints);
+                log.setSentIds(scope, lastSentMarkerIds);
+                log.flush();
+            } catch (IOException e) {
+                LOGGER.warning("Failed to save waypoints for " + playerName + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Loads the waypoints of a shared scope, the global waypoints or a layer, in a world.
+     */
+    @Nonnull
+    List<StoredWaypoint> loadShared(@Nonnull String worldName, @Nonnull String scope) {
+        synchronized (lock(worldName)) {
+            try {
+                return new ArrayList<>(log(worldName).getWaypoints(scope).values());
+            } catch (Exception e) {
+                LOGGER.warning("Failed to load " + scope + " waypoints of world " + worldName + ": " + e.getMessage());
+                return new ArrayList<>();
+            }
+        }
+    }
+
+    void saveShared(@Nonnull String worldName, @Nonnull String scope, @Nonnull List<StoredWaypoint> waypoints) {
+        synchronized (lock(worldName)) {
+            try {
+                WaypointLog log = log(worldName);
+                sync(log, scope, waypoints);
+                log.flush();
+            } catch (IOException e) {
+                LOGGER.warning("Failed to save " + scope + " waypoints of world " + worldName + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Inserts or updates waypoints without removing any, used by the legacy and bulk importers.
+     * Importing the same file twice leaves the log unchanged apart from superseded records.
+     */
+    void importWaypoints(@Nonnull String worldName, @Nonnull String scope,
+                         @Nonnull List<StoredWaypoint> waypoints, @Nullable List<String> lastSentMarkerIds) throws IOException {
+        synchronized (lock(worldName)) {
+            WaypointLog log = log(worldName);
+            for (StoredWaypoint waypoint : waypoints) {
+                if (waypoint != null && waypoint.id != null) {
+                    log.put(scope, waypoint);
+                }
+            }
+            if (lastSentMarkerIds != null) {
+                log.setSentIds(scope, lastSentMarkerIds);
+            }
+            log.flush();
+        }
+    }
+
+    /**
+     * Gets the names of the worlds that have a waypoint log.
+     */
+    @Nonnull
+    List<String> listWorlds() {
+        List<String> worlds = new ArrayList<>();
+        if (!Files.isDirectory(dataRoot)) {
+            return worlds;
+        }
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(dataRoot, Files::isDirectory)) {
+            for (Path dir : dirs) {
+                if (Files.isRegularFile(dir.resolve(LOG_FILE_NAME))) {
+                    worlds.add(dir.getFileName().toString());
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warning("Failed to list waypoint worlds in " + dataRoot + ": " + e.getMessage());
+        }
+        return worlds;
+    }
+
+    /**
+     * Copies the waypoints of every scope of a world, keyed by scope.
+     * Only references are copied, so the snapshot is cheap even for large worlds.
+     */
+    @Nonnull
+    Map<String, List<StoredWaypoint>> snapshotWorld(@Nonnull String worldName) throws IOException {
+        synchronized (lock(worldName)) {
+            WaypointLog log = log(worldName);
+            Map<String, List<StoredWaypoint>> snapshot = new HashMap<>();
+            for (String scope : log.getScopes()) {
+                snapshot.put(scope, new ArrayList<>(log.getWaypoints(scope).values()));
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Closes all open logs. Called after the final flush on shutdown.
+     */
+    void close() {
+        for (Map.Entry<String, WaypointLog> entry : logs.entrySet()) {
+            synchronized (locks.get(entry.getKey())) {
+                entry.getValue().close();
+            }
+        }
+        logs.clear();
+    }
+
+    /**
+     * Gets the lock guarding a world's log. Callers hold it to make a storage read or write
+     * atomic with an update of their in-memory copy; it is reentrant, so they may call back
+     * into this class while holding it. Lock order: a world lock before any in-memory lock.
+     */
+    @Nonnull
+    Object lock(@Nonnull String worldName) {
+        return locks.computeIfAbsent(worldName.toLowerCase(Locale.ROOT), ignored -> new Object());
+    }
+
+    private void sync(WaypointLog log, String scope, List<StoredWaypoint> waypoints) throws IOException {
+        Map<String, StoredWaypoint> stored = log.getWaypoints(scope);
+        Set<String> ids = new HashSet<>();
+        for (StoredWaypoint waypoint : waypoints) {
+            if (waypoint == null || waypoint.id == null) continue;
+            ids.add(waypoint.id);
+            // Stored waypoints are immutable, so an unchanged waypoint is the very same instance.
+            if (stored.get(waypoint.id) != waypoint) {
+                log.put(scope, waypoint);
+            }
+        }
+
+        List<String> removed = new ArrayList<>();
+        for (String id : stored.keySet()) {
+            if (!ids.contains(id)) {
+                removed.add(id);
+            }
+        }
+        for (String id : removed) {
+            log.delete(scope, id);
+        }
+    }
+
+    /**
+     * Checks if a world name can be used as a waypoint log directory: a single path
+     * segment without separators or {@code ..}.
+     */
+    static boolean isValidWorldName(@Nullable String worldName) {
+        return worldName != null && !worldName.isBlank()
+            && worldName.indexOf('/') < 0 && worldName.indexOf('\\') < 0
+            && !worldName.contains("..") && !worldName.equals(".");
+    }
+
+    /**
+     * Gets the log of a world, opening it on first use. Must hold the world's lock.
+     */
+    private WaypointLog log(String worldName) throws IOException {
+        String key = worldName.toLowerCase(Locale.ROOT);
+        WaypointLog log = logs.get(key);
+        if (log == null) {
+            Path dir = dataRoot.resolve(worldName).normalize();
+            if (!isValidWorldName(worldName) || !dataRoot.equals(dir.getParent())) {
+                throw new IOException("Invalid world name: " + worldName);
+            }
+            log = WaypointLog.open(dir.resolve(LOG_FILE_NAME));
+            logs.put(key, log);
+        }
+        return log;
+    }
+
+    /**
+     * A player's stored waypoints in one world and the marker ids last sent to their client.
+     */
+    static final class PlayerRecords {
+        final List<StoredWaypoint> waypoints;
+        final List<String> lastSentIds;
+
+        PlayerRecords(List<StoredWaypoint> waypoints, List<String> lastSentIds) {
+            this.waypoints = waypoints;
+            this.lastSentIds = lastSentIds;
+        }
+    }
+}
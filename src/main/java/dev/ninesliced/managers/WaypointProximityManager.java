@@ -0,0 +1,125 @@
+package dev.ninesliced.managers;
+
+import com.hypixel.hytale.protocol.packets.worldmap.MapMarker;
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.command.system.CommandSender;
+import com.hypixel.hytale.server.core.entity.entities.Player;
+import com.hypixel.hytale.server.core.universe.world.World;
+import dev.ninesliced.configs.BetterMapConfig;
+import dev.ninesliced.utils.HiddenNameMatcher;
+
+import javax.annotation.Nonnull;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Tells players when they come within or leave the proximity radius of one of their waypoints.
+ * <p>
+ * Proximity is evaluated only when the exploration tracker sees a player enter a new chunk,
+ * using a radius query on the player's waypoint spatial index. The first evaluation in a world
+ * only records where the player is, so joining next to a waypoint does not notify.
+ */
+public class WaypointProximityManager {
+    private static final Logger LOGGER = Logger.getLogger(WaypointProximityManager.class.getName());
+    private static WaypointProximityManager instance;
+
+    private final Map<UUID, Nearby> nearby = new ConcurrentHashMap<>();
+
+    private WaypointProximityManager() {
+    }
+
+    /**
+     * Gets the singleton instance.
+     *
+     * @return The manager instance.
+     */
+    public static synchronized WaypointProximityManager getInstance() {
+        if (instance == null) {
+            instance = new WaypointProximityManager();
+        }
+        return instance;
+    }
+
+    /**
+     * Re-evaluates which waypoints a player is near after they moved to a new chunk.
+     *
+     * @param player The player.
+     * @param world  The world the player is in.
+     * @param x      The player's block X.
+     * @param z      The player's block Z.
+     */
+    public void onChunkChanged(@Nonnull Player player, @Nonnull World world, double x, double z) {
+        UUID uuid = ((CommandSender) player).getUuid();
+        BetterMapConfig config = BetterMapConfig.getInstance();
+        if (!config.isWaypointProximityNotifications()) {
+            nearby.remove(uuid);
+            return;
+        }
+        if (!WaypointManager.isLoaded(player, world)) {
+            // Never load waypoints from disk on the tick; the next chunk change will catch up.
+            return;
+        }
+
+        Map<String, String> current = new LinkedHashMap<>();
+        for (MapMarker marker : WaypointManager.findWaypointsWithin(player, x, z, config.getWaypointProximityRadius())) {
+            if (marker.id != null) {
+                current.put(marker.id, displayName(marker.name));
+            }
+        }
+
+        Nearby previous = nearby.put(uuid, new Nearby(world.getName(), current));
+        if (previous == null || !previous.worldName.equals(world.getName())) {
+            return;
+        }
+
+        for (Map.Entry<String, String> entry : current.entrySet()) {
+            if (!previous.waypoints.containsKey(entry.getKey())) {
+                notify(player, "Reached waypoint " + entry.getValue());
+            }
+        }
+        for (Map.Entry<String, String> entry : previous.waypoints.entrySet()) {
+            if (!current.containsKey(entry.getKey())) {
+                notify(player, "Left waypoint " + entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Forgets a player's state, e.g. when they disconnect.
+     *
+     * @param playerUuid The player's UUID.
+     */
+    public void forgetPlayer(@Nonnull UUID playerUuid) {
+        nearby.remove(playerUuid);
+    }
+
+    private static void notify(Player player, String text) {
+        try {
+            player.sendMessage(Message.raw(text));
+        } catch (Exception e) {
+            LOGGER.fine("Failed to send waypoint proximity notification: " + e.getMessage());
+        }
+    }
+
+    private static String displayName(String name) {
+        if (name == null) {
+            return "Unnamed";
+        }
+        String stripped = HiddenNameMatcher.stripTags(name);
+        return stripped.isEmpty() ? "Unnamed" : stripped;
+    }
+
+    private static final class Nearby {
+        private final String worldName;
+        private final Map<String, String> waypoints;
+
+        private Nearby(String worldName, Map<String, String> waypoints) {
+            this.worldName = worldName;
+            this.waypoints = Collections.unmodifiableMap(waypoints);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package dev.ninesliced.managers;
+
+import com.hypixel.hytale.protocol.packets.worldmap.MapMarker;
+import dev.ninesliced.utils.ChunkUtil;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Grid index over the positions of the waypoint markers of one player in one world,
+ * personal, global and layer alike.
+ * <p>
+ * Markers are bucketed into square cells of {@code 1 << CELL_SHIFT} blocks. Nearest-neighbour
+ * queries search rings of cells outward from the query position and stop once the next ring
+ * cannot hold anything closer than the k-th best marker; radius queries visit only the cells
+ * overlapping the radius. When the rings or the radius cover more cells than are occupied,
+ * the occupied cells are scanned instead. Distances are horizontal, as on the map.
+ * The index belongs to one marker array and is rebuilt when the player's markers are replaced.
+ */
+final class WaypointSpatialIndex {
+    private static final int CELL_SHIFT = 6;
+    private static final int CELL_SIZE = 1 << CELL_SHIFT;
+
+    private final MapMarker[] source;
+    private final List<MapMarker> markers = new ArrayList<>();
+    private final IntArrayList cellXs = new IntArrayList();
+    private final IntArrayList cellZs = new IntArrayList();
+    private final Long2ObjectMap<IntArrayList> cells = new Long2ObjectOpenHashMap<>();
+    private final DoubleArrayList xs = new DoubleArrayList();
+    private final DoubleArrayList zs = new DoubleArrayList();
+
+    WaypointSpatialIndex(@Nonnull MapMarker[] source) {
+        this.source = source;
+        for (MapMarker marker : source) {
+            if (marker == null || marker.transform == null || marker.transform.position == null) continue;
+            double x = marker.transform.position.x;
+            double z = marker.transform.position.z;
+            int ordinal = markers.size();
+            markers.add(marker);
+            xs.add(x);
+            zs.add(z);
+            cells.computeIfAbsent(ChunkUtil.chunkCoordsToIndex(cell(x), cell(z)), ignored -> new IntArrayList(2)).add(ordinal);
+        }
+
+        for (long key : cells.keySet()) {
+            cellXs.add(ChunkUtil.indexToChunkX(key));
+            cellZs.add(ChunkUtil.indexToChunkZ(key));
+        }
+    }
+
+    /**
+     * Checks if this index was built from the given marker array.
+     */
+    boolean isFor(@Nullable MapMarker[] markers) {
+        return source == markers;
+    }
+
+    /**
+     * Finds the markers closest to a position.
+     *
+     * @param x     The block X.
+     * @param z     The block Z.
+     * @param limit The maximum number of markers to return.
+     * @return The markers, closest first.
+     */
+    @Nonnull
+    List<MapMarker> nearest(double x, double z, int limit) {
+        if (limit <= 0 || markers.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // Max-heap of the best candidates, so the worst one is dropped first.
+        PriorityQueue<Integer> best = new PriorityQueue<>(limit + 1,
+            (a, b) -> Double.compare(distanceSquared(b, x, z), distanceSquared(a, x, z)));
+        int centerX = cell(x);
+        int centerZ = cell(z);
+
+        for (int ring = 0; ; ring++) {
+            if (best.size() == limit) {
+                // Every cell on this ring is separated from the query by ring - 1 full cells.
+                double reach = (double) Math.max(0, ring - 1) * CELL_SIZE;
+                if (reach * reach >= distanceSquared(best.peek(), x, z)) {
+                    break;
+                }
+            }
+
+            if (ring > 0 && 8L * ring > cells.size()) {
+                // The rings are sparser than the occupied cells: finish with those not visited yet.
+                for (int i = 0; i < cellXs.size(); i++) {
+                    int distance = Math.max(Math.abs(cellXs.getInt(i) - centerX), Math.abs(cellZs.getInt(i) - centerZ));
+                    if (distance >= ring) {
+                        offerAll(cells.get(ChunkUtil.chunkCoordsToIndex(cellXs.getInt(i), cellZs.getInt(i))), best, limit, x, z);
+                    }
+                }
+                break;
+            }
+
+            if (ring == 0) {
+                offerAll(cells.get(ChunkUtil.chunkCoordsToIndex(centerX, centerZ)), best, limit, x, z);
+                continue;
+            }
+            for (int offset = -ring; offset <= ring; offset++) {
+                offerAll(cells.get(ChunkUtil.chunkCoordsToIndex(centerX + offset, centerZ - ring)), best, limit, x, z);
+                offerAll(cells.get(ChunkUtil.chunkCoordsToIndex(centerX + offset, centerZ + ring)), best, limit, x, z);
+            }
+            for (int offset = -ring + 1; offset <= ring - 1; offset++) {
+                offerAll(cells.get(ChunkUtil.chunkCoordsToIndex(centerX - ring, centerZ + offset)), best, limit, x, z);
+                offerAll(cells.get(ChunkUtil.chunkCoordsToIndex(centerX + ring, centerZ + offset)), best, limit, x, z);
+            }
+        }
+
+        return closestFirst(best, x, z);
+    }
+
+    /**
+     * Finds the markers within a radius of a position.
+     *
+     * @param x      The block X.
+     * @param z      The block Z.
+     * @param radius The radius in blocks.
+     * @return The markers, closest first.
+     */
+    @Nonnull
+    List<MapMarker> within(double x, double z, double radius) {
+        if (radius < 0 || markers.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        double radiusSquared = radius * radius;
+        int minX = cell(x - radius);
+        int maxX = cell(x + radius);
+        int minZ = cell(z - radius);
+        int maxZ = cell(z + radius);
+        IntArrayList found = new IntArrayList();
+
+        long cellCount = ((long) maxX - minX + 1) * ((long) maxZ - minZ + 1);
+        if (cellCount > cells.size()) {
+            for (int i = 0; i < cellXs.size(); i++) {
+                int cellX = cellXs.getInt(i);
+                int cellZ = cellZs.getInt(i);
+                if (cellX >= minX && cellX <= maxX && cellZ >= minZ && cellZ <= maxZ) {
+                    collectWithin(cells.get(ChunkUtil.chunkCoordsToIndex(cellX, cellZ)), found, x, z, radiusSquared);
+                }
+            }
+        } else {
+            for (int cellX = minX; cellX <= maxX; cellX++) {
+                for (int cellZ = minZ; cellZ <= maxZ; cellZ++) {
+                    collectWithin(cells.get(ChunkUtil.chunkCoordsToIndex(cellX, cellZ)), found, x, z, radiusSquared);
+                }
+            }
+        }
+
+        return closestFirst(found, x, z);
+    }
+
+    private List<MapMarker> closestFirst(Collection<Integer> ordinals, double x, double z) {
+        List<Integer> ordered = new ArrayList<>(ordinals);
+        ordered.sort((a, b) -> Double.compare(distanceSquared(a, x, z), distanceSquared(b, x, z)));
+        List<MapMarker> result = new ArrayList<>(ordered.size());
+        for (int ordinal : ordered) {
+            result.add(markers.get(ordinal));
+        }
+        return result;
+    }
+
+    private void offerAll(@Nullable IntArrayList cell, PriorityQueue<Integer> best, int limit, double x, double z) {
+        if (cell == null) {
+            return;
+        }
+        for (int i = 0; i < cell.size(); i++) {
+            int ordinal = cell.getInt(i);
+            if (best.size() < limit) {
+                best.add(ordinal);
+            } else if (distanceSquared(ordinal, x, z) < distanceSquared(best.peek(), x, z)) {
+                best.poll();
+                best.add(ordinal);
+            }
+        }
+    }
+
+    private void collectWithin(@Nullable IntArrayList cell, IntArrayList found, double x, double z, double radiusSquared) {
+        if (cell == null) {
+            return;
+        }
+        for (int i = 0; i < cell.size(); i++) {
+            int ordinal = cell.getInt(i);
+            if (distanceSquared(ordinal, x, z) <= radiusSquared) {
+                found.add(ordinal);
+            }
+        }
+    }
+
+    private double distanceSquared(int ordinal, double x, double z) {
+        double dx = xs.getDouble(ordinal) - x;
+        double dz = zs.getDouble(ordinal) - z;
+        return dx * dx + dz * dz;
+    }
+
+    private static int cell(double blockCoord) {
+        return (int) Math.floor(blockCoord) >> CELL_SHIFT;
+    }
+}
@@ -0,0 +1,556 @@
+package dev.ninesliced.managers;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+/**
+ * Authoritative in-memory copy of the waypoint storage.
+ * <p>
+ * Each player's waypoints are loaded once per world, on the I/O pool when the player
+ * enters the world, and every change afterwards is applied in memory. Changed entries are
+ * written back by a debounced task on the I/O pool, so adding, editing or removing a
+ * waypoint never touches the disk on the world thread.
+ * <p>
+ * Shared waypoints, the global ones and those of each waypoint layer, are indexed by world and
+ * scope, each scope with its own version number. Shared scopes are loaded on the I/O pool too,
+ * with the storage read done outside the shared lock; until a scope is loaded it reads as empty.
+ */
+final class WaypointStore {
+    private static final Logger LOGGER = Logger.getLogger(WaypointStore.class.getName());
+    private static final long WRITE_DELAY_MS = 2000L;
+
+    private final WaypointPersistence persistence;
+    private final Map<String, PlayerWaypoints> players = new ConcurrentHashMap<>();
+    private final Set<UUID> online = ConcurrentHashMap.newKeySet();
+    private final Object sharedLock = new Object();
+    private final AtomicBoolean sharedWriteScheduled = new AtomicBoolean();
+    private final Map<String, SharedWaypoints> shared = new HashMap<>();
+
+    WaypointStore(@Nonnull WaypointPersistence persistence) {
+        this.persistence = persistence;
+    }
+
+    /**
+     * Gets a player's waypoints in a world, loading them from disk on first access.
+     * Reads storage, so call it on the I/O pool; world threads use {@link #getLoaded}.
+     * <p>
+     * Getting an entry that is being unloaded cancels the unload, so a quick rejoin keeps it.
+     */
+    @Nonnull
+    PlayerWaypoints get(@Nonnull UUID uuid, @Nonnull String playerName, @Nonnull String worldName) {
+        PlayerWaypoints entry = players.compute(key(uuid, worldName), (ignored, loaded) -> {
+            if (loaded != null) {
+                loaded.unloading = false;
+                return loaded;
+            }
+            WaypointPersistence.PlayerRecords records = persistence.loadPlayer(uuid, playerName, worldName);
+            return new PlayerWaypoints(uuid, worldName, records);
+        });
+        entry.playerName = playerName;
+        return entry;
+    }
+
+    /**
+     * Marks a player as online, so their waypoints loaded from now on stay in memory until
+     * {@link #unload}. Call it before starting a load when the player joins or enters a world.
+     */
+    void markOnline(@Nonnull UUID uuid) {
+        online.add(uuid);
+    }
+
+    /**
+     * Gets a player's waypoints in a world if they are loaded, without touching the disk.
+     *
+     * @return The waypoints, or null if they are not loaded yet or are being unloaded.
+     */
+    @Nullable
+    PlayerWaypoints getLoaded(@Nonnull UUID uuid, @Nonnull String worldName) {
+        PlayerWaypoints entry = players.get(key(uuid, worldName));
+        return entry != null && !entry.unloading ? entry : null;
+    }
+
+    /**
+     * Runs a task with a player's waypoints in a world: right away if they are loaded,
+     * otherwise on the I/O pool after loading them.
+     */
+    void whenLoaded(@Nonnull UUID uuid, @Nonnull String playerName, @Nonnull String worldName,
+                    @Nonnull Consumer<PlayerWaypoints> then) {
+        PlayerWaypoints entry = getLoaded(uuid, worldName);
+        if (entry != null) {
+            then.accept(entry);
+            return;
+        }
+        BetterMapExecutor.getInstance().executeIo("waypoint-load", () -> then.accept(get(uuid, playerName, worldName)));
+    }
+
+    /**
+     * Loads a player's waypoints and the shared scopes they see on the I/O pool, then runs a callback.
+     *
+     * @param sharedScopes The shared scopes to load along, e.g. the global scope and the visible layers.
+     */
+    void preload(@Nonnull UUID uuid, @Nonnull String playerName, @Nonnull String worldName,
+                 @Nonnull Collection<String> sharedScopes, @Nonnull Runnable then) {
+        BetterMapExecutor.getInstance().executeIo("waypoint-load", () -> {
+            try {
+                PlayerWaypoints entry = get(uuid, playerName, worldName);
+                if (!online.contains(uuid)) {
+                    // The player quit while loading; nothing would unload the entry later.
+                    entry.unloading = true;
+                    release(entry);
+                    return;
+                }
+                for (String scope : sharedScopes) {
+                    loadShared(worldName, scope);
+                }
+            } finally {
+                then.run();
+            }
+        });
+    }
+
+    /**
+     * Applies a change to a player's waypoints and schedules a debounced write if it changed anything.
+     *
+     * @return The result of the change, true if the waypoints changed.
+     */
+    boolean update(@Nonnull PlayerWaypoints entry, @Nonnull Predicate<List<StoredWaypoint>> change) {
+        boolean changed;
+        synchronized (entry) {
+            changed = change.test(entry.waypoints);
+        }
+        if (changed) {
+            markDirty(entry);
+        }
+        return changed;
+    }
+
+    /**
+     * Records the personal marker ids last sent to a player's client, scheduling a write if they changed.
+     */
+    void setLastSentIds(@Nonnull PlayerWaypoints entry, @Nonnull List<String> ids) {
+        synchronized (entry) {
+            if (entry.lastSentIds.equals(ids)) {
+                return;
+            }
+            entry.lastSentIds.clear();
+            entry.lastSentIds.addAll(ids);
+        }
+        markDirty(entry);
+    }
+
+    private void markDirty(PlayerWaypoints entry) {
+        if (!entry.writeScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        // If the executor is shut down the flag stays set, and the final flushAll writes the entry.
+        BetterMapExecutor.getInstance().schedule("waypoint-write", () ->
+            BetterMapExecutor.getInstance().executeIo("waypoint-write", () -> write(entry)),
+            WRITE_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes and drops all entries of a player, e.g. when they disconnect.
+     * Entries stay readable until they were written, so a quick rejoin never reads a stale file,
+     * and a rejoin that gets an entry before it is dropped keeps it.
+     */
+    void unload(@Nonnull UUID uuid) {
+        online.remove(uuid);
+        for (PlayerWaypoints entry : players.values()) {
+            if (!entry.uuid.equals(uuid)) continue;
+            entry.unloading = true;
+            BetterMapExecutor.getInstance().executeIo("waypoint-unload", () -> release(entry));
+        }
+    }
+
+    /**
+     * Writes an entry and drops it, unless a rejoin got it in the meantime. The check and the
+     * removal are atomic with {@link #get}, which clears the unloading flag under the same key.
+     */
+    private void release(PlayerWaypoints entry) {
+        write(entry);
+        players.computeIfPresent(key(entry.uuid, entry.worldName),
+            (ignored, loaded) -> loaded == entry && entry.unloading ? null : loaded);
+    }
+
+    /**
+     * Checks if a shared scope of a world is loaded in memory.
+     */
+    boolean isSharedLoaded(@Nonnull String worldName, @Nonnull String scope) {
+        synchronized (sharedLock) {
+            return shared.containsKey(sharedKey(worldName, scope));
+        }
+    }
+
+    /**
+     * Loads a shared scope of a world if it is not loaded yet. Reads storage, so call it on the I/O pool.
+     * <p>
+     * The read holds the world's storage lock but not the shared lock, so lookups of loaded scopes
+     * never wait on the disk. Holding the world lock orders the read with imports into the same
+     * world, which update the loaded copy under that lock.
+     */
+    void loadShared(@Nonnull String worldName, @Nonnull String scope) {
+        if (isSharedLoaded(worldName, scope)) {
+            return;
+        }
+        synchronized (persistence.lock(worldName)) {
+            if (isSharedLoaded(worldName, scope)) {
+                return;
+            }
+            SharedWaypoints waypoints = new SharedWaypoints(worldName, scope);
+            for (StoredWaypoint waypoint : persistence.loadShared(worldName, scope)) {
+                waypoints.byId.put(waypoint.id, waypoint);
+            }
+            synchronized (sharedLock) {
+                shared.putIfAbsent(sharedKey(worldName, scope), waypoints);
+            }
+        }
+    }
+
+    /**
+     * Runs a task once a shared scope of a world is loaded: right away if it already is,
+     * otherwise on the I/O pool after loading it.
+     */
+    void whenSharedLoaded(@Nonnull String worldName, @Nonnull String scope, @Nonnull Runnable then) {
+        if (isSharedLoaded(worldName, scope)) {
+            then.run();
+            return;
+        }
+        BetterMapExecutor.getInstance().executeIo("waypoint-shared-load", () -> {
+            loadShared(worldName, scope);
+            then.run();
+        });
+    }
+
+    /**
+     * Gets the waypoints of a shared scope in a world. The list is cached until the scope changes.
+     *
+     * @param scope {@link WaypointLog#GLOBAL_SCOPE} or a layer scope.
+     * @return An unmodifiable list of the scope's waypoints, empty if the scope is not loaded.
+     */
+    @Nonnull
+    List<StoredWaypoint> getShared(@Nonnull String worldName, @Nonnull String scope) {
+        synchronized (sharedLock) {
+            SharedWaypoints waypoints = shared.get(sharedKey(worldName, scope));
+            return waypoints != null ? waypoints.snapshot() : Collections.emptyList();
+        }
+    }
+
+    /**
+     * Gets the version of a shared scope in a world. It changes on every add, update or removal.
+     *
+     * @return The version, or -1 if the scope is not loaded.
+     */
+    long getSharedVersion(@Nonnull String worldName, @Nonnull String scope) {
+        synchronized (sharedLock) {
+            SharedWaypoints waypoints = shared.get(sharedKey(worldName, scope));
+            return waypoints != null ? waypoints.version : -1L;
+        }
+    }
+
+    @Nullable
+    StoredWaypoint getSharedWaypoint(@Nonnull String worldName, @Nonnull String scope, @Nonnull String id) {
+        synchronized (sharedLock) {
+            SharedWaypoints waypoints = shared.get(sharedKey(worldName, scope));
+            return waypoints != null ? waypoints.byId.get(id) : null;
+        }
+    }
+
+    /**
+     * Adds a shared waypoint, or replaces the one with the given id in place.
+     *
+     * @param replacedId The id of the waypoint to replace, or null to add.
+     * @return The new version of the scope, or -1 if the scope is not loaded or the replaced waypoint does not exist.
+     */
+    long putShared(@Nonnull String worldName, @Nonnull String scope, @Nullable String replacedId, @Nonnull StoredWaypoint waypoint) {
+        long version;
+        synchronized (sharedLock) {
+            SharedWaypoints waypoints = shared.get(sharedKey(worldName, scope));
+            if (waypoints == null) {
+                return -1L;
+            }
+            if (replacedId == null) {
+                waypoints.byId.put(waypoint.id, waypoint);
+            } else if (!waypoints.replace(replacedId, waypoint)) {
+                return -1L;
+            }
+            version = waypoints.changed();
+        }
+        scheduleSharedWrite();
+        return version;
+    }
+
+    /**
+     * Removes a shared waypoint.
+     *
+     * @return The new version of the scope, or -1 if the scope is not loaded or the waypoint does not exist.
+     */
+    long removeShared(@Nonnull String worldName, @Nonnull String scope, @Nonnull String id) {
+        long version;
+        synchronized (sharedLock) {
+            SharedWaypoints waypoints = shared.get(sharedKey(worldName, scope));
+            if (waypoints == null || waypoints.byId.remove(id) == null) {
+                return -1L;
+            }
+            version = waypoints.changed();
+        }
+        scheduleSharedWrite();
+        return version;
+    }
+
+    private void scheduleSharedWrite() {
+        if (sharedWriteScheduled.compareAndSet(false, true)) {
+            BetterMapExecutor.getInstance().schedule("waypoint-shared-write", () ->
+                BetterMapExecutor.getInstance().executeIo("waypoint-shared-write", this::writeShared),
+                WRITE_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Inserts or updates a batch of waypoints of one scope in one world, e.g. from a bulk import.
+     * <p>
+     * The batch is written to storage directly. If the scope is loaded in memory, the loaded copy
+     * is updated as well, so a later debounced write does not drop the imported waypoints.
+     *
+     * @param scope {@link WaypointLog#GLOBAL_SCOPE}, a layer scope or the owner's UUID.
+     */
+    void importWaypoints(@Nonnull String worldName, @Nonnull String scope, @Nonnull List<StoredWaypoint> waypoints) throws IOException {
+        if (isSharedScope(scope)) {
+            boolean loaded = false;
+            // Under the world lock, so a concurrent load of the scope reads either before or after the batch.
+            synchronized (persistence.lock(worldName)) {
+                persistence.importWaypoints(worldName, scope, waypoints, null);
+                synchronized (sharedLock) {
+                    SharedWaypoints loadedWaypoints = shared.get(sharedKey(worldName, scope));
+                    if (loadedWaypoints != null) {
+                        for (StoredWaypoint waypoint : waypoints) {
+                            loadedWaypoints.byId.put(waypoint.id, waypoint);
+                        }
+                        loadedWaypoints.changed();
+                        loaded = true;
+                    }
+                }
+            }
+            if (loaded) {
+                scheduleSharedWrite();
+            }
+            return;
+        }
+
+        persistence.importWaypoints(worldName, scope, waypoints, null);
+
+        // Waits for a load of the same entry in progress, which then already sees the batch.
+        PlayerWaypoints entry = players.computeIfPresent(key(UUID.fromString(scope), worldName), (ignored, loaded) -> {
+            synchronized (loaded) {
+                Map<String, Integer> positions = new HashMap<>();
+                for (int i = 0; i < loaded.waypoints.size(); i++) {
+                    positions.put(loaded.waypoints.get(i).id, i);
+                }
+                for (StoredWaypoint waypoint : waypoints) {
+                    Integer position = positions.get(waypoint.id);
+                    if (position != null) {
+                        loaded.waypoints.set(position, waypoint);
+                    } else {
+                        positions.put(waypoint.id, loaded.waypoints.size());
+                        loaded.waypoints.add(waypoint);
+                    }
+                }
+            }
+            return loaded;
+        });
+        if (entry != null) {
+            markDirty(entry);
+        }
+    }
+
+    /**
+     * Writes every pending change on the calling thread.
+     */
+    void writePending() {
+        for (PlayerWaypoints entry : players.values()) {
+            if (entry.writeScheduled.get()) {
+                write(entry);
+            }
+        }
+        if (sharedWriteScheduled.get()) {
+            writeShared();
+        }
+    }
+
+    /**
+     * Writes every pending change on the calling thread and closes the storage. Used on shutdown,
+     * once the executor drained: writes still queued on the I/O pool would reopen the closed logs.
+     * Debounced writes whose timers were cancelled by the shutdown are still flagged and written here.
+     */
+    void flushAll() {
+        writePending();
+        persistence.close();
+    }
+
+    /**
+     * Writes a player's entry. The snapshot is taken and saved under the world's storage lock,
+     * so two concurrent writes can never save an older snapshot over a newer one.
+     */
+    private void write(PlayerWaypoints entry) {
+        entry.writeScheduled.set(false);
+        synchronized (persistence.lock(entry.worldName)) {
+            List<StoredWaypoint> waypoints;
+            List<String> lastSentIds;
+            synchronized (entry) {
+                waypoints = new ArrayList<>(entry.waypoints);
+                lastSentIds = new ArrayList<>(entry.lastSentIds);
+            }
+            try {
+                persistence.savePlayer(entry.uuid, entry.playerName, entry.worldName, waypoints, lastSentIds);
+            } catch (Exception e) {
+                LOGGER.warning("Failed to write waypoints for " + entry.playerName + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes every changed shared scope. Like {@link #write}, each scope's snapshot is taken and
+     * saved under its world's storage lock, so a concurrent write cannot save a stale snapshot
+     * last and have storage delete the newer waypoints.
+     */
+    private void writeShared() {
+        sharedWriteScheduled.set(false);
+        List<SharedWaypoints> changed = new ArrayList<>();
+        synchronized (sharedLock) {
+            for (SharedWaypoints waypoints : shared.values()) {
+                if (waypoints.dirty) {
+                    changed.add(waypoints);
+                }
+            }
+        }
+        for (SharedWaypoints waypoints : changed) {
+            synchronized (persistence.lock(waypoints.worldName)) {
+                List<StoredWaypoint> snapshot;
+                synchronized (sharedLock) {
+                    if (!waypoints.dirty) {
+                        continue;
+                    }
+                    waypoints.dirty = false;
+                    snapshot = new ArrayList<>(waypoints.byId.values());
+                }
+                persistence.saveShared(waypoints.worldName, waypoints.scope, snapshot);
+            }
+        }
+    }
+
+    private static String key(UUID uuid, String worldName) {
+        return uuid + "|" + worldKey(worldName);
+    }
+
+    private static String worldKey(String worldName) {
+        return worldName.toLowerCase(Locale.ROOT);
+    }
+
+    private static String sharedKey(String worldName, String scope) {
+        return scope + "|" + worldKey(worldName);
+    }
+
+    /**
+     * Checks if a scope holds shared waypoints rather than one player's.
+     */
+    static boolean isSharedScope(@Nonnull String scope) {
+        return WaypointLog.GLOBAL_SCOPE.equals(scope) || scope.startsWith(WaypointLog.LAYER_SCOPE_PREFIX);
+    }
+
+    /**
+     * The waypoints of one shared scope in one world, keyed by id in insertion order. Guarded by the shared lock.
+     */
+    private static final class SharedWaypoints {
+        private final String worldName;
+        private final String scope;
+        private Map<String, StoredWaypoint> byId = new LinkedHashMap<>();
+        private List<StoredWaypoint> snapshot;
+        private long version;
+        private boolean dirty;
+
+        private SharedWaypoints(String worldName, String scope) {
+            this.worldName = worldName;
+            this.scope = scope;
+        }
+
+        private long changed() {
+            snapshot = null;
+            dirty = true;
+            return ++version;
+        }
+
+        private List<StoredWaypoint> snapshot() {
+            if (snapshot == null) {
+                snapshot = Collections.unmodifiableList(new ArrayList<>(byId.values()));
+            }
+            return snapshot;
+        }
+
+        private boolean replace(String id, StoredWaypoint waypoint) {
+            if (!byId.containsKey(id)) {
+                return false;
+            }
+            if (id.equals(waypoint.id)) {
+                byId.put(id, waypoint);
+                return true;
+            }
+            Map<String, StoredWaypoint> rebuilt = new LinkedHashMap<>();
+            for (Map.Entry<String, StoredWaypoint> entry : byId.entrySet()) {
+                if (entry.getKey().equals(id)) {
+                    rebuilt.put(waypoint.id, waypoint);
+                } else {
+                    rebuilt.put(entry.getKey(), entry.getValue());
+                }
+            }
+            byId = rebuilt;
+            return true;
+        }
+    }
+
+    /**
+     * A player's personal waypoints in one world, plus the marker ids last sent to their client.
+     * Reads and writes are synchronized on the entry.
+     */
+    static final class PlayerWaypoints {
+        private final UUID uuid;
+        private final String worldName;
+        private final AtomicBoolean writeScheduled = new AtomicBoolean();
+        private final List<StoredWaypoint> waypoints = new ArrayList<>();
+        private final List<String> lastSentIds = new ArrayList<>();
+        private volatile String playerName;
+        private volatile boolean unloading;
+
+        private PlayerWaypoints(UUID uuid, String worldName, WaypointPersistence.PlayerRecords records) {
+            this.uuid = uuid;
+            this.worldName = worldName;
+            if (records != null) {
+                this.waypoints.addAll(records.waypoints);
+                this.lastSentIds.addAll(records.lastSentIds);
+            }
+        }
+
+        synchronized List<StoredWaypoint> getWaypoints() {
+            return new ArrayList<>(waypoints);
+        }
+
+        synchronized List<String> getLastSentIds() {
+            return new ArrayList<>(lastSentIds);
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package dev.ninesliced.managers;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.hypixel.hytale.server.core.universe.Universe;
+import com.hypixel.hytale.server.core.universe.world.World;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Bulk import and export of waypoints as JSON Lines files, one stored waypoint per line.
+ * <p>
+ * Files live in the transfer directory and are streamed on the I/O pool, so neither direction
+ * holds a whole file in memory. Imported waypoints are grouped by world and owner and written
+ * in batches, one log flush per group and batch, and the markers of the affected worlds are
+ * refreshed once at the end. Only one transfer runs at a time. A world name must be a single
+ * path segment, and is matched to a loaded world or an existing waypoint log ignoring case.
+ */
+final class WaypointTransfer {
+    private static final Logger LOGGER = Logger.getLogger(WaypointTransfer.class.getName());
+    private static final int BATCH_SIZE = 5000;
+    private static final int PROGRESS_INTERVAL = 10000;
+
+    private static final Gson GSON = new Gson();
+
+    private final WaypointStore store;
+    private final WaypointPersistence persistence;
+    private final Path directory;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    WaypointTransfer(@Nonnull WaypointStore store, @Nonnull WaypointPersistence persistence, @Nonnull Path directory) {
+        this.store = store;
+        this.persistence = persistence;
+        this.directory = directory.toAbsolutePath().normalize();
+    }
+
+    /**
+     * Imports a file from the transfer directory, adding new waypoints and replacing those with
+     * the same id. Lines that are not valid waypoints are skipped.
+     *
+     * @param fileName The file name, relative to the transfer directory.
+     * @param feedback Receives progress and result messages, on the I/O pool.
+     * @return A future completing when the import finished or failed.
+     */
+    @Nonnull
+    CompletableFuture<Void> importFile(@Nonnull String fileName, @Nonnull Consumer<String> feedback) {
+        Path file = resolve(fileName);
+        if (file == null) {
+            feedback.accept("Invalid file name: " + fileName);
+            return CompletableFuture.completedFuture(null);
+        }
+        if (!Files.isRegularFile(file)) {
+            feedback.accept("File not found: " + file);
+            return CompletableFuture.completedFuture(null);
+        }
+        return start("waypoint-import", feedback, () -> runImport(file, feedback));
+    }
+
+    /**
+     * Exports every personal and global waypoint of every world to a file in the transfer directory.
+     *
+     * @param fileName The file name, relative to the transfer directory. An existing file is replaced.
+     * @param feedback Receives progress and result messages, on the I/O pool.
+     * @return A future completing when the export finished or failed.
+     */
+    @Nonnull
+    CompletableFuture<Void> exportFile(@Nonnull String fileName, @Nonnull Consumer<String> feedback) {
+        Path file = resolve(fileName);
+        if (file == null) {
+            feedback.accept("Invalid file name: " + fileName);
+            return CompletableFuture.completedFuture(null);
+        }
+        return start("waypoint-export", feedback, () -> runExport(file, feedback));
+    }
+
+    private CompletableFuture<Void> start(String name, Consumer<String> feedback, TransferTask task) {
+        if (!running.compareAndSet(false, true)) {
+            feedback.accept("A waypoint import or export is already running.");
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        boolean queued = BetterMapExecutor.getInstance().executeIo(name, () -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                LOGGER.warning("Waypoint " + name + " failed: " + e.getMessage());
+                feedback.accept("Waypoint transfer failed: " + e.getMessage());
+            } finally {
+                running.set(false);
+                future.complete(null);
+            }
+        });
+        if (!queued) {
+            running.set(false);
+            feedback.accept("Waypoint transfers are unavailable while the server shuts down.");
+            future.complete(null);
+        }
+        return future;
+    }
+
+    private void runImport(Path file, Consumer<String> feedback) throws IOException {
+        long start = System.nanoTime();
+        Map<String, Batch> batches = new LinkedHashMap<>();
+        Map<String, String> worldNames = knownWorldNames();
+        Set<String> worlds = new HashSet<>();
+        int pending = 0;
+        int imported = 0;
+        int skipped = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                StoredWaypoint parsed = parse(line);
+                if (parsed == null) {
+                    skipped++;
+                    continue;
+                }
+                StoredWaypoint waypoint = inWorld(parsed, worldNames);
+
+                String scope = waypoint.shared ? WaypointManager.sharedScope(waypoint.id) : waypoint.ownerUuid;
+                batches.computeIfAbsent(scope + "|" + waypoint.world, ignored -> new Batch(waypoint.world, scope))
+                    .waypoints.add(waypoint);
+                worlds.add(waypoint.world);
+
+                if (++pending >= BATCH_SIZE) {
+                    writeBatches(batches);
+                    pending = 0;
+                }
+                if (++imported % PROGRESS_INTERVAL == 0) {
+                    feedback.accept("Imported " + imported + " waypoints...");
+                }
+            }
+        }
+        writeBatches(batches);
+
+        Universe universe = Universe.get();
+        if (universe != null) {
+            for (String worldName : worlds) {
+                World world = universe.getWorld(worldName);
+                if (world != null) {
+                    WaypointManager.refreshAllPlayersMarkers(world);
+                }
+            }
+        }
+
+        long elapsed = (System.nanoTime() - start) / 1_000_000L;
+        LOGGER.info("Imported " + imported + " waypoints from " + file + " in " + elapsed + " ms");
+        feedback.accept("Imported " + imported + " waypoints into " + worlds.size() + " worlds in " + elapsed + " ms"
+            + (skipped > 0 ? ", skipped " + skipped + " invalid lines." : "."));
+    }
+
+    /**
+     * Gets the names of the loaded worlds and of the worlds with a waypoint log, keyed by their
+     * lower-case form. Logs are cached by lower-case name, so a world must always be written
+     * under one spelling.
+     */
+    private Map<String, String> knownWorldNames() {
+        Map<String, String> names = new HashMap<>();
+        for (String worldName : persistence.listWorlds()) {
+            names.put(worldName.toLowerCase(Locale.ROOT), worldName);
+        }
+        Universe universe = Universe.get();
+        if (universe != null) {
+            for (World world : universe.getWorlds().values()) {
+                names.put(world.getName().toLowerCase(Locale.ROOT), world.getName());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Moves a waypoint to the known spelling of its world. The first spelling of an unknown
+     * world becomes the known one, so case variants within a file land in the same world.
+     */
+    private static StoredWaypoint inWorld(StoredWaypoint waypoint, Map<String, String> worldNames) {
+        String worldName = worldNames.computeIfAbsent(waypoint.world.toLowerCase(Locale.ROOT), ignored -> waypoint.world);
+        if (worldName.equals(waypoint.world)) {
+            return waypoint;
+        }
+        return new StoredWaypoint(waypoint.id, waypoint.name, waypoint.icon, waypoint.x, waypoint.y, waypoint.z,
+            worldName, waypoint.shared, waypoint.ownerUuid, waypoint.ownerName);
+    }
+
+    private void writeBatches(Map<String, Batch> batches) throws IOException {
+        for (Batch batch : batches.values()) {
+            store.importWaypoints(batch.worldName, batch.scope, batch.waypoints);
+        }
+        batches.clear();
+    }
+
+    private void runExport(Path file, Consumer<String> feedback) throws IOException {
+        long start = System.nanoTime();
+        store.writePending();
+
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        int exported = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (String worldName : persistence.listWorlds()) {
+                for (Map.Entry<String, List<StoredWaypoint>> scoped : persistence.snapshotWorld(worldName).entrySet()) {
+                    for (StoredWaypoint waypoint : scoped.getValue()) {
+                        writer.write(GSON.toJson(forExport(waypoint, worldName, scoped.getKey())));
+                        writer.newLine();
+                        if (++exported % PROGRESS_INTERVAL == 0) {
+                            feedback.accept("Exported " + exported + " waypoints...");
+                        }
+                    }
+                }
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+
+        long elapsed = (System.nanoTime() - start) / 1_000_000L;
+        LOGGER.info("Exported " + exported + " waypoints to " + file + " in " + elapsed + " ms");
+        feedback.accept("Exported " + exported + " waypoints to " + directory.relativize(file) + " in " + elapsed + " ms.");
+    }
+
+    /**
+     * Parses and validates one line. Ids that do not match the waypoint's scope are prefixed
+     * accordingly, so importing the same file twice updates the same waypoints.
+     *
+     * @return The waypoint, or null if the line is not a valid waypoint.
+     */
+    @Nullable
+    private static StoredWaypoint parse(String line) {
+        StoredWaypoint raw;
+        try {
+            raw = GSON.fromJson(line, StoredWaypoint.class);
+        } catch (JsonParseException e) {
+            return null;
+        }
+        if (raw == null || !WaypointPersistence.isValidWorldName(raw.world)
+            || !Double.isFinite(raw.x) || !Double.isFinite(raw.y) || !Double.isFinite(raw.z)) {
+            return null;
+        }
+
+        String ownerUuid = raw.ownerUuid;
+        if (!raw.shared) {
+            if (ownerUuid == null) {
+                return null;
+            }
+            try {
+                ownerUuid = UUID.fromString(ownerUuid).toString();
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        String id = raw.id;
+        if (id == null || id.isBlank()) {
+            id = (raw.shared ? WaypointManager.GLOBAL_ID_PREFIX : "waypoint_") + UUID.randomUUID();
+        } else if (raw.shared && WaypointManager.sharedScope(id) == null) {
+            id = WaypointManager.GLOBAL_ID_PREFIX + id;
+        } else if (!raw.shared && WaypointManager.isGlobalId(id)) {
+            id = "waypoint_" + id.substring(WaypointManager.GLOBAL_ID_PREFIX.length());
+        } else if (!raw.shared && WaypointManager.isLayerId(id)) {
+            id = "waypoint_" + id.substring(WaypointManager.LAYER_ID_PREFIX.length());
+        }
+
+        return new StoredWaypoint(
+            id,
+            raw.name != null ? raw.name : "Waypoint",
+            WaypointManager.normalizeIcon(raw.icon),
+            raw.x,
+            raw.y,
+            raw.z,
+            raw.world,
+            raw.shared,
+            ownerUuid,
+            raw.ownerName
+        );
+    }
+
+    /**
+     * Makes the world and scope of a waypoint explicit, so an exported line imports into the same place.
+     */
+    private static StoredWaypoint forExport(StoredWaypoint waypoint, String worldName, String scope) {
+        boolean shared = WaypointStore.isSharedScope(scope);
+        String ownerUuid = shared ? waypoint.ownerUuid : scope;
+        if (worldName.equals(waypoint.world) && shared == waypoint.shared && (shared || scope.equals(waypoint.ownerUuid))) {
+            return waypoint;
+        }
+        return new StoredWaypoint(waypoint.id, waypoint.name, waypoint.icon, waypoint.x, waypoint.y, waypoint.z,
+            worldName, shared, ownerUuid, waypoint.ownerName);
+    }
+
+    /**
+     * Resolves a file name inside the transfer directory.
+     *
+     * @return The path, or null if the name points outside the directory.
+     */
+    @Nullable
+    private Path resolve(String fileName) {
+        Path file = directory.resolve(fileName).normalize();
+        return file.startsWith(directory) && !file.equals(directory) ? file : null;
+    }
+
+    private interface TransferTask {
+        void run() throws IOException;
+    }
+
+    /**
+     * Waypoints waiting to be written for one scope in one world.
+     */
+    private static final class Batch {
+        private final String worldName;
+        private final String scope;
+        private final List<StoredWaypoint> waypoints = new ArrayList<>();
+
+        private Batch(String worldName, String scope) {
+            this.worldName = worldName;
+            this.scope = scope;
+        }
+    }
+}
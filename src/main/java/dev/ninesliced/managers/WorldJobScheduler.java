@@ -0,0 +1,280 @@
+package dev.ninesliced.managers;
+
+import com.hypixel.hytale.component.Holder;
+import com.hypixel.hytale.server.core.entity.entities.Player;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+
+/**
+ * Cooperative, time-sliced job queue for work that has to run on a world thread.
+ * <p>
+ * Bulk operations (tracker refreshes, marker resyncs, privacy updates) are split into
+ * small keyed jobs. Each world drains its queue for at most {@link #TICK_BUDGET_MICROS}
+ * per pass and continues on the next pass, so a config toggle on a full server never
+ * stalls a world tick. Jobs submitted with a key that is already pending are merged:
+ * the latest task replaces the pending one and the higher priority wins.
+ * <p>
+ * Each queue belongs to one {@link World} instance. A world reloaded under the same name gets
+ * a fresh queue, queues of worlds that stopped are dropped, and a drain that was accepted but
+ * never ran, e.g. by a world that was stopping, is resubmitted after {@link #STALL_TIMEOUT_MS}.
+ */
+public class WorldJobScheduler {
+    private static final Logger LOGGER = Logger.getLogger(WorldJobScheduler.class.getName());
+    private static final long TICK_BUDGET_MICROS = 2000L;
+    private static final long CONTINUE_DELAY_MS = 30L;
+    private static final long STALL_TIMEOUT_MS = 5000L;
+    private static WorldJobScheduler instance;
+
+    private final Map<String, WorldQueue> queues = new ConcurrentHashMap<>();
+
+    private WorldJobScheduler() {
+    }
+
+    /**
+     * Gets the singleton instance.
+     *
+     * @return The scheduler instance.
+     */
+    public static synchronized WorldJobScheduler getInstance() {
+        if (instance == null) {
+            instance = new WorldJobScheduler();
+        }
+        return instance;
+    }
+
+    /**
+     * Job priorities, drained from highest to lowest.
+     */
+    public enum Priority {
+        HIGH, NORMAL, LOW
+    }
+
+    /**
+     * Submits a keyed job to run on the world thread.
+     * If a job with the same key is still pending it is replaced by this one.
+     *
+     * @param world    The world whose thread runs the job.
+     * @param key      The coalescing key.
+     * @param priority The job priority.
+     * @param task     The work to run.
+     */
+    public void submit(@Nonnull World world, @Nonnull String key, @Nonnull Priority priority, @Nonnull Runnable task) {
+        if (!world.isAlive()) {
+            return;
+        }
+        WorldQueue queue = queueFor(world);
+        boolean schedule;
+        synchronized (queue) {
+            Job job = queue.pending.get(key);
+            if (job == null) {
+                job = new Job(key, priority, task);
+                queue.pending.put(key, job);
+                queue.lanes[priority.ordinal()].add(job);
+            } else {
+                job.task = task;
+                if (priority.ordinal() < job.priority.ordinal()) {
+                    // Re-queue in the higher lane; the stale lane entry is skipped when drained
+                    job.priority = priority;
+                    queue.lanes[priority.ordinal()].add(job);
+                }
+            }
+            long now = System.nanoTime();
+            schedule = !queue.scheduled || now - queue.scheduledAt > TimeUnit.MILLISECONDS.toNanos(STALL_TIMEOUT_MS);
+            if (schedule) {
+                queue.scheduled = true;
+                queue.scheduledAt = now;
+            }
+        }
+
+        if (schedule) {
+            try {
+                world.execute(() -> drain(world, queue));
+            } catch (Exception e) {
+                LOGGER.warning("Failed to schedule jobs for world " + world.getName() + ": " + e.getMessage());
+                synchronized (queue) {
+                    queue.scheduled = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Submits one job per player currently in the world.
+     * Each job is keyed by {@code keyPrefix} and the player's UUID, so repeated
+     * requests for the same player merge into one.
+     *
+     * @param world     The world.
+     * @param keyPrefix The key prefix identifying the operation.
+     * @param priority  The job priority.
+     * @param task      The per-player work, run on the world thread.
+     */
+    public void submitForPlayers(@Nonnull World world, @Nonnull String keyPrefix, @Nonnull Priority priority,
+                                 @Nonnull BiConsumer<PlayerRef, Player> task) {
+        submitForPlayers(world, keyPrefix, priority, uuid -> true, task);
+    }
+
+    /**
+     * Submits one job per player currently in the world that passes a filter.
+     * Players that fail the filter get no job at all.
+     *
+     * @param world     The world.
+     * @param keyPrefix The key prefix identifying the operation.
+     * @param priority  The job priority.
+     * @param filter    Selects the players by UUID, on the calling thread.
+     * @param task      The per-player work, run on the world thread.
+     */
+    public void submitForPlayers(@Nonnull World world, @Nonnull String keyPrefix, @Nonnull Priority priority,
+                                 @Nonnull Predicate<UUID> filter, @Nonnull BiConsumer<PlayerRef, Player> task) {
+        for (PlayerRef playerRef : world.getPlayerRefs()) {
+            if (playerRef == null) continue;
+            UUID uuid = playerRef.getUuid();
+            if (uuid == null || !filter.test(uuid)) continue;
+
+            submit(world, keyPrefix + ":" + uuid, priority, () -> {
+                Holder<EntityStore> holder = playerRef.getHolder();
+                if (holder == null) return;
+                Player player = holder.getComponent(Player.getComponentType());
+                if (player == null || player.getWorld() != world) return;
+                task.accept(playerRef, player);
+            });
+        }
+    }
+
+    /**
+     * Gets the number of jobs waiting for the given world.
+     *
+     * @param world The world.
+     * @return The pending job count.
+     */
+    public int getPendingCount(@Nonnull World world) {
+        WorldQueue queue = queues.get(world.getName());
+        if (queue == null || queue.world != world) {
+            return 0;
+        }
+        synchronized (queue) {
+            return queue.pending.size();
+        }
+    }
+
+    /**
+     * Gets the queue of a world instance, replacing the queue of an older instance with the
+     * same name and dropping the queues of worlds that stopped.
+     */
+    private WorldQueue queueFor(World world) {
+        WorldQueue queue = queues.get(world.getName());
+        if (queue != null && queue.world == world) {
+            return queue;
+        }
+        queues.values().removeIf(stale -> !stale.world.isAlive());
+        return queues.compute(world.getName(),
+            (ignored, existing) -> existing != null && existing.world == world ? existing : new WorldQueue(world));
+    }
+
+    private void drain(World world, WorldQueue queue) {
+        if (!world.isAlive()) {
+            synchronized (queue) {
+                queue.pending.clear();
+                for (ArrayDeque<Job> lane : queue.lanes) {
+                    lane.clear();
+                }
+                queue.scheduled = false;
+            }
+            queues.remove(world.getName(), queue);
+            return;
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(TICK_BUDGET_MICROS);
+
+        while (true) {
+            Job job;
+            synchronized (queue) {
+                job = queue.poll();
+                if (job == null) {
+                    queue.scheduled = false;
+                    return;
+                }
+            }
+
+            try {
+                job.task.run();
+            } catch (Exception e) {
+                LOGGER.warning("Job " + job.key + " failed in world " + world.getName() + ": " + e.getMessage());
+            }
+
+            if (System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+
+        // Budget used up; continue on a later tick instead of running back-to-back
+        synchronized (queue) {
+            queue.scheduledAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CONTINUE_DELAY_MS);
+        }
+        try {
+            ScheduledFuture<?> continuation = BetterMapExecutor.getInstance().schedule("world-jobs",
+                    () -> world.execute(() -> drain(world, queue)), CONTINUE_DELAY_MS, TimeUnit.MILLISECONDS);
+            if (continuation == null) {
+                synchronized (queue) {
+                    queue.scheduled = false;
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.warning("Failed to reschedule jobs for world " + world.getName() + ": " + e.getMessage());
+            synchronized (queue) {
+                queue.scheduled = false;
+            }
+        }
+    }
+
+    private static final class Job {
+        private final String key;
+        private Priority priority;
+        private Runnable task;
+
+        private Job(String key, Priority priority, Runnable task) {
+            this.key = key;
+            this.priority = priority;
+            this.task = task;
+        }
+    }
+
+    private static final class WorldQueue {
+        private final World world;
+        private final Map<String, Job> pending = new HashMap<>();
+        @SuppressWarnings("unchecked")
+        private final ArrayDeque<Job>[] lanes = new ArrayDeque[]{new ArrayDeque<>(), new ArrayDeque<>(), new ArrayDeque<>()};
+        private boolean scheduled = false;
+        private long scheduledAt;
+
+        private WorldQueue(World world) {
+            this.world = world;
+        }
+
+        private Job poll() {
+            for (int lane = 0; lane < lanes.length; lane++) {
+                Job job;
+                while ((job = lanes[lane].poll()) != null) {
+                    if (job.priority.ordinal() != lane || pending.get(job.key) != job) {
+                        continue;
+                    }
+                    pending.remove(job.key);
+                    return job;
+                }
+            }
+            return null;
+        }
+    }
+}
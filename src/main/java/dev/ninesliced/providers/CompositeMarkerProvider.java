@@ -0,0 +1,134 @@
+package dev.ninesliced.providers;
+
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.worldmap.WorldMapManager;
+import com.hypixel.hytale.server.core.universe.world.worldmap.markers.MapMarkerTracker;
+import dev.ninesliced.configs.BetterMapConfig;
+import dev.ninesliced.managers.MarkerProviderRegistry;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Runs all BetterMap marker sources of a world as stages of a single marker provider.
+ * <p>
+ * When enabled with {@code compositeMarkerProvider}, the individual BetterMap providers stay
+ * registered under their usual keys but skip their own updates. This provider then builds one
+ * {@link MarkerViewContext} per viewer and runs every installed {@link MarkerStage} with it,
+ * so the viewer, policy and exploration lookups happen once and the total marker cost is
+ * measured in one place.
+ */
+public class CompositeMarkerProvider implements WorldMapManager.MarkerProvider {
+    public static final String PROVIDER_ID = "BetterMapComposite";
+    private static final Logger LOGGER = Logger.getLogger(CompositeMarkerProvider.class.getName());
+    private static final long STATS_LOG_INTERVAL_MS = 60_000L;
+    private static CompositeMarkerProvider instance;
+
+    private final Map<String, StageStats> stats = new ConcurrentHashMap<>();
+    private volatile long lastStatsLogAt = System.currentTimeMillis();
+
+    private CompositeMarkerProvider() {
+    }
+
+    /**
+     * Gets the singleton instance.
+     *
+     * @return The provider instance.
+     */
+    public static synchronized CompositeMarkerProvider getInstance() {
+        if (instance == null) {
+            instance = new CompositeMarkerProvider();
+        }
+        return instance;
+    }
+
+    /**
+     * Checks if the composite provider runs the marker stages of a world,
+     * in which case the individual providers must skip their own updates.
+     *
+     * @param world The world.
+     * @return True if the composite provider is enabled and installed in the world.
+     */
+    public static boolean handles(@Nullable World world) {
+        if (world == null || !BetterMapConfig.getInstance().isCompositeMarkerProvider()) {
+            return false;
+        }
+        WorldMapManager mapManager = world.getWorldMapManager();
+        return mapManager != null
+            && mapManager.getMarkerProviders().get(PROVIDER_ID) instanceof CompositeMarkerProvider;
+    }
+
+    /**
+     * Registers the provider layout, installing the composite provider in every world while it is enabled.
+     */
+    public void initialize() {
+        MarkerProviderRegistry.getInstance().addLayout((world, plan) -> {
+            if (BetterMapConfig.getInstance().isCompositeMarkerProvider()) {
+                plan.install(PROVIDER_ID, this);
+            }
+        });
+    }
+
+    @Override
+    public void update(World world, MapMarkerTracker tracker, int viewRadius, int chunkX, int chunkZ) {
+        if (world == null || tracker == null || !BetterMapConfig.getInstance().isCompositeMarkerProvider()) {
+            return;
+        }
+
+        try {
+            MarkerViewContext context = new MarkerViewContext(world, tracker, viewRadius, chunkX, chunkZ);
+            if (context.getViewer() == null || context.getPolicy() == null) {
+                return;
+            }
+
+            for (Map.Entry<String, WorldMapManager.MarkerProvider> entry : world.getWorldMapManager().getMarkerProviders().entrySet()) {
+                if (!(entry.getValue() instanceof MarkerStage stage)) {
+                    continue;
+                }
+                long startedAt = System.nanoTime();
+                try {
+                    stage.update(context);
+                } catch (Exception e) {
+                    LOGGER.warning("Error in marker stage " + entry.getKey() + ": " + e.getMessage());
+                }
+                stats.computeIfAbsent(entry.getKey(), ignored -> new StageStats()).record(System.nanoTime() - startedAt);
+            }
+        } catch (Exception e) {
+            LOGGER.warning("Error in CompositeMarkerProvider.update: " + e.getMessage());
+        }
+
+        logStatsIfDue();
+    }
+
+    private void logStatsIfDue() {
+        long now = System.currentTimeMillis();
+        if (now - lastStatsLogAt < STATS_LOG_INTERVAL_MS) {
+            return;
+        }
+        lastStatsLogAt = now;
+
+        StringBuilder summary = new StringBuilder("Marker stage cost over the last minute:");
+        long totalNanos = 0L;
+        for (Map.Entry<String, StageStats> entry : stats.entrySet()) {
+            long nanos = entry.getValue().nanos.sumThenReset();
+            long calls = entry.getValue().calls.sumThenReset();
+            totalNanos += nanos;
+            summary.append(String.format(" %s=%.1fms/%d", entry.getKey(), nanos / 1_000_000.0, calls));
+        }
+        summary.append(String.format(" total=%.1fms", totalNanos / 1_000_000.0));
+        LOGGER.fine(summary.toString());
+    }
+
+    private static final class StageStats {
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder calls = new LongAdder();
+
+        private void record(long elapsedNanos) {
+            nanos.add(elapsedNanos);
+            calls.increment();
+        }
+    }
+}
@@ -10,13 +10,9 @@ import com.hypixel.hytale.server.core.universe.world.World;
 import com.hypixel.hytale.server.core.universe.world.worldmap.WorldMapManager;
 import com.hypixel.hytale.server.core.universe.world.worldmap.markers.MapMarkerTracker;
 import com.hypixel.hytale.server.core.util.PositionUtil;
-import dev.ninesliced.configs.BetterMapConfig;
-import dev.ninesliced.configs.PlayerConfig;
-import dev.ninesliced.managers.PlayerConfigManager;
-import dev.ninesliced.utils.PermissionsUtil;
-import com.hypixel.hytale.server.core.command.system.CommandSender;
+import dev.ninesliced.configs.ViewerPolicy;
+import javax.annotation.Nonnull;
 import java.util.List;
-import java.util.UUID;
 import java.util.logging.Logger;
 
 /**
@@ -24,63 +20,29 @@ import java.util.logging.Logger;
  * Uses the game's native death position storage.
  * Note: If the game's displayDeathMarker config is disabled, deaths won't be stored.
  */
-public class DeathPrivacyProvider implements WorldMapManager.MarkerProvider {
+public class DeathPrivacyProvider implements WorldMapManager.MarkerProvider, MarkerStage {
     public static final String PROVIDER_ID = "death";
     private static final Logger LOGGER = Logger.getLogger(DeathPrivacyProvider.class.getName());
     private static final String MARKER_ICON = "Death.png";
 
     @Override
     public void update(World world, MapMarkerTracker tracker, int viewRadius, int chunkX, int chunkZ) {
-        try {
-            BetterMapConfig globalConfig = BetterMapConfig.getInstance();
-
-            Player player = tracker.getPlayer();
-            if (player == null) {
-                return;
-            }
-
-            UUID playerUuid = ((CommandSender) player).getUuid();
-            PlayerConfig playerConfig = null;
-            if (playerUuid != null) {
-                playerConfig = PlayerConfigManager.getInstance().getPlayerConfig(playerUuid);
-            }
-
-            boolean canOverrideDeath = PermissionsUtil.canOverrideDeath(player);
-            boolean overrideEnabled = canOverrideDeath
-                && playerConfig != null
-                && playerConfig.isOverrideGlobalDeathHide();
-            boolean globalHide = globalConfig.isHideDeathMarkerOnMap();
+        if (world == null || tracker == null || CompositeMarkerProvider.handles(world)) {
+            return;
+        }
+        update(new MarkerViewContext(world, tracker, viewRadius, chunkX, chunkZ));
+    }
 
-            if (globalHide && !overrideEnabled) {
+    @Override
+    public void update(@Nonnull MarkerViewContext context) {
+        try {
+            Player player = context.getViewer();
+            ViewerPolicy policy = context.getPolicy();
+            if (player == null || policy == null || policy.isHideDeath()) {
                 return;
             }
 
-            if (!overrideEnabled) {
-                List<String> hiddenNames = globalConfig.getHiddenPoiNames();
-                if (hiddenNames != null) {
-                    for (String hidden : hiddenNames) {
-                        if ("death".equalsIgnoreCase(hidden.trim())) {
-                            return;
-                        }
-                    }
-                }
-            }
-
-            if (playerConfig != null) {
-                if (playerConfig.isHideDeathMarkerOnMap()) {
-                    return;
-                }
-                List<String> playerHiddenNames = playerConfig.getHiddenPoiNames();
-                if (playerHiddenNames != null) {
-                    for (String hidden : playerHiddenNames) {
-                        if ("death".equalsIgnoreCase(hidden.trim())) {
-                            return;
-                        }
-                    }
-                }
-            }
-
-            PlayerWorldData worldData = player.getPlayerConfigData().getPerWorldData(world.getName());
+            PlayerWorldData worldData = player.getPlayerConfigData().getPerWorldData(context.getWorld().getName());
             if (worldData == null) {
                 return;
             }
@@ -96,7 +58,8 @@ public class DeathPrivacyProvider implements WorldMapManager.MarkerProvider {
                 }
 
                 Transform transform = deathPosition.getTransform();
-                if (transform == null || transform.getPosition() == null) {
+                if (transform == null || transform.getPosition() == null
+                    || !context.isInView(transform.getPosition().x, transform.getPosition().z)) {
                     continue;
                 }
 
@@ -107,10 +70,10 @@ public class DeathPrivacyProvider implements WorldMapManager.MarkerProvider {
                 Vector3f rotation = transform.getRotation();
                 float yaw = rotation != null ? rotation.getYaw() : 0.0f;
 
-                tracker.trySendMarker(
-                    viewRadius,
-                    chunkX,
-                    chunkZ,
+                context.getTracker().trySendMarker(
+                    context.getViewRadius(),
+                    context.getChunkX(),
+                    context.getChunkZ(),
                     transform.getPosition(),
                     yaw,
                     markerId,
@@ -0,0 +1,17 @@
+package dev.ninesliced.providers;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A source of world map markers that can run either as its own marker provider
+ * or as one stage of the {@link CompositeMarkerProvider}.
+ */
+public interface MarkerStage {
+
+    /**
+     * Sends this stage's markers to the viewer described by the context.
+     *
+     * @param context The viewer context.
+     */
+    void update(@Nonnull MarkerViewContext context);
+}
@@ -0,0 +1,197 @@
+package dev.ninesliced.providers;
+
+import com.hypixel.hytale.protocol.packets.worldmap.MapMarker;
+import com.hypixel.hytale.server.core.entity.entities.Player;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.worldmap.markers.MapMarkerTracker;
+import dev.ninesliced.configs.ViewerPolicy;
+import dev.ninesliced.exploration.ExplorationTracker;
+import dev.ninesliced.exploration.RevealedMarkers;
+import dev.ninesliced.listeners.ExplorationEventListener;
+import dev.ninesliced.managers.ExplorationManager;
+import dev.ninesliced.managers.MarkerIndexManager;
+import dev.ninesliced.managers.RevealedMarkerManager;
+import dev.ninesliced.managers.ViewerPolicyManager;
+import dev.ninesliced.utils.ChunkUtil;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Set;
+
+/**
+ * Everything a {@link MarkerStage} needs to know about one viewer for one marker update.
+ * <p>
+ * The viewer and their policy are resolved once; exploration state, revealed markers and the
+ * marker index are resolved lazily on first use, so stages run by the
+ * {@link CompositeMarkerProvider} share them instead of each looking them up again.
+ */
+public final class MarkerViewContext {
+    private static final int MAP_CHUNK_SHIFT = 5;
+
+    private final World world;
+    private final MapMarkerTracker tracker;
+    private final int viewRadius;
+    private final int chunkX;
+    private final int chunkZ;
+    private final Player viewer;
+    private final ViewerPolicy policy;
+
+    private Boolean trackedWorld;
+    private boolean explorationResolved;
+    private ExplorationTracker.PlayerExplorationData explorationData;
+    private Set<Long> sharedExploredChunks;
+    private boolean revealedResolved;
+    private RevealedMarkers revealed;
+    private MarkerIndexManager.WorldIndex markerIndex;
+
+    /**
+     * Creates the context for one viewer.
+     *
+     * @param world      The world.
+     * @param tracker    The viewer's marker tracker.
+     * @param viewRadius The view radius in map chunks.
+     * @param chunkX     The viewer's map chunk X.
+     * @param chunkZ     The viewer's map chunk Z.
+     */
+    public MarkerViewContext(@Nonnull World world, @Nonnull MapMarkerTracker tracker,
+                             int viewRadius, int chunkX, int chunkZ) {
+        this.world = world;
+        this.tracker = tracker;
+        this.viewRadius = viewRadius;
+        this.chunkX = chunkX;
+        this.chunkZ = chunkZ;
+        this.viewer = tracker.getPlayer();
+        this.policy = viewer != null ? ViewerPolicyManager.getInstance().getPolicy(viewer) : null;
+    }
+
+    @Nonnull
+    public World getWorld() {
+        return world;
+    }
+
+    @Nonnull
+    public MapMarkerTracker getTracker() {
+        return tracker;
+    }
+
+    public int getViewRadius() {
+        return viewRadius;
+    }
+
+    public int getChunkX() {
+        return chunkX;
+    }
+
+    public int getChunkZ() {
+        return chunkZ;
+    }
+
+    @Nullable
+    public Player getViewer() {
+        return viewer;
+    }
+
+    /**
+     * Gets the viewer's policy.
+     *
+     * @return The policy, or null if there is no viewer.
+     */
+    @Nullable
+    public ViewerPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Checks if exploration is tracked in this world.
+     *
+     * @return True if unexplored markers can be hidden here.
+     */
+    public boolean isTrackedWorld() {
+        if (trackedWorld == null) {
+            trackedWorld = ExplorationEventListener.isTrackedWorld(world);
+        }
+        return trackedWorld;
+    }
+
+    /**
+     * Gets the markers revealed for the viewer.
+     *
+     * @return The revealed markers, or null if the viewer has no exploration data.
+     */
+    @Nullable
+    public RevealedMarkers getRevealed() {
+        if (!revealedResolved) {
+            revealedResolved = true;
+            if (viewer != null && policy != null) {
+                revealed = RevealedMarkerManager.getInstance().getRevealed(world, viewer, policy.isShareAllExploration());
+            }
+        }
+        return revealed;
+    }
+
+    /**
+     * Gets the POI and warp index of the world.
+     *
+     * @return The marker index.
+     */
+    @Nonnull
+    public MarkerIndexManager.WorldIndex getMarkerIndex() {
+        if (markerIndex == null) {
+            markerIndex = MarkerIndexManager.getInstance().getIndex(world);
+        }
+        return markerIndex;
+    }
+
+    /**
+     * Checks if the viewer explored the chunk containing a block position,
+     * using the world-wide explored chunks in shared exploration mode.
+     *
+     * @param blockX The block X.
+     * @param blockZ The block Z.
+     * @return True if the chunk was explored.
+     */
+    public boolean isExplored(double blockX, double blockZ) {
+        if (!explorationResolved) {
+            explorationResolved = true;
+            if (policy != null && policy.isShareAllExploration()) {
+                sharedExploredChunks = ExplorationManager.getInstance().getAllExploredChunks(world.getName());
+            } else if (viewer != null) {
+                explorationData = ExplorationTracker.getInstance().getPlayerData(viewer);
+            }
+        }
+
+        long chunkIndex = ChunkUtil.chunkCoordsToIndex(
+            ChunkUtil.blockToChunkCoord(blockX), ChunkUtil.blockToChunkCoord(blockZ));
+        if (sharedExploredChunks != null) {
+            return sharedExploredChunks.contains(chunkIndex);
+        }
+        return explorationData != null && explorationData.getExploredChunks().isChunkExplored(chunkIndex);
+    }
+
+    /**
+     * Checks if a block position may be within the viewer's view radius.
+     * This is a cheap square pre-check; the tracker still applies its own range check.
+     *
+     * @param blockX The block X.
+     * @param blockZ The block Z.
+     * @return True if the position is within the square view area.
+     */
+    public boolean isInView(double blockX, double blockZ) {
+        long dx = ((int) Math.floor(blockX) >> MAP_CHUNK_SHIFT) - (long) chunkX;
+        long dz = ((int) Math.floor(blockZ) >> MAP_CHUNK_SHIFT) - (long) chunkZ;
+        return Math.abs(dx) <= viewRadius && Math.abs(dz) <= viewRadius;
+    }
+
+    /**
+     * Sends a marker to the viewer if it may be in view.
+     *
+     * @param marker The marker.
+     */
+    public void send(@Nonnull MapMarker marker) {
+        if (marker.transform != null && marker.transform.position != null
+            && !isInView(marker.transform.position.x, marker.transform.position.z)) {
+            return;
+        }
+        tracker.trySendMarker(viewRadius, chunkX, chunkZ, marker);
+    }
+}
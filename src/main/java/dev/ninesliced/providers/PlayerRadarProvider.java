@@ -1,134 +1,222 @@
 package dev.ninesliced.providers;
 
+import com.hypixel.hytale.math.vector.Transform;
 import com.hypixel.hytale.math.vector.Vector3d;
 import com.hypixel.hytale.math.vector.Vector3f;
 import com.hypixel.hytale.protocol.packets.worldmap.MapMarker;
-import com.hypixel.hytale.server.core.asset.type.gameplay.GameplayConfig;
 import com.hypixel.hytale.server.core.command.system.CommandSender;
 import com.hypixel.hytale.server.core.entity.entities.Player;
 import com.hypixel.hytale.server.core.universe.world.World;
-import com.hypixel.hytale.server.core.universe.world.WorldMapTracker;
 import com.hypixel.hytale.server.core.universe.world.worldmap.WorldMapManager;
 import com.hypixel.hytale.server.core.universe.world.worldmap.markers.MapMarkerTracker;
 import com.hypixel.hytale.server.core.util.PositionUtil;
 import dev.ninesliced.configs.BetterMapConfig;
-import dev.ninesliced.configs.PlayerConfig;
-import dev.ninesliced.managers.PlayerConfigManager;
+import dev.ninesliced.configs.ViewerPolicy;
 import dev.ninesliced.managers.PlayerRadarManager;
-import dev.ninesliced.managers.PlayerRadarManager.RadarData;
-import dev.ninesliced.utils.PermissionsUtil;
+import dev.ninesliced.managers.RadarSnapshot;
 
-import java.util.List;
+import javax.annotation.Nonnull;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 /**
  * Provides player markers on the world map, allowing players to see other players'
  * positions and distances. This implements a radar-like functionality for the map.
  */
-public class PlayerRadarProvider implements WorldMapManager.MarkerProvider {
+public class PlayerRadarProvider implements WorldMapManager.MarkerProvider, MarkerStage {
 
     private static final Logger LOGGER = Logger.getLogger(PlayerRadarProvider.class.getName());
     private static final String MARKER_PREFIX = "PlayerRadar-";
     private static final String MARKER_ICON = "Player.png";
     public static final String PROVIDER_ID = "BetterMapPlayerRadar";
+    private static final int MAX_CACHED_MARKER_IDS = 4096;
+    private static final Map<UUID, String> MARKER_IDS = new ConcurrentHashMap<>();
+    private static final float FULL_TURN = (float) (Math.PI * 2.0);
+
+    private final Map<UUID, ViewerState> viewerStates = new ConcurrentHashMap<>();
 
     /**
      * Updates the player radar markers for the viewing player.
+     * <p>
+     * Markers are only changed when the other player moved or turned past the configured
+     * thresholds or their rounded distance label changed; distant players are refreshed at
+     * a lower rate. Otherwise the previously sent values are passed again, so the tracker
+     * sees an unchanged marker and sends nothing.
      */
     public void update(World world, MapMarkerTracker tracker,
                        int viewRadius, int chunkX, int chunkZ) {
-        try {
-            Player viewingPlayer = tracker.getPlayer();
-            UUID viewerUuid = ((CommandSender) viewingPlayer).getUuid();
+        if (world == null || tracker == null || CompositeMarkerProvider.handles(world)) {
+            return;
+        }
+        update(new MarkerViewContext(world, tracker, viewRadius, chunkX, chunkZ));
+    }
 
-            BetterMapConfig globalConfig = BetterMapConfig.getInstance();
-            boolean hasGlobalOverride = PermissionsUtil.canOverridePlayers(viewingPlayer);
-            if (!globalConfig.isRadarEnabled() || (globalConfig.isHidePlayersOnMap() && !hasGlobalOverride)) {
+    @Override
+    public void update(@Nonnull MarkerViewContext context) {
+        try {
+            Player viewingPlayer = context.getViewer();
+            ViewerPolicy policy = context.getPolicy();
+            if (viewingPlayer == null || policy == null || policy.isHideRadar()) {
                 return;
             }
-
-            if (viewerUuid != null) {
-                PlayerConfig playerConfig = PlayerConfigManager.getInstance().getPlayerConfig(viewerUuid);
-                if (playerConfig != null && playerConfig.isHidePlayersOnMap()) {
+            UUID viewerUuid = ((CommandSender) viewingPlayer).getUuid();
+            MapMarkerTracker tracker = context.getTracker();
+            int viewRadius = context.getViewRadius();
+            int chunkX = context.getChunkX();
+            int chunkZ = context.getChunkZ();
+
+            BetterMapConfig config = BetterMapConfig.getInstance();
+            int distanceStep = Math.max(1, config.getRadarDistanceStep());
+            double minMoveSquared = config.getRadarMinMoveDistance() * config.getRadarMinMoveDistance();
+            float minYawDelta = config.getRadarMinYawDelta();
+            int farDistance = config.getRadarFarDistance();
+            long farRefreshMs = config.getRadarFarRefreshMs();
+            long now = System.currentTimeMillis();
+
+            ViewerState viewerState = viewerStates.computeIfAbsent(viewerUuid, ignored -> new ViewerState());
+            long pass = ++viewerState.pass;
+
+            RadarSnapshot snapshot = PlayerRadarManager.getInstance().acquireRadarSnapshot(context.getWorld().getName());
+            try {
+                int viewerSlot = snapshot.slotOf(viewerUuid);
+                if (viewerSlot < 0) {
                     return;
                 }
-            }
-
-            List<RadarData> radarDataList = PlayerRadarManager.getInstance().getRadarData(world.getName());
 
-            RadarData viewerData = null;
-            for (RadarData data : radarDataList) {
-                if (data.uuid.equals(viewerUuid.toString())) {
-                    viewerData = data;
-                    break;
+                snapshot.forEachInRange(viewerSlot, policy.getRadarRange(), otherSlot -> {
+                    try {
+                        UUID otherUuid = snapshot.getUuid(otherSlot);
+                        double distance = Math.sqrt(snapshot.distanceSquared(viewerSlot, otherSlot));
+                        int labelDistance = ((int) distance / distanceStep) * distanceStep;
+
+                        SentMarker sent = viewerState.markers.get(otherUuid);
+                        boolean far = farDistance >= 0 && distance > farDistance;
+                        if (sent == null) {
+                            sent = new SentMarker();
+                            viewerState.markers.put(otherUuid, sent);
+                            sent.refresh(snapshot, otherSlot, labelDistance, now);
+                        } else if (!(far && now - sent.sentAt < farRefreshMs)
+                                && sent.hasChanged(snapshot, otherSlot, labelDistance, minMoveSquared, minYawDelta)) {
+                            sent.refresh(snapshot, otherSlot, labelDistance, now);
+                        }
+                        sent.pass = pass;
+
+                        tracker.trySendMarker(
+                            viewRadius,
+                            chunkX,
+                            chunkZ,
+                            sent.transform.getPosition(),
+                            sent.yaw,
+                            markerIdOf(otherUuid),
+                            sent.label,
+                            sent.transform,
+                            PlayerRadarProvider::createMarker
+                        );
+                    } catch (Exception e) {}
+                });
+
+                if (viewerState.markers.size() > snapshot.size()) {
+                    viewerState.markers.values().removeIf(sent -> sent.pass != pass);
                 }
+            } finally {
+                snapshot.release();
             }
+        } catch (Exception e) {
+            LOGGER.warning("Error in PlayerRadarProvider.update: " + e.getMessage());
+        }
+    }
 
-            if (viewerData == null) {
-                return;
-            }
-            Vector3d viewerPos = viewerData.position;
-
-            int radarRange = globalConfig.getRadarRange();
-            boolean infiniteRange = radarRange < 0;
-            long rangeSquared = infiniteRange ? Long.MAX_VALUE : (long) radarRange * radarRange;
-
-            for (RadarData otherData : radarDataList) {
-                if (otherData.uuid.equals(viewerUuid.toString())) {
-                    continue;
-                }
+    /**
+     * Drops the radar marker state kept for a viewer, e.g. when they disconnect.
+     *
+     * @param viewerUuid The viewer UUID.
+     */
+    public void forgetViewer(@Nonnull UUID viewerUuid) {
+        viewerStates.remove(viewerUuid);
+    }
 
-                try {
-                    Vector3d otherPos = otherData.position;
-
-                    double dx = otherPos.x - viewerPos.x;
-                    double dy = otherPos.y - viewerPos.y;
-                    double dz = otherPos.z - viewerPos.z;
-                    double distanceSquared = dx * dx + dy * dy + dz * dz;
-
-                    if (!infiniteRange && distanceSquared > (double) rangeSquared) {
-                        continue;
-                    }
-
-                    int distance = (int) Math.sqrt(distanceSquared);
-                    String markerId = MARKER_PREFIX + otherData.uuid;
-                    String markerName = otherData.name + " (" + distance + "m)";
-
-                    float yaw = otherData.rotation != null ? otherData.rotation.getYaw() : 0.0f;
-
-                    tracker.trySendMarker(
-                        viewRadius,
-                        chunkX,
-                        chunkZ,
-                        otherPos,
-                        yaw,
-                        markerId,
-                        markerName,
-                        otherData,
-                        PlayerRadarProvider::createMarker
-                    );
-                } catch (Exception e) {}
+    private static String markerIdOf(UUID uuid) {
+        String id = MARKER_IDS.get(uuid);
+        if (id == null) {
+            if (MARKER_IDS.size() >= MAX_CACHED_MARKER_IDS) {
+                MARKER_IDS.clear();
             }
-        } catch (Exception e) {
-            LOGGER.warning("Error in PlayerRadarProvider.update: " + e.getMessage());
+            id = MARKER_PREFIX + uuid;
+            MARKER_IDS.put(uuid, id);
         }
+        return id;
     }
 
     /**
      * Creates a MapMarker for a player.
      */
-    private static MapMarker createMarker(String id, String name, RadarData data) {
-        com.hypixel.hytale.math.vector.Transform vecTransform = new com.hypixel.hytale.math.vector.Transform(
-            data.position,
-            data.rotation != null ? data.rotation : Vector3f.ZERO
-        );
+    private static MapMarker createMarker(String id, String name, Transform transform) {
         return new MapMarker(
             id,
             name,
             MARKER_ICON,
-            PositionUtil.toTransformPacket(vecTransform),
+            PositionUtil.toTransformPacket(transform),
             null
         );
     }
+
+    /**
+     * Radar markers last sent to one viewer.
+     */
+    private static final class ViewerState {
+        private final Map<UUID, SentMarker> markers = new HashMap<>();
+        private long pass;
+    }
+
+    /**
+     * The values last sent for one radar marker.
+     */
+    private static final class SentMarker {
+        private double x;
+        private double y;
+        private double z;
+        private float yaw;
+        private int labelDistance = -1;
+        private String name;
+        private String label;
+        private Transform transform;
+        private long sentAt;
+        private long pass;
+
+        private boolean hasChanged(RadarSnapshot snapshot, int slot, int newLabelDistance,
+                                   double minMoveSquared, float minYawDelta) {
+            if (newLabelDistance != labelDistance || !Objects.equals(name, snapshot.getName(slot))) {
+                return true;
+            }
+            double dx = snapshot.getX(slot) - x;
+            double dy = snapshot.getY(slot) - y;
+            double dz = snapshot.getZ(slot) - z;
+            if (dx * dx + dy * dy + dz * dz >= minMoveSquared) {
+                return true;
+            }
+            float yawDelta = Math.abs(snapshot.getYaw(slot) - yaw) % FULL_TURN;
+            return Math.min(yawDelta, FULL_TURN - yawDelta) >= minYawDelta;
+        }
+
+        private void refresh(RadarSnapshot snapshot, int slot, int newLabelDistance, long now) {
+            x = snapshot.getX(slot);
+            y = snapshot.getY(slot);
+            z = snapshot.getZ(slot);
+            yaw = snapshot.getYaw(slot);
+            if (newLabelDistance != labelDistance || !Objects.equals(name, snapshot.getName(slot))) {
+                labelDistance = newLabelDistance;
+                name = snapshot.getName(slot);
+                label = name + " (" + labelDistance + "m)";
+            }
+            transform = new Transform(
+                new Vector3d(x, y, z),
+                new Vector3f(snapshot.getRotX(slot), snapshot.getRotY(slot), snapshot.getRotZ(slot))
+            );
+            sentAt = now;
+        }
+    }
 }
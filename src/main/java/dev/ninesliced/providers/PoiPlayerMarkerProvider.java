@@ -7,42 +7,34 @@ import com.hypixel.hytale.server.core.entity.entities.player.data.PlayerWorldDat
 import com.hypixel.hytale.server.core.universe.world.World;
 import com.hypixel.hytale.server.core.universe.world.worldmap.WorldMapManager;
 import com.hypixel.hytale.server.core.universe.world.worldmap.markers.MapMarkerTracker;
-import dev.ninesliced.configs.BetterMapConfig;
-import dev.ninesliced.configs.PlayerConfig;
-import dev.ninesliced.exploration.ExplorationTracker;
-import dev.ninesliced.listeners.ExplorationEventListener;
-import dev.ninesliced.managers.ExplorationManager;
-import dev.ninesliced.managers.PlayerConfigManager;
+import dev.ninesliced.configs.ViewerPolicy;
 import dev.ninesliced.utils.ChunkUtil;
-import dev.ninesliced.utils.PermissionsUtil;
-import com.hypixel.hytale.server.core.command.system.CommandSender;
-import java.util.ArrayList;
+import dev.ninesliced.utils.HiddenNameMatcher;
 import java.util.HashSet;
-import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.UUID;
 import java.util.logging.Logger;
-import java.util.regex.Pattern;
-import javax.annotation.Nullable;
+import javax.annotation.Nonnull;
 
 /**
  * Filters player world map markers that overlap with POIs.
  */
-public class PoiPlayerMarkerProvider implements WorldMapManager.MarkerProvider {
+public class PoiPlayerMarkerProvider implements WorldMapManager.MarkerProvider, MarkerStage {
     public static final String PROVIDER_ID = "playerMarkers";
     private static final Logger LOGGER = Logger.getLogger(PoiPlayerMarkerProvider.class.getName());
-    private static final Pattern HTML_TAG_PATTERN = Pattern.compile("<[^>]*>");
 
     @Override
     public void update(World world, MapMarkerTracker tracker, int viewRadius, int chunkX, int chunkZ) {
-        try {
-            if (world == null || tracker == null) {
-                return;
-            }
+        if (world == null || tracker == null || CompositeMarkerProvider.handles(world)) {
+            return;
+        }
+        update(new MarkerViewContext(world, tracker, viewRadius, chunkX, chunkZ));
+    }
 
-            Player viewer = tracker.getPlayer();
+    @Override
+    public void update(@Nonnull MarkerViewContext context) {
+        try {
+            Player viewer = context.getViewer();
             if (viewer == null) {
                 return;
             }
@@ -52,6 +44,7 @@ public class PoiPlayerMarkerProvider implements WorldMapManager.MarkerProvider {
                 return;
             }
 
+            World world = context.getWorld();
             PlayerWorldData worldData = configData.getPerWorldData(world.getName());
             if (worldData == null) {
                 return;
@@ -62,51 +55,20 @@ public class PoiPlayerMarkerProvider implements WorldMapManager.MarkerProvider {
                 return;
             }
 
-            BetterMapConfig globalConfig = BetterMapConfig.getInstance();
-            boolean canOverridePoi = PermissionsUtil.canOverridePoi(viewer);
-            boolean canOverrideUnexplored = PermissionsUtil.canOverrideUnexploredPoi(viewer);
-            PlayerConfig playerConfig = null;
-            UUID playerUuid = ((CommandSender) viewer).getUuid();
-            if (playerUuid != null) {
-                playerConfig = PlayerConfigManager.getInstance().getPlayerConfig(playerUuid);
-            }
-            boolean overrideEnabled = canOverridePoi
-                && playerConfig != null
-                && playerConfig.isOverrideGlobalPoiHide();
-            boolean overrideUnexploredEnabled = canOverrideUnexplored
-                && playerConfig != null
-                && playerConfig.isOverrideGlobalPoiHide();
-            boolean hideAll = globalConfig.isHideAllPoiOnMap() && !overrideEnabled;
-            boolean hideUnexplored = globalConfig.isHideUnexploredPoiOnMap() && !overrideUnexploredEnabled;
-
-            if (playerConfig != null && playerConfig.isHideAllPoiOnMap()) {
-                hideAll = true;
-            }
-
-            List<String> hiddenPoiNames = new ArrayList<>();
-            if (!overrideEnabled) {
-                List<String> globalHidden = globalConfig.getHiddenPoiNames();
-                if (globalHidden != null) {
-                    hiddenPoiNames.addAll(globalHidden);
-                }
+            ViewerPolicy policy = context.getPolicy();
+            if (policy == null) {
+                return;
             }
 
-            if (playerConfig != null) {
-                List<String> playerHidden = playerConfig.getHiddenPoiNames();
-                if (playerHidden != null) {
-                    hiddenPoiNames.addAll(playerHidden);
-                }
-            }
-
-            if (hideUnexplored && !ExplorationEventListener.isTrackedWorld(world)) {
-                hideUnexplored = false;
-            }
+            boolean hideAll = policy.isHideAllPoi();
+            boolean hideUnexplored = policy.isHideUnexploredPoi() && context.isTrackedWorld();
+            HiddenNameMatcher hiddenPoiNames = policy.getHiddenPoiNames();
 
             boolean filter = hideAll || hideUnexplored || !hiddenPoiNames.isEmpty();
             if (!filter) {
                 for (MapMarker marker : markers) {
                     if (marker == null) continue;
-                    tracker.trySendMarker(viewRadius, chunkX, chunkZ, marker);
+                    context.send(marker);
                 }
                 return;
             }
@@ -115,7 +77,7 @@ public class PoiPlayerMarkerProvider implements WorldMapManager.MarkerProvider {
             if (pointsOfInterest == null || pointsOfInterest.isEmpty()) {
                 for (MapMarker marker : markers) {
                     if (marker == null) continue;
-                    tracker.trySendMarker(viewRadius, chunkX, chunkZ, marker);
+                    context.send(marker);
                 }
                 return;
             }
@@ -130,16 +92,6 @@ public class PoiPlayerMarkerProvider implements WorldMapManager.MarkerProvider {
                 }
             }
 
-            ExplorationTracker.PlayerExplorationData explorationData = null;
-            Set<Long> sharedExploredChunks = null;
-            if (hideUnexplored) {
-                if (globalConfig.isShareAllExploration()) {
-                    sharedExploredChunks = ExplorationManager.getInstance().getAllExploredChunks(world.getName());
-                } else {
-                    explorationData = ExplorationTracker.getInstance().getPlayerData(viewer);
-                }
-            }
-
             for (MapMarker marker : markers) {
                 if (marker == null) continue;
 
@@ -155,17 +107,17 @@ public class PoiPlayerMarkerProvider implements WorldMapManager.MarkerProvider {
                 }
 
                 if (!isPoi) {
-                    tracker.trySendMarker(viewRadius, chunkX, chunkZ, marker);
+                    context.send(marker);
                     continue;
                 }
 
-                boolean hide = hideAll || shouldHideByName(marker, hiddenPoiNames);
+                boolean hide = hideAll || hiddenPoiNames.matches(marker);
                 if (!hide && hideUnexplored) {
-                    hide = !isMarkerExplored(marker, explorationData, sharedExploredChunks);
+                    hide = !isMarkerExplored(marker, context);
                 }
 
                 if (!hide) {
-                    tracker.trySendMarker(viewRadius, chunkX, chunkZ, marker);
+                    context.send(marker);
                 }
             }
         } catch (Exception e) {
@@ -173,72 +125,24 @@ public class PoiPlayerMarkerProvider implements WorldMapManager.MarkerProvider {
         }
     }
 
-    private static boolean shouldHideByName(MapMarker marker, @Nullable List<String> hiddenPoiNames) {
-        if (hiddenPoiNames == null || hiddenPoiNames.isEmpty()) {
-            return false;
-        }
-
-        String normalizedName = normalize(marker.name);
-        String normalizedId = normalize(marker.id);
-        String normalizedImage = normalize(marker.markerImage);
-
-        for (String hiddenName : hiddenPoiNames) {
-            String normalizedHidden = normalize(hiddenName);
-            if (normalizedHidden.isEmpty()) {
-                continue;
-            }
-            if (normalizedHidden.equals(normalizedName)
-                || normalizedHidden.equals(normalizedId)
-                || normalizedHidden.equals(normalizedImage)) {
-                return true;
-            }
-        }
-
-        return false;
-    }
-
-    private static boolean isMarkerExplored(MapMarker marker,
-                                            @Nullable ExplorationTracker.PlayerExplorationData explorationData,
-                                            @Nullable Set<Long> sharedExploredChunks) {
+    private static boolean isMarkerExplored(MapMarker marker, MarkerViewContext context) {
         if (marker.transform == null || marker.transform.position == null) {
             return true;
         }
-
-        int chunkX = ChunkUtil.blockToChunkCoord(marker.transform.position.x);
-        int chunkZ = ChunkUtil.blockToChunkCoord(marker.transform.position.z);
-        long chunkIndex = ChunkUtil.chunkCoordsToIndex(chunkX, chunkZ);
-
-        if (sharedExploredChunks != null) {
-            return sharedExploredChunks.contains(chunkIndex);
-        }
-
-        if (explorationData == null) {
-            return false;
-        }
-
-        return explorationData.getExploredChunks().isChunkExplored(chunkIndex);
-    }
-
-    private static String normalize(@Nullable String input) {
-        if (input == null) {
-            return "";
-        }
-        String stripped = HTML_TAG_PATTERN.matcher(input).replaceAll("");
-        return stripped.trim().toLowerCase(Locale.ROOT);
+        return context.isExplored(marker.transform.position.x, marker.transform.position.z);
     }
 
     private static String markerIdentity(MapMarker marker) {
         if (marker == null) {
             return null;
         }
-        String name = normalize(marker.name);
-        String image = normalize(marker.markerImage);
+        HiddenNameMatcher.MarkerNames names = HiddenNameMatcher.namesOf(marker);
         long chunkIndex = Long.MIN_VALUE;
         if (marker.transform != null && marker.transform.position != null) {
             int chunkX = ChunkUtil.blockToChunkCoord(marker.transform.position.x);
             int chunkZ = ChunkUtil.blockToChunkCoord(marker.transform.position.z);
             chunkIndex = ChunkUtil.chunkCoordsToIndex(chunkX, chunkZ);
         }
-        return name + "|" + image + "|" + chunkIndex;
+        return names.name + "|" + names.image + "|" + chunkIndex;
     }
 }
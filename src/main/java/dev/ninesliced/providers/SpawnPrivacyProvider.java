@@ -4,77 +4,40 @@ import com.hypixel.hytale.math.vector.Transform;
 import com.hypixel.hytale.math.vector.Vector3d;
 import com.hypixel.hytale.protocol.packets.worldmap.MapMarker;
 import com.hypixel.hytale.server.core.asset.type.gameplay.WorldMapConfig;
-import com.hypixel.hytale.server.core.entity.entities.Player;
 import com.hypixel.hytale.server.core.universe.world.World;
 import com.hypixel.hytale.server.core.universe.world.spawn.ISpawnProvider;
 import com.hypixel.hytale.server.core.universe.world.worldmap.WorldMapManager;
 import com.hypixel.hytale.server.core.universe.world.worldmap.markers.MapMarkerTracker;
 import com.hypixel.hytale.server.core.util.PositionUtil;
-import dev.ninesliced.configs.BetterMapConfig;
-import dev.ninesliced.configs.PlayerConfig;
-import dev.ninesliced.managers.PlayerConfigManager;
-import dev.ninesliced.utils.PermissionsUtil;
-import com.hypixel.hytale.server.core.command.system.CommandSender;
-import java.util.List;
+import dev.ninesliced.configs.ViewerPolicy;
+import javax.annotation.Nonnull;
 import java.util.UUID;
 import java.util.logging.Logger;
 
 /**
  * Provider that can optionally hide spawn markers on the world map.
  */
-public class SpawnPrivacyProvider implements WorldMapManager.MarkerProvider {
+public class SpawnPrivacyProvider implements WorldMapManager.MarkerProvider, MarkerStage {
     public static final String PROVIDER_ID = "spawn";
     private static final Logger LOGGER = Logger.getLogger(SpawnPrivacyProvider.class.getName());
 
     @Override
     public void update(World world, MapMarkerTracker tracker, int viewRadius, int chunkX, int chunkZ) {
-        try {
-            BetterMapConfig globalConfig = BetterMapConfig.getInstance();
-
-            Player player = tracker.getPlayer();
-            if (player == null) {
-                return;
-            }
-
-            UUID playerUuid = ((CommandSender) player).getUuid();
-            PlayerConfig playerConfig = null;
-            if (playerUuid != null) {
-                playerConfig = PlayerConfigManager.getInstance().getPlayerConfig(playerUuid);
-            }
-
-            boolean canOverrideSpawn = PermissionsUtil.canOverrideSpawn(player);
-            boolean overrideEnabled = canOverrideSpawn
-                && playerConfig != null
-                && playerConfig.isOverrideGlobalSpawnHide();
+        if (world == null || tracker == null || CompositeMarkerProvider.handles(world)) {
+            return;
+        }
+        update(new MarkerViewContext(world, tracker, viewRadius, chunkX, chunkZ));
+    }
 
-            if (globalConfig.isHideSpawnOnMap() && !overrideEnabled) {
+    @Override
+    public void update(@Nonnull MarkerViewContext context) {
+        try {
+            ViewerPolicy policy = context.getPolicy();
+            if (policy == null || policy.isHideSpawn()) {
                 return;
             }
-
-            if (!overrideEnabled) {
-                List<String> hiddenNames = globalConfig.getHiddenPoiNames();
-                if (hiddenNames != null) {
-                    for (String hidden : hiddenNames) {
-                        if ("spawn".equalsIgnoreCase(hidden.trim())) {
-                            return;
-                        }
-                    }
-                }
-            }
-
-            if (playerUuid != null && playerConfig != null) {
-                if (playerConfig.isHideSpawnOnMap()) {
-                    return;
-                }
-                List<String> playerHiddenNames = playerConfig.getHiddenPoiNames();
-                if (playerHiddenNames != null) {
-                    for (String hidden : playerHiddenNames) {
-                        if ("spawn".equalsIgnoreCase(hidden.trim())) {
-                            return;
-                        }
-                    }
-                }
-            }
+            UUID playerUuid = policy.getViewerUuid();
+            World world = context.getWorld();
 
             var gameplayConfig = world.getGameplayConfig();
             if (gameplayConfig == null) {
@@ -97,9 +60,13 @@ public class SpawnPrivacyProvider implements WorldMapManager.MarkerProvider {
             }
 
             Vector3d position = spawnTransform.getPosition();
+            if (!context.isInView(position.x, position.z)) {
+                return;
+            }
             float yaw = spawnTransform.getRotation().getYaw();
 
-            tracker.trySendMarker(viewRadius, chunkX, chunkZ, position, yaw, "Spawn", "Spawn",
+            context.getTracker().trySendMarker(context.getViewRadius(), context.getChunkX(), context.getChunkZ(),
+                position, yaw, "Spawn", "Spawn",
                 position, (id, name, pos) -> new MapMarker(
                     id,
                     name,
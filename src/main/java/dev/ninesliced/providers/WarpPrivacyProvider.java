@@ -2,39 +2,31 @@ package dev.ninesliced.providers;
 
 import com.hypixel.hytale.builtin.teleport.TeleportPlugin;
 import com.hypixel.hytale.builtin.teleport.Warp;
-import com.hypixel.hytale.component.Ref;
 import com.hypixel.hytale.math.vector.Transform;
 import com.hypixel.hytale.math.vector.Vector3f;
 import com.hypixel.hytale.protocol.packets.worldmap.MapMarker;
 import com.hypixel.hytale.server.core.entity.entities.Player;
-import com.hypixel.hytale.server.core.universe.PlayerRef;
 import com.hypixel.hytale.server.core.universe.world.World;
-import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 import com.hypixel.hytale.server.core.universe.world.worldmap.WorldMapManager;
 import com.hypixel.hytale.server.core.universe.world.worldmap.markers.MapMarkerTracker;
 import com.hypixel.hytale.server.core.util.PositionUtil;
-import dev.ninesliced.configs.BetterMapConfig;
-import dev.ninesliced.configs.PlayerConfig;
-import dev.ninesliced.exploration.ExplorationTracker;
+import dev.ninesliced.configs.ViewerPolicy;
+import dev.ninesliced.exploration.RevealedMarkers;
 import dev.ninesliced.integration.ExtendedTeleportIntegration;
-import dev.ninesliced.listeners.ExplorationEventListener;
-import dev.ninesliced.managers.ExplorationManager;
-import dev.ninesliced.managers.PlayerConfigManager;
-import dev.ninesliced.utils.ChunkUtil;
-import dev.ninesliced.utils.PermissionsUtil;
+import dev.ninesliced.managers.MarkerIndexManager;
 import com.hypixel.hytale.server.core.command.system.CommandSender;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Set;
 import java.util.UUID;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 /**
  * Provides warp markers on the world map while optionally hiding other players' warps.
  */
-public class WarpPrivacyProvider implements WorldMapManager.MarkerProvider {
+public class WarpPrivacyProvider implements WorldMapManager.MarkerProvider, MarkerStage {
 
     public static final String PROVIDER_ID = "warps";
     private static final Logger LOGGER = Logger.getLogger(WarpPrivacyProvider.class.getName());
@@ -45,11 +37,15 @@ public class WarpPrivacyProvider implements WorldMapManager.MarkerProvider {
 
     public void update(World world, MapMarkerTracker tracker,
                        int viewRadius, int chunkX, int chunkZ) {
-        try {
-            if (world == null || tracker == null) {
-                return;
-            }
+        if (world == null || tracker == null || CompositeMarkerProvider.handles(world)) {
+            return;
+        }
+        update(new MarkerViewContext(world, tracker, viewRadius, chunkX, chunkZ));
+    }
 
+    @Override
+    public void update(@Nonnull MarkerViewContext context) {
+        try {
             TeleportPlugin plugin = TeleportPlugin.get();
             if (plugin == null) {
                 return;
@@ -60,105 +56,82 @@ public class WarpPrivacyProvider implements WorldMapManager.MarkerProvider {
                 return;
             }
 
-
-            Player viewer = tracker.getPlayer();
-            String viewerName = resolveViewerName(viewer);
-
-            BetterMapConfig globalConfig = BetterMapConfig.getInstance();
-            boolean canOverrideWarps = viewer != null && PermissionsUtil.canOverrideWarps(viewer);
-            boolean canOverrideUnexplored = viewer != null && PermissionsUtil.canOverrideUnexploredWarps(viewer);
-            PlayerConfig playerConfig = null;
-            if (viewer != null) {
-                UUID playerUuid = ((CommandSender) viewer).getUuid();
-                if (playerUuid != null) {
-                    playerConfig = PlayerConfigManager.getInstance().getPlayerConfig(playerUuid);
-                }
-            }
-            boolean overrideAllEnabled = canOverrideWarps
-                && playerConfig != null
-                && playerConfig.isOverrideGlobalAllWarpsHide();
-            boolean overrideOtherEnabled = canOverrideWarps
-                && playerConfig != null
-                && playerConfig.isOverrideGlobalOtherWarpsHide();
-            
-            boolean extendedTeleportAvailable = ExtendedTeleportIntegration.getInstance().isAvailable();
-            boolean overrideUnexploredEnabled = canOverrideUnexplored
-                && playerConfig != null
-                && playerConfig.isOverrideGlobalAllWarpsHide();
-            boolean hideAllWarps = globalConfig.isHideAllWarpsOnMap() && !overrideAllEnabled;
-            boolean hideOtherWarps = extendedTeleportAvailable 
-                && globalConfig.isHideOtherWarpsOnMap() && !overrideOtherEnabled;
-            boolean hideUnexploredWarps = globalConfig.isHideUnexploredWarpsOnMap() && !overrideUnexploredEnabled;
-
-            if (playerConfig != null) {
-                if (!hideAllWarps && playerConfig.isHideAllWarpsOnMap()) {
-                    hideAllWarps = true;
-                }
-                if (extendedTeleportAvailable && !hideOtherWarps && playerConfig.isHideOtherWarpsOnMap()) {
-                    hideOtherWarps = true;
-                }
-            }
-
-            if (hideAllWarps) {
+            Player viewer = context.getViewer();
+            ViewerPolicy policy = context.getPolicy();
+            if (viewer == null || policy == null || policy.isHideAllWarps()) {
                 return;
             }
 
-            if (hideUnexploredWarps && !ExplorationEventListener.isTrackedWorld(world)) {
-                hideUnexploredWarps = false;
-            }
+            World world = context.getWorld();
+            MapMarkerTracker tracker = context.getTracker();
+            int viewRadius = context.getViewRadius();
+            int chunkX = context.getChunkX();
+            int chunkZ = context.getChunkZ();
+            String viewerName = policy.getViewerName();
+            boolean hideOtherWarps = policy.isHideOtherWarps();
+            boolean hideUnexploredWarps = policy.isHideUnexploredWarps() && context.isTrackedWorld();
 
-            ExplorationTracker.PlayerExplorationData explorationData = null;
-            Set<Long> sharedExploredChunks = null;
-            if (hideUnexploredWarps) {
-                if (globalConfig.isShareAllExploration()) {
-                    sharedExploredChunks = ExplorationManager.getInstance().getAllExploredChunks(world.getName());
-                } else if (viewer != null) {
-                    explorationData = ExplorationTracker.getInstance().getPlayerData(viewer);
-                }
-            }
-
-            for (Warp warp : warps.values()) {
-                if (warp == null) {
-                    continue;
-                }
+            MarkerIndexManager.WorldIndex index = context.getMarkerIndex();
 
-                String warpWorld = warp.getWorld();
-                if (warpWorld == null || !warpWorld.equals(world.getName())) {
-                    continue;
+            if (hideUnexploredWarps) {
+                RevealedMarkers revealed = context.getRevealed();
+                if (revealed == null) {
+                    return;
                 }
-
-                if (hideOtherWarps && !isVisibleToViewer(warp, viewer, viewerName)) {
-                    continue;
+                for (String warpId : revealed.getWarpIds()) {
+                    MarkerIndexManager.IndexedMarker indexed = index.getWarp(warpId);
+                    if (indexed != null && !indexed.isInRange(chunkX, chunkZ, viewRadius)) {
+                        continue;
+                    }
+                    Warp warp = warps.get(warpId);
+                    if (warp != null) {
+                        sendWarp(world, tracker, viewRadius, chunkX, chunkZ, warp, hideOtherWarps, viewer, viewerName);
+                    }
                 }
+                return;
+            }
 
-                Transform transform = warp.getTransform();
-                if (transform == null || transform.getPosition() == null) {
-                    continue;
+            index.forEachInRange(true, chunkX, chunkZ, viewRadius, indexed -> {
+                Warp warp = warps.get(indexed.id);
+                if (warp != null) {
+                    sendWarp(world, tracker, viewRadius, chunkX, chunkZ, warp, hideOtherWarps, viewer, viewerName);
                 }
+            });
+        } catch (Exception e) {
+            LOGGER.warning("Error in WarpPrivacyProvider.update: " + e.getMessage());
+        }
+    }
 
-                if (hideUnexploredWarps && !isWarpExplored(transform, explorationData, sharedExploredChunks)) {
-                    continue;
-                }
+    private static void sendWarp(World world, MapMarkerTracker tracker, int viewRadius, int chunkX, int chunkZ,
+                                 Warp warp, boolean hideOtherWarps, Player viewer, @Nullable String viewerName) {
+        String warpWorld = warp.getWorld();
+        if (warpWorld == null || !warpWorld.equals(world.getName())) {
+            return;
+        }
 
-                Vector3f rotation = transform.getRotation();
-                float yaw = rotation != null ? rotation.getYaw() : 0.0f;
+        if (hideOtherWarps && !isVisibleToViewer(warp, viewer, viewerName)) {
+            return;
+        }
 
-                tracker.trySendMarker(
-                    viewRadius,
-                    chunkX,
-                    chunkZ,
-                    transform.getPosition(),
-                    yaw,
-                    buildMarkerId(warp),
-                    buildMarkerName(warp),
-                    warp,
-                    WarpPrivacyProvider::createMarker
-                );
-            }
-            
-        } catch (Exception e) {
-            LOGGER.warning("Error in WarpPrivacyProvider.update: " + e.getMessage());
+        Transform transform = warp.getTransform();
+        if (transform == null || transform.getPosition() == null) {
+            return;
         }
+
+        Vector3f rotation = transform.getRotation();
+        float yaw = rotation != null ? rotation.getYaw() : 0.0f;
+
+        tracker.trySendMarker(
+            viewRadius,
+            chunkX,
+            chunkZ,
+            transform.getPosition(),
+            yaw,
+            buildMarkerId(warp),
+            buildMarkerName(warp),
+            warp,
+            WarpPrivacyProvider::createMarker
+        );
     }
 
     private static boolean isVisibleToViewer(Warp warp, @Nullable Player viewer, @Nullable String viewerName) {
@@ -216,44 +189,6 @@ public class WarpPrivacyProvider implements WorldMapManager.MarkerProvider {
         return false;
     }
 
-    @Nullable
-    private static String resolveViewerName(@Nullable Player viewer) {
-        if (viewer == null) {
-            return null;
-        }
-
-        try {
-            Ref<EntityStore> ref = viewer.getReference();
-            if (ref != null) {
-                PlayerRef playerRef = ref.getStore().getComponent(ref, PlayerRef.getComponentType());
-                if (playerRef != null && playerRef.getUsername() != null && !playerRef.getUsername().isEmpty()) {
-                    return playerRef.getUsername();
-                }
-            }
-        } catch (Exception ignored) {
-        }
-
-        return viewer.getDisplayName();
-    }
-
-    private static boolean isWarpExplored(Transform transform,
-                                          @Nullable ExplorationTracker.PlayerExplorationData explorationData,
-                                          @Nullable Set<Long> sharedExploredChunks) {
-        int chunkX = ChunkUtil.blockToChunkCoord(transform.getPosition().x);
-        int chunkZ = ChunkUtil.blockToChunkCoord(transform.getPosition().z);
-        long chunkIndex = ChunkUtil.chunkCoordsToIndex(chunkX, chunkZ);
-
-        if (sharedExploredChunks != null) {
-            return sharedExploredChunks.contains(chunkIndex);
-        }
-
-        if (explorationData == null) {
-            return false;
-        }
-
-        return explorationData.getExploredChunks().isChunkExplored(chunkIndex);
-    }
-
     private static String normalizeName(@Nullable String input) {
         if (input == null) {
             return "";
@@ -191,7 +191,8 @@ public class WaypointEditPage extends InteractiveCustomUIPage<WaypointEditPage.E
                 if (targetId != null) {
                     MapMarker old = WaypointManager.getWaypoint(player, targetId);
                     boolean wasGlobal = old != null && old.id != null && old.id.startsWith("global_waypoint_");
-                    if (wantsGlobal != wasGlobal && old != null) {
+                    // Layer waypoints stay in their layer; only their name, color and position change.
+                    if (wantsGlobal != wasGlobal && old != null && !WaypointManager.isLayerId(targetId)) {
                         WaypointManager.removeWaypoint(player, targetId);
                         WaypointManager.addWaypoint(player, newName, selectedColor, packetTransform, wantsGlobal);
                     } else if (old != null) {
@@ -25,13 +25,27 @@ import dev.ninesliced.managers.WaypointManager;
 import dev.ninesliced.utils.PermissionsUtil;
 import com.hypixel.hytale.math.vector.Vector3d;
 import com.hypixel.hytale.math.vector.Vector3f;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
 import javax.annotation.Nonnull;
 
 public class WaypointMenuPage extends InteractiveCustomUIPage<WaypointMenuPage.WaypointGuiData> {
 
     private static final String WAYPOINT_LIST_PATH = "#WaypointListContainer";
+    private static final int PAGE_SIZE = 25;
+
+    private boolean sortByDistance;
+    private String searchQuery = "";
+    private int page;
+    private List<Row> renderedRows = Collections.emptyList();
+    private boolean renderedCanTeleport;
+    private boolean renderedCanManageGlobal;
 
     public WaypointMenuPage(@Nonnull PlayerRef playerRef) {
         super(playerRef, CustomPageLifetime.CanDismiss, WaypointGuiData.CODEC);
@@ -53,103 +67,219 @@ public class WaypointMenuPage extends InteractiveCustomUIPage<WaypointMenuPage.W
             new EventData().put(WaypointGuiData.KEY_ACTION, Action.CLOSE.name()),
             false
         );
+        events.addEventBinding(
+            CustomUIEventBindingType.Activating,
+            "#SortButton",
+            new EventData().put(WaypointGuiData.KEY_ACTION, Action.SORT.name()),
+            false
+        );
+        events.addEventBinding(
+            CustomUIEventBindingType.Activating,
+            "#PrevButton",
+            new EventData().put(WaypointGuiData.KEY_ACTION, Action.PREVIOUS.name()),
+            false
+        );
+        events.addEventBinding(
+            CustomUIEventBindingType.Activating,
+            "#NextButton",
+            new EventData().put(WaypointGuiData.KEY_ACTION, Action.NEXT.name()),
+            false
+        );
+        events.addEventBinding(
+            CustomUIEventBindingType.ValueChanged,
+            "#SearchInput",
+            new EventData().put(WaypointGuiData.KEY_SEARCH, "#SearchInput.Value"),
+            false
+        );
 
-        buildWaypointList(ref, store, ui, events);
+        ui.set("#SearchInput.Value", searchQuery);
+        buildWaypointList(ref, store, ui, events, true);
     }
 
+    /**
+     * Renders the current page of the waypoint list.
+     * <p>
+     * Only one page of rows is ever sent. If the page shows the same waypoints in the same slots
+     * as last time, only the rows whose contents changed are updated in place; otherwise the
+     * page's rows are rebuilt. The event bindings of a row only depend on its waypoint id and the
+     * player's permissions, so rows updated in place keep theirs.
+     */
     private void buildWaypointList(
         @Nonnull Ref<EntityStore> ref,
         @Nonnull Store<EntityStore> store,
         @Nonnull UICommandBuilder ui,
-        @Nonnull UIEventBuilder events
+        @Nonnull UIEventBuilder events,
+        boolean rebuild
     ) {
-        ui.clear(WAYPOINT_LIST_PATH);
-
         Player player = store.getComponent(ref, Player.getComponentType());
         if (player == null) {
             return;
         }
 
-        MapMarker[] markers = WaypointManager.getWaypoints(player);
-        if (markers == null) {
-            return;
-        }
+        List<MapMarker> filtered = filteredWaypoints(ref, store, player);
+        int pageCount = Math.max(1, (filtered.size() + PAGE_SIZE - 1) / PAGE_SIZE);
+        page = Math.max(0, Math.min(page, pageCount - 1));
+        List<MapMarker> visible = filtered.subList(page * PAGE_SIZE, Math.min(filtered.size(), (page + 1) * PAGE_SIZE));
+
+        ui.set("#SortButton.Text", sortByDistance ? "Sort: Distance" : "Sort: List");
+        ui.set("#PageLabel.Text", "Page " + (page + 1) + " / " + pageCount + " (" + filtered.size() + ")");
+        ui.set("#PrevButton.Visible", page > 0);
+        ui.set("#NextButton.Visible", page < pageCount - 1);
 
         boolean canTeleport = PermissionsUtil.canTeleport(player)
             && BetterMapConfig.getInstance().isAllowWaypointTeleports();
+        boolean canManageGlobal = PermissionsUtil.canUseGlobalWaypoints(player);
+        String worldName = player.getWorld() != null ? player.getWorld().getName() : null;
+        if (worldName == null || worldName.isEmpty()) {
+            worldName = "-";
+        }
+
+        List<Row> rows = new ArrayList<>(visible.size());
+        for (MapMarker marker : visible) {
+            rows.add(new Row(marker, worldName));
+        }
 
-        int index = 0;
-        for (MapMarker marker : markers) {
-            if (marker == null) {
-                continue;
+        boolean sameSlots = !rebuild
+            && canTeleport == renderedCanTeleport
+            && canManageGlobal == renderedCanManageGlobal
+            && rows.size() == renderedRows.size();
+        for (int i = 0; sameSlots && i < rows.size(); i++) {
+            sameSlots = Objects.equals(rows.get(i).id, renderedRows.get(i).id);
+        }
+
+        if (sameSlots) {
+            for (int i = 0; i < rows.size(); i++) {
+                if (!rows.get(i).equals(renderedRows.get(i))) {
+                    setRowLabels(ui, WAYPOINT_LIST_PATH + "[" + i + "]", rows.get(i));
+                }
+            }
+        } else {
+            ui.clear(WAYPOINT_LIST_PATH);
+            for (int i = 0; i < rows.size(); i++) {
+                appendRow(ui, events, i, rows.get(i), canTeleport, canManageGlobal);
             }
+        }
 
-            String itemPath = WAYPOINT_LIST_PATH + "[" + index + "]";
+        renderedRows = rows;
+        renderedCanTeleport = canTeleport;
+        renderedCanManageGlobal = canManageGlobal;
+    }
 
-            ui.append(WAYPOINT_LIST_PATH, "Pages/BetterMap/WaypointItem.ui");
-            ui.set(itemPath + " #NameLabel.Text", marker.name != null ? marker.name : "Unnamed");
-            ui.set(itemPath + " #IconLabel.Text", "[" + colorLabel(marker.markerImage) + "]");
-            
-            boolean isGlobal = WaypointManager.isGlobalId(marker.id);
-            ui.set(itemPath + " #SharedLabel.Text", isGlobal ? "(Global)" : "(Local)");
+    private List<MapMarker> filteredWaypoints(@Nonnull Ref<EntityStore> ref, @Nonnull Store<EntityStore> store, @Nonnull Player player) {
+        MapMarker[] markers = WaypointManager.getWaypoints(player);
+        if (markers == null || markers.length == 0) {
+            return Collections.emptyList();
+        }
 
-            String worldName = player.getWorld() != null ? player.getWorld().getName() : "-";
-            if (worldName == null || worldName.isEmpty()) {
-                worldName = "-";
+        List<MapMarker> ordered = null;
+        if (sortByDistance) {
+            TransformComponent transform = store.getComponent(ref, TransformComponent.getComponentType());
+            if (transform != null && transform.getPosition() != null) {
+                ordered = WaypointManager.findNearestWaypoints(player,
+                    transform.getPosition().x, transform.getPosition().z, markers.length);
             }
-            ui.set(itemPath + " #WorldValue.Text", worldName);
-
-            double x = 0.0;
-            double y = 0.0;
-            double z = 0.0;
-            if (marker.transform != null && marker.transform.position != null) {
-                x = marker.transform.position.x;
-                y = marker.transform.position.y;
-                z = marker.transform.position.z;
+        }
+
+        if (searchQuery.isBlank()) {
+            if (ordered != null) {
+                return ordered;
             }
-            ui.set(itemPath + " #XValue.Text", String.format(Locale.ROOT, "%.1f", x));
-            ui.set(itemPath + " #YValue.Text", String.format(Locale.ROOT, "%.1f", y));
-            ui.set(itemPath + " #ZValue.Text", String.format(Locale.ROOT, "%.1f", z));
-
-            ui.set(itemPath + " #TeleportButton.Visible", canTeleport);
-            if (canTeleport) {
-                events.addEventBinding(
-                    CustomUIEventBindingType.Activating,
-                    itemPath + " #TeleportButton",
-                    new EventData()
-                        .put(WaypointGuiData.KEY_TARGET_ID, marker.id)
-                        .put(WaypointGuiData.KEY_ACTION, Action.TELEPORT.name()),
-                    false
-                );
+            List<MapMarker> all = new ArrayList<>(markers.length);
+            for (MapMarker marker : markers) {
+                if (marker != null) {
+                    all.add(marker);
+                }
             }
+            return all;
+        }
 
-            boolean canDelete = !isGlobal || PermissionsUtil.canUseGlobalWaypoints(player);
-            ui.set(itemPath + " #EditButton.Visible", canDelete);
-            if (canDelete) {
-                events.addEventBinding(
-                    CustomUIEventBindingType.Activating,
-                    itemPath + " #EditButton",
-                    new EventData()
-                        .put(WaypointGuiData.KEY_TARGET_ID, marker.id)
-                        .put(WaypointGuiData.KEY_ACTION, Action.EDIT.name()),
-                    false
-                );
+        List<MapMarker> matches = WaypointManager.findWaypointsByPrefix(player, searchQuery, markers.length);
+        if (ordered == null) {
+            return matches;
+        }
+        Set<MapMarker> matched = Collections.newSetFromMap(new IdentityHashMap<>());
+        matched.addAll(matches);
+        List<MapMarker> result = new ArrayList<>(matches.size());
+        for (MapMarker marker : ordered) {
+            if (matched.contains(marker)) {
+                result.add(marker);
             }
+        }
+        return result;
+    }
 
-            ui.set(itemPath + " #DeleteButton.Visible", canDelete);
-            if (canDelete) {
-                events.addEventBinding(
-                    CustomUIEventBindingType.Activating,
-                    itemPath + " #DeleteButton",
-                    new EventData()
-                        .put(WaypointGuiData.KEY_TARGET_ID, marker.id)
-                        .put(WaypointGuiData.KEY_ACTION, Action.DELETE.name()),
-                    false
-                );
-            }
+    private static void appendRow(
+        @Nonnull UICommandBuilder ui,
+        @Nonnull UIEventBuilder events,
+        int index,
+        @Nonnull Row row,
+        boolean canTeleport,
+        boolean canManageGlobal
+    ) {
+        String itemPath = WAYPOINT_LIST_PATH + "[" + index + "]";
+        ui.append(WAYPOINT_LIST_PATH, "Pages/BetterMap/WaypointItem.ui");
+        setRowLabels(ui, itemPath, row);
+
+        ui.set(itemPath + " #TeleportButton.Visible", canTeleport);
+        if (canTeleport) {
+            events.addEventBinding(
+                CustomUIEventBindingType.Activating,
+                itemPath + " #TeleportButton",
+                new EventData()
+                    .put(WaypointGuiData.KEY_TARGET_ID, row.id)
+                    .put(WaypointGuiData.KEY_ACTION, Action.TELEPORT.name()),
+                false
+            );
+        }
+
+        boolean canDelete = !row.global || canManageGlobal;
+        ui.set(itemPath + " #EditButton.Visible", canDelete);
+        ui.set(itemPath + " #DeleteButton.Visible", canDelete);
+        if (canDelete) {
+            events.addEventBinding(
+                CustomUIEventBindingType.Activating,
+                itemPath + " #EditButton",
+                new EventData()
+                    .put(WaypointGuiData.KEY_TARGET_ID, row.id)
+                    .put(WaypointGuiData.KEY_ACTION, Action.EDIT.name()),
+                false
+            );
+            events.addEventBinding(
+                CustomUIEventBindingType.Activating,
+                itemPath + " #DeleteButton",
+                new EventData()
+                    .put(WaypointGuiData.KEY_TARGET_ID, row.id)
+                    .put(WaypointGuiData.KEY_ACTION, Action.DELETE.name()),
+                false
+            );
+        }
+    }
 
-            index++;
+    private static String scopeLabel(@Nonnull Row row) {
+        if (row.global) {
+            return "(Global)";
         }
+        String layer = row.id != null ? WaypointManager.getLayerOfId(row.id) : null;
+        return layer != null ? "(" + layer + ")" : "(Local)";
+    }
+
+    private static void setRowLabels(@Nonnull UICommandBuilder ui, @Nonnull String itemPath, @Nonnull Row row) {
+        ui.set(itemPath + " #NameLabel.Text", row.name);
+        ui.set(itemPath + " #IconLabel.Text", row.icon);
+        ui.set(itemPath + " #SharedLabel.Text", scopeLabel(row));
+        ui.set(itemPath + " #WorldValue.Text", row.world);
+        ui.set(itemPath + " #XValue.Text", row.x);
+        ui.set(itemPath + " #YValue.Text", row.y);
+        ui.set(itemPath + " #ZValue.Text", row.z);
+    }
+
+    /**
+     * Formats a coordinate with one decimal, like {@code %.1f} but without the formatter.
+     */
+    private static String formatCoordinate(double value) {
+        long tenths = Math.round(value * 10.0);
+        long abs = Math.abs(tenths);
+        return (tenths < 0 ? "-" : "") + (abs / 10) + "." + (abs % 10);
     }
 
     private static String colorLabel(String markerImage) {
@@ -179,6 +309,16 @@ public class WaypointMenuPage extends InteractiveCustomUIPage<WaypointMenuPage.W
             return;
         }
 
+        if (data.search != null) {
+            String query = data.search.trim();
+            if (!query.equals(searchQuery)) {
+                searchQuery = query;
+                page = 0;
+                refreshWaypoints(ref, store);
+            }
+            return;
+        }
+
         Action action = Action.from(data.action);
         if (action == null) {
             return;
@@ -193,6 +333,19 @@ public class WaypointMenuPage extends InteractiveCustomUIPage<WaypointMenuPage.W
             case CREATE -> {
                 player.getPageManager().openCustomPage(ref, store, new WaypointEditPage(this.playerRef, null));
             }
+            case SORT -> {
+                sortByDistance = !sortByDistance;
+                page = 0;
+                refreshWaypoints(ref, store);
+            }
+            case PREVIOUS -> {
+                page--;
+                refreshWaypoints(ref, store);
+            }
+            case NEXT -> {
+                page++;
+                refreshWaypoints(ref, store);
+            }
             case DELETE -> {
                 if (data.targetId != null && !data.targetId.isEmpty()) {
                     if (WaypointManager.isGlobalId(data.targetId) && !PermissionsUtil.canUseGlobalWaypoints(player)) {
@@ -245,7 +398,7 @@ public class WaypointMenuPage extends InteractiveCustomUIPage<WaypointMenuPage.W
     private void refreshWaypoints(@Nonnull Ref<EntityStore> ref, @Nonnull Store<EntityStore> store) {
         UICommandBuilder ui = new UICommandBuilder();
         UIEventBuilder events = new UIEventBuilder();
-        buildWaypointList(ref, store, ui, events);
+        buildWaypointList(ref, store, ui, events, false);
         sendUpdate(ui, events, false);
     }
 
@@ -254,6 +407,9 @@ public class WaypointMenuPage extends InteractiveCustomUIPage<WaypointMenuPage.W
         EDIT,
         DELETE,
         TELEPORT,
+        SORT,
+        PREVIOUS,
+        NEXT,
         CLOSE;
 
         static Action from(String raw) {
@@ -268,9 +424,50 @@ public class WaypointMenuPage extends InteractiveCustomUIPage<WaypointMenuPage.W
         }
     }
 
+    /**
+     * The displayed contents of one list row.
+     */
+    private static final class Row {
+        private final String id;
+        private final String name;
+        private final String icon;
+        private final boolean global;
+        private final String world;
+        private final String x;
+        private final String y;
+        private final String z;
+
+        private Row(@Nonnull MapMarker marker, @Nonnull String world) {
+            this.id = marker.id;
+            this.name = marker.name != null ? marker.name : "Unnamed";
+            this.icon = "[" + colorLabel(marker.markerImage) + "]";
+            this.global = WaypointManager.isGlobalId(marker.id);
+            this.world = world;
+            boolean positioned = marker.transform != null && marker.transform.position != null;
+            this.x = formatCoordinate(positioned ? marker.transform.position.x : 0.0);
+            this.y = formatCoordinate(positioned ? marker.transform.position.y : 0.0);
+            this.z = formatCoordinate(positioned ? marker.transform.position.z : 0.0);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Row other)) return false;
+            return global == other.global && Objects.equals(id, other.id) && name.equals(other.name)
+                && icon.equals(other.icon) && world.equals(other.world)
+                && x.equals(other.x) && y.equals(other.y) && z.equals(other.z);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(id, name, icon, global, world, x, y, z);
+        }
+    }
+
     public static class WaypointGuiData {
         static final String KEY_ACTION = "Action";
         static final String KEY_TARGET_ID = "TargetId";
+        static final String KEY_SEARCH = "@Search";
 
         public static final BuilderCodec<WaypointGuiData> CODEC = BuilderCodec.<WaypointGuiData>builder(
                 WaypointGuiData.class,
@@ -278,10 +475,12 @@ public class WaypointMenuPage extends InteractiveCustomUIPage<WaypointMenuPage.W
             )
             .append(new KeyedCodec<>(KEY_ACTION, Codec.STRING), (data, value) -> data.action = value, data -> data.action).add()
             .append(new KeyedCodec<>(KEY_TARGET_ID, Codec.STRING), (data, value) -> data.targetId = value, data -> data.targetId).add()
+            .append(new KeyedCodec<>(KEY_SEARCH, Codec.STRING), (data, value) -> data.search = value, data -> data.search).add()
             .build();
 
         private String action;
         private String targetId;
+        private String search;
 
         public WaypointGuiData() {
         }
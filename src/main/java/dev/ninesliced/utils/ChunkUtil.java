@@ -1,14 +1,20 @@
 package dev.ninesliced.utils;
 
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+
 import javax.annotation.Nonnull;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Utility class for chunk coordinate calculations.
  */
 public class ChunkUtil {
     private static final int CHUNK_SIZE = 16;
+    private static final Map<Integer, int[]> ROW_SPAN_CACHE = new ConcurrentHashMap<>();
 
     /**
      * Packs chunk coordinates into a long index.
@@ -76,6 +82,125 @@ public class ChunkUtil {
         return chunks;
     }
 
+    /**
+     * Gets the half-widths of each row of a filled circle, matching {@link #getChunksInCircularArea}.
+     * Entry {@code dz} holds the largest {@code dx} with {@code dx * dx + dz * dz <= radius * radius}.
+     * The spans are computed once per radius and cached.
+     *
+     * @param radiusChunks Radius in chunks.
+     * @return Row half-widths indexed by absolute row offset.
+     */
+    @Nonnull
+    public static int[] getCircleRowSpans(int radiusChunks) {
+        int radius = Math.max(0, radiusChunks);
+        return ROW_SPAN_CACHE.computeIfAbsent(radius, r -> {
+            int[] spans = new int[r + 1];
+            int radiusSquared = r * r;
+            int dx = r;
+            for (int dz = 0; dz <= r; dz++) {
+                while (dx * dx + dz * dz > radiusSquared) {
+                    dx--;
+                }
+                spans[dz] = dx;
+            }
+            return spans;
+        });
+    }
+
+    /**
+     * Gets the chunks covered by a circle swept from one chunk to another (a capsule).
+     * Each row is resolved to a single span, so the cost is proportional to the covered area.
+     *
+     * @param fromChunkX   Start chunk X.
+     * @param fromChunkZ   Start chunk Z.
+     * @param toChunkX     End chunk X.
+     * @param toChunkZ     End chunk Z.
+     * @param radiusChunks Radius in chunks.
+     * @param skipStart    If true, chunks inside the circle at the start position are left out.
+     * @return Set of chunk indices.
+     */
+    @Nonnull
+    public static LongSet getChunksInSweptArea(int fromChunkX, int fromChunkZ, int toChunkX, int toChunkZ, int radiusChunks, boolean skipStart) {
+        int radius = Math.max(0, radiusChunks);
+        int[] spans = getCircleRowSpans(radius);
+        LongSet chunks = new LongOpenHashSet();
+
+        long dx = toChunkX - fromChunkX;
+        long dz = toChunkZ - fromChunkZ;
+        double length = Math.sqrt((double) (dx * dx + dz * dz));
+        double lengthSquared = (double) (dx * dx + dz * dz);
+        double band = radius * length;
+
+        int minZ = Math.min(fromChunkZ, toChunkZ) - radius;
+        int maxZ = Math.max(fromChunkZ, toChunkZ) + radius;
+
+        for (int z = minZ; z <= maxZ; z++) {
+            int rowMin = Integer.MAX_VALUE;
+            int rowMax = Integer.MIN_VALUE;
+
+            int offsetFrom = Math.abs(z - fromChunkZ);
+            if (offsetFrom <= radius) {
+                rowMin = Math.min(rowMin, fromChunkX - spans[offsetFrom]);
+                rowMax = Math.max(rowMax, fromChunkX + spans[offsetFrom]);
+            }
+            int offsetTo = Math.abs(z - toChunkZ);
+            if (offsetTo <= radius) {
+                rowMin = Math.min(rowMin, toChunkX - spans[offsetTo]);
+                rowMax = Math.max(rowMax, toChunkX + spans[offsetTo]);
+            }
+
+            if (lengthSquared > 0) {
+                // Points whose projection falls on the segment and lie within radius of it.
+                // With u = x - fromX and pz = z - fromZ:
+                //   0 <= dx * u + dz * pz <= |d|^2   and   -r|d| <= dx * pz - dz * u <= r|d|
+                double pz = z - fromChunkZ;
+                double[] range = {Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY};
+                boolean inBand = clampLinear(range, dx, dz * pz, 0, lengthSquared)
+                        && clampLinear(range, -dz, dx * pz, -band, band);
+                if (inBand && range[0] <= range[1]) {
+                    int bandMin = (int) Math.ceil(range[0] - 1e-9) + fromChunkX;
+                    int bandMax = (int) Math.floor(range[1] + 1e-9) + fromChunkX;
+                    if (bandMin <= bandMax) {
+                        rowMin = Math.min(rowMin, bandMin);
+                        rowMax = Math.max(rowMax, bandMax);
+                    }
+                }
+            }
+
+            if (rowMin > rowMax) {
+                continue;
+            }
+
+            int skipMin = Integer.MAX_VALUE;
+            int skipMax = Integer.MIN_VALUE;
+            if (skipStart && offsetFrom <= radius) {
+                skipMin = fromChunkX - spans[offsetFrom];
+                skipMax = fromChunkX + spans[offsetFrom];
+            }
+
+            for (int x = rowMin; x <= rowMax; x++) {
+                if (x == skipMin) {
+                    x = skipMax;
+                    continue;
+                }
+                chunks.add(chunkCoordsToIndex(x, z));
+            }
+        }
+
+        return chunks;
+    }
+
+    private static boolean clampLinear(double[] range, double coefficient, double offset, double low, double high) {
+        if (coefficient == 0) {
+            return offset >= low && offset <= high;
+        }
+        double a = (low - offset) / coefficient;
+        double b = (high - offset) / coefficient;
+        range[0] = Math.max(range[0], Math.min(a, b));
+        range[1] = Math.min(range[1], Math.max(a, b));
+        return true;
+    }
+
     /**
      * Gets a set of chunk indices within a rectangular area.
      *
@@ -0,0 +1,286 @@
+package dev.ninesliced.utils;
+
+import com.hypixel.hytale.protocol.packets.worldmap.MapMarker;
+import dev.ninesliced.configs.BetterMapConfig;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Pre-normalized set of hidden POI names.
+ * <p>
+ * Hidden names are normalized once when the matcher is built, and the normalized
+ * name, id and icon of each marker are cached the first time the marker is seen
+ * (and recomputed only if its raw values change),
+ * so matching a marker is a few hash probes without any regex work.
+ * The cache is a bounded LRU split into segments, so once it is full only the least
+ * recently seen markers are evicted and world threads rarely contend on the same lock.
+ */
+public final class HiddenNameMatcher {
+    public static final HiddenNameMatcher EMPTY = new HiddenNameMatcher(Collections.emptySet());
+
+    private static final Pattern HTML_TAG_PATTERN = Pattern.compile("<[^>]*>");
+    private static final int MAX_CACHED_MARKERS = 16384;
+    private static final int CACHE_SEGMENTS = 16;
+    private static final MarkerNamesCache MARKER_NAMES = new MarkerNamesCache();
+
+    private static volatile GlobalEntry globalEntry;
+
+    private final Set<String> names;
+
+    private HiddenNameMatcher(Set<String> names) {
+        this.names = names;
+    }
+
+    /**
+     * Gets the matcher for the global hidden names, rebuilt only when the config version changes.
+     *
+     * @return The global matcher.
+     */
+    @Nonnull
+    public static HiddenNameMatcher global() {
+        BetterMapConfig config = BetterMapConfig.getInstance();
+        long version = config.getVersion();
+        GlobalEntry entry = globalEntry;
+        if (entry == null || entry.version != version) {
+            entry = new GlobalEntry(version, of(config.getHiddenPoiNames()));
+            globalEntry = entry;
+        }
+        return entry.matcher;
+    }
+
+    /**
+     * Builds a matcher from raw hidden names as they appear in config files.
+     *
+     * @param rawNames The hidden names, may be null.
+     * @return The matcher.
+     */
+    @Nonnull
+    public static HiddenNameMatcher of(@Nullable Collection<String> rawNames) {
+        if (rawNames == null || rawNames.isEmpty()) {
+            return EMPTY;
+        }
+        Set<String> normalized = new HashSet<>();
+        for (String raw : rawNames) {
+            String name = normalize(raw);
+            if (!name.isEmpty()) {
+                normalized.add(name);
+            }
+        }
+        return normalized.isEmpty() ? EMPTY : new HiddenNameMatcher(Collections.unmodifiableSet(normalized));
+    }
+
+    /**
+     * Combines this matcher with another one.
+     *
+     * @param other The other matcher.
+     * @return A matcher hiding the names of both.
+     */
+    @Nonnull
+    public HiddenNameMatcher merge(@Nonnull HiddenNameMatcher other) {
+        if (other.names.isEmpty()) {
+            return this;
+        }
+        if (names.isEmpty()) {
+            return other;
+        }
+        Set<String> merged = new HashSet<>(names);
+        merged.addAll(other.names);
+        return new HiddenNameMatcher(Collections.unmodifiableSet(merged));
+    }
+
+    public boolean isEmpty() {
+        return names.isEmpty();
+    }
+
+    /**
+     * Checks if an already normalized name is hidden.
+     *
+     * @param normalizedName The normalized name, e.g. {@code "spawn"}.
+     * @return True if the name is hidden.
+     */
+    public boolean contains(@Nonnull String normalizedName) {
+        return names.contains(normalizedName);
+    }
+
+    /**
+     * Checks if a marker's name, id or icon exactly matches a hidden name.
+     *
+     * @param marker The marker.
+     * @return True if the marker should be hidden.
+     */
+    public boolean matches(@Nonnull MapMarker marker) {
+        if (names.isEmpty()) {
+            return false;
+        }
+        MarkerNames markerNames = namesOf(marker);
+        return names.contains(markerNames.name)
+            || names.contains(markerNames.id)
+            || names.contains(markerNames.image);
+    }
+
+    /**
+     * Checks if a marker's name or icon matches or contains a hidden name.
+     * Used for block markers, whose names often carry extra detail.
+     *
+     * @param key  A stable key for the marker, used for caching.
+     * @param name The raw marker name.
+     * @param icon The raw marker icon.
+     * @return True if the marker should be hidden.
+     */
+    public boolean matchesPartial(@Nonnull String key, @Nullable String name, @Nullable String icon) {
+        if (names.isEmpty()) {
+            return false;
+        }
+        MarkerNames markerNames = namesOf(key, name, null, icon);
+        if (names.contains(markerNames.name) || names.contains(markerNames.image)) {
+            return true;
+        }
+        for (String hidden : names) {
+            if (markerNames.name.contains(hidden) || markerNames.image.contains(hidden)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the cached normalized names of a marker.
+     *
+     * @param marker The marker.
+     * @return The normalized names.
+     */
+    @Nonnull
+    public static MarkerNames namesOf(@Nonnull MapMarker marker) {
+        if (marker.id == null) {
+            return new MarkerNames(marker.name, null, marker.markerImage);
+        }
+        return namesOf(marker.id, marker.name, marker.id, marker.markerImage);
+    }
+
+    private static MarkerNames namesOf(String key, @Nullable String name, @Nullable String id, @Nullable String image) {
+        MarkerNames cached = MARKER_NAMES.get(key);
+        if (cached != null && cached.isFor(name, id, image)) {
+            return cached;
+        }
+        MarkerNames computed = new MarkerNames(name, id, image);
+        MARKER_NAMES.put(key, computed);
+        return computed;
+    }
+
+    /**
+     * Normalizes a marker name, id or icon for comparison with hidden names.
+     *
+     * @param input The raw value.
+     * @return The value without markup, trimmed and lower-cased.
+     */
+    @Nonnull
+    public static String normalize(@Nullable String input) {
+        if (input == null) {
+            return "";
+        }
+        return stripTags(input).trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Removes markup tags from a marker name.
+     *
+     * @param input The raw value.
+     * @return The value without markup.
+     */
+    @Nonnull
+    public static String stripTags(@Nonnull String input) {
+        return input.indexOf('<') >= 0 ? HTML_TAG_PATTERN.matcher(input).replaceAll("") : input;
+    }
+
+    /**
+     * Normalized name, id and icon of a single marker.
+     */
+    public static final class MarkerNames {
+        private final String rawName;
+        private final String rawId;
+        private final String rawImage;
+        public final String name;
+        public final String id;
+        public final String image;
+
+        private MarkerNames(@Nullable String rawName, @Nullable String rawId, @Nullable String rawImage) {
+            this.rawName = rawName;
+            this.rawId = rawId;
+            this.rawImage = rawImage;
+            this.name = normalize(rawName);
+            this.id = normalize(rawId);
+            this.image = normalize(rawImage);
+        }
+
+        private boolean isFor(@Nullable String name, @Nullable String id, @Nullable String image) {
+            return Objects.equals(rawName, name) && Objects.equals(rawId, id) && Objects.equals(rawImage, image);
+        }
+    }
+
+    /**
+     * Bounded LRU cache of marker names, split into independently locked segments by key hash.
+     */
+    private static final class MarkerNamesCache {
+        private final Segment[] segments = new Segment[CACHE_SEGMENTS];
+
+        private MarkerNamesCache() {
+            for (int i = 0; i < segments.length; i++) {
+                segments[i] = new Segment(MAX_CACHED_MARKERS / CACHE_SEGMENTS);
+            }
+        }
+
+        @Nullable
+        private MarkerNames get(String key) {
+            Segment segment = segmentOf(key);
+            synchronized (segment) {
+                return segment.get(key);
+            }
+        }
+
+        private void put(String key, MarkerNames names) {
+            Segment segment = segmentOf(key);
+            synchronized (segment) {
+                segment.put(key, names);
+            }
+        }
+
+        private Segment segmentOf(String key) {
+            int hash = key.hashCode();
+            return segments[(hash ^ (hash >>> 16)) & (CACHE_SEGMENTS - 1)];
+        }
+    }
+
+    private static final class Segment extends LinkedHashMap<String, MarkerNames> {
+        private final int capacity;
+
+        private Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, MarkerNames> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    private static final class GlobalEntry {
+        private final long version;
+        private final HiddenNameMatcher matcher;
+
+        private GlobalEntry(long version, HiddenNameMatcher matcher) {
+            this.version = version;
+            this.matcher = matcher;
+        }
+    }
+}
@@ -15,6 +15,7 @@ public final class PermissionsUtil {
     private static final String TELEPORT_PERMISSION = "dev.ninesliced.bettermap.command.teleport";
     private static final String WARP_GO_PERMISSION = "hytale.command.warp.go";
     private static final String GLOBAL_WAYPOINT_PERMISSION = "dev.ninesliced.bettermap.command.waypoint.global";
+    private static final String WAYPOINT_LAYER_PERMISSION_PREFIX = "dev.ninesliced.bettermap.waypoint.layer.";
     private static final String OVERRIDE_PLAYERS_PERMISSION = "bettermap.override.players";
     private static final String OVERRIDE_WARPS_PERMISSION = "bettermap.override.warps";
     private static final String OVERRIDE_UNEXPLORED_WARPS_PERMISSION = "bettermap.override.unexploredwarps";
@@ -70,6 +71,29 @@ public final class PermissionsUtil {
         return perms.hasPermission(uuid, GLOBAL_WAYPOINT_PERMISSION);
     }
 
+    /**
+     * Checks if a player is a member of a waypoint layer, i.e. may see and edit its waypoints.
+     * Membership is granted by the layer's permission node, usually through a permission group.
+     *
+     * @param player The player.
+     * @param layer  The layer name.
+     * @return True if the player is an operator or has the layer's permission.
+     */
+    public static boolean canUseWaypointLayer(@Nonnull Player player, @Nonnull String layer) {
+        PermissionsModule perms = PermissionsModule.get();
+        if (perms == null) {
+            return false;
+        }
+
+        UUID uuid = ((CommandSender) player).getUuid();
+        Set<String> groups = perms.getGroupsForUser(uuid);
+        if (groups != null && groups.contains("OP")) {
+            return true;
+        }
+
+        return perms.hasPermission(uuid, WAYPOINT_LAYER_PERMISSION_PREFIX + layer);
+    }
+
     public static boolean canOverridePlayers(@Nonnull Player player) {
         return hasOverridePermission(player, OVERRIDE_PLAYERS_PERMISSION);
     }
@@ -22,6 +22,10 @@ import dev.ninesliced.exploration.ExplorationTracker;
 import dev.ninesliced.managers.ExplorationManager;
 import dev.ninesliced.managers.MapExpansionManager;
 import dev.ninesliced.managers.PlayerConfigManager;
+import dev.ninesliced.managers.RevealedMarkerManager;
+import dev.ninesliced.managers.WaypointProximityManager;
+import dev.ninesliced.managers.WorldJobScheduler;
+import it.unimi.dsi.fastutil.longs.LongSet;
 
 import javax.annotation.Nonnull;
 import java.util.*;
@@ -209,6 +213,8 @@ public class WorldMapHook {
                 explorationData.setWorldName(world.getName());
             }
 
+            explorationData.recordPosition(x, z);
+
             int playerChunkX = ChunkUtil.blockToChunkCoord(x);
             int playerChunkZ = ChunkUtil.blockToChunkCoord(z);
 
@@ -217,8 +223,14 @@ public class WorldMapHook {
             if (hasMoved) {
                 int explorationRadius = BetterMapConfig.getInstance().getExplorationRadius();
 
-                explorationData.getMapExpansion().updateBoundaries(playerChunkX, playerChunkZ, explorationRadius);
+                LongSet newChunks = explorationData.getMapExpansion().updateSweptBoundaries(
+                        explorationData.getLastChunkX(), explorationData.getLastChunkZ(),
+                        playerChunkX, playerChunkZ, explorationRadius);
                 explorationData.setLastChunkPosition(playerChunkX, playerChunkZ);
+                if (world != null) {
+                    RevealedMarkerManager.getInstance().onChunksExplored(player, world, explorationData, newChunks);
+                    WaypointProximityManager.getInstance().onChunkChanged(player, world, x, z);
+                }
 
                 forceTrackerUpdate(player, tracker, x, z);
 
@@ -389,30 +401,29 @@ public class WorldMapHook {
     /**
      * Refreshes the map trackers for all players in the given world.
      * Use this when exploration data sharing settings change.
+     * The refresh is split into per-player jobs on the world's {@link WorldJobScheduler} queue.
      *
      * @param world The world.
      */
     public static void refreshTrackers(@Nonnull World world) {
-        for (PlayerRef playerRef : world.getPlayerRefs()) {
-            Holder<EntityStore> holder = playerRef.getHolder();
-            if (holder == null) continue;
-            Player player = holder.getComponent(Player.getComponentType());
-            if (player == null) continue;
+        WorldJobScheduler.getInstance().submitForPlayers(world, "refreshTracker", WorldJobScheduler.Priority.NORMAL,
+                WorldMapHook::refreshTracker);
+    }
 
-            try {
-                Ref<EntityStore> ref = playerRef.getReference();
-                if (ref != null && ref.isValid()) {
-                    TransformComponent tc = ref.getStore().getComponent(ref, TransformComponent.getComponentType());
-
-                    if (tc != null) {
-                        var pos = tc.getPosition();
-                        forceTrackerUpdate(player, player.getWorldMapTracker(), pos.x, pos.z);
-                        updateExplorationState(player, player.getWorldMapTracker(), pos.x, pos.z);
-                    }
+    private static void refreshTracker(@Nonnull PlayerRef playerRef, @Nonnull Player player) {
+        try {
+            Ref<EntityStore> ref = playerRef.getReference();
+            if (ref != null && ref.isValid()) {
+                TransformComponent tc = ref.getStore().getComponent(ref, TransformComponent.getComponentType());
+
+                if (tc != null) {
+                    var pos = tc.getPosition();
+                    forceTrackerUpdate(player, player.getWorldMapTracker(), pos.x, pos.z);
+                    updateExplorationState(player, player.getWorldMapTracker(), pos.x, pos.z);
                 }
-            } catch (Exception e) {
-                LOGGER.warning("Failed to refresh tracker for " + player.getDisplayName() + ": " + e.getMessage());
             }
+        } catch (Exception e) {
+            LOGGER.warning("Failed to refresh tracker for " + player.getDisplayName() + ": " + e.getMessage());
         }
     }
 
@@ -586,6 +597,7 @@ public class WorldMapHook {
                         Set<Long> bootstrapChunks = ChunkUtil.getChunksInCircularArea(worldChunkX, worldChunkZ, bootstrapRadius);
                         data.getExploredChunks().markChunksExplored(bootstrapChunks);
                         data.getMapExpansion().updateBoundaries(worldChunkX, worldChunkZ, bootstrapRadius);
+                        data.getRevealedMarkers().invalidate();
                         
                         exploredWorldChunks = data.getExploredChunks().getExploredChunks();
                         LOGGER.info("Bootstrapped " + bootstrapChunks.size() + " exploration chunks around (" + worldChunkX + ", " + worldChunkZ + ")");
@@ -619,10 +631,25 @@ public class WorldMapHook {
                         }
                     }
 
-                    rankedChunks.sort(Comparator.comparingDouble(idx -> {
+                    // Rank by distance to the path between the player and where they are heading,
+                    // so a moving player's upcoming chunks are sent before the ones behind them.
+                    int aheadX = data.getPredictedMapChunkX();
+                    int aheadZ = data.getPredictedMapChunkZ();
+                    if (aheadX == Integer.MAX_VALUE || aheadZ == Integer.MAX_VALUE) {
+                        aheadX = cx;
+                        aheadZ = cz;
+                    }
+                    final int pathEndX = aheadX;
+                    final int pathEndZ = aheadZ;
+
+                    rankedChunks.sort(Comparator.<Long>comparingDouble(idx -> {
+                        int mx = com.hypixel.hytale.math.util.ChunkUtil.xOfChunkIndex(idx);
+                        int mz = com.hypixel.hytale.math.util.ChunkUtil.zOfChunkIndex(idx);
+                        return distanceToPathSquared(mx, mz, cx, cz, pathEndX, pathEndZ);
+                    }).thenComparingDouble(idx -> {
                         int mx = com.hypixel.hytale.math.util.ChunkUtil.xOfChunkIndex(idx);
                         int mz = com.hypixel.hytale.math.util.ChunkUtil.zOfChunkIndex(idx);
-                        return Math.sqrt(Math.pow(mx - cx, 2) + Math.pow(mz - cz, 2));
+                        return (double) (mx - cx) * (mx - cx) + (double) (mz - cz) * (mz - cz);
                     }));
 
                     int maxChunks = BetterMapConfig.getInstance().getActiveMapQuality().maxChunks;
@@ -651,6 +678,20 @@ public class WorldMapHook {
             }
         }
 
+        private static double distanceToPathSquared(int px, int pz, int ax, int az, int bx, int bz) {
+            double dx = bx - ax;
+            double dz = bz - az;
+            double lengthSq = dx * dx + dz * dz;
+            double t = 0.0;
+            if (lengthSq > 0.0) {
+                t = ((px - ax) * dx + (pz - az) * dz) / lengthSq;
+                t = Math.max(0.0, Math.min(1.0, t));
+            }
+            double ox = px - (ax + t * dx);
+            double oz = pz - (az + t * dz);
+            return ox * ox + oz * oz;
+        }
+
         private void cleanupFarChunks(List<Long> keepChunks) {
             try {
                 Object loadedObj = ReflectionHelper.getFieldValue(tracker, "loaded");
@@ -0,0 +1,203 @@
+package dev.ninesliced.managers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+/**
+ * Benchmark of radar lookups for 200 players in one world: the linear scans over the radar
+ * data list that the radar provider and the player map filter used to do, against
+ * {@link RadarSnapshot#slotOf(UUID)} and {@link RadarSnapshot#forEachInRange}.
+ * <p>
+ * The provider pass has every viewer look itself up and collect the players in range; the
+ * map filter pass has every viewer check every other player. Both implementations must agree.
+ * Players are spread in clusters over a few thousand blocks, as on a busy server. Run it from
+ * the compiled test classes with the server jar on the class path:
+ * {@code java -cp target/classes:target/test-classes:<server jar> dev.ninesliced.managers.RadarSnapshotBenchmark}
+ */
+public final class RadarSnapshotBenchmark {
+    private static final int PLAYERS = 200;
+    private static final int RADAR_RANGE = 256;
+    private static final int CLUSTERS = 12;
+    private static final int WORLD_SPAN = 4000;
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MEASURED_ROUNDS = 50;
+
+    private RadarSnapshotBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(42L);
+        List<LegacyRadarData> legacy = new ArrayList<>(PLAYERS);
+        RadarSnapshot snapshot = new RadarSnapshot();
+        snapshot.clear(RADAR_RANGE, true);
+
+        double[][] clusters = new double[CLUSTERS][2];
+        for (double[] cluster : clusters) {
+            cluster[0] = random.nextDouble() * WORLD_SPAN - WORLD_SPAN / 2.0;
+            cluster[1] = random.nextDouble() * WORLD_SPAN - WORLD_SPAN / 2.0;
+        }
+        UUID[] uuids = new UUID[PLAYERS];
+        for (int i = 0; i < PLAYERS; i++) {
+            double[] cluster = clusters[random.nextInt(CLUSTERS)];
+            double x = cluster[0] + random.nextGaussian() * 150.0;
+            double y = 64.0 + random.nextDouble() * 40.0;
+            double z = cluster[1] + random.nextGaussian() * 150.0;
+            uuids[i] = UUID.randomUUID();
+            legacy.add(new LegacyRadarData(uuids[i].toString(), x, y, z));
+            snapshot.add(uuids[i], "Player" + i, x, y, z, 0f, 0f, 0f, 0f, false);
+        }
+        snapshot.seal();
+
+        System.out.printf(Locale.ROOT, "%d players, radar range %d%n", PLAYERS, RADAR_RANGE);
+        compare("provider pass", () -> linearProvider(legacy, uuids), () -> indexedProvider(snapshot, uuids));
+        compare("map filter pass", () -> linearFilter(legacy, uuids), () -> indexedFilter(snapshot, uuids));
+    }
+
+    private static void compare(String label, LongSupplier linear, LongSupplier indexed) {
+        long linearResult = linear.getAsLong();
+        long indexedResult = indexed.getAsLong();
+        if (linearResult != indexedResult) {
+            throw new IllegalStateException(label + " results differ: linear=" + linearResult + " indexed=" + indexedResult);
+        }
+
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            sink += linear.getAsLong();
+            sink += indexed.getAsLong();
+        }
+        long linearNanos = measure(linear);
+        long indexedNanos = measure(indexed);
+
+        System.out.printf(Locale.ROOT, "%s (%d pairs in range, checksum %d)%n", label, linearResult, sink);
+        System.out.printf(Locale.ROOT, "  linear scan: %,d ns per refresh%n", linearNanos);
+        System.out.printf(Locale.ROOT, "  slot + grid: %,d ns per refresh (%.1fx)%n",
+                indexedNanos, (double) linearNanos / Math.max(1L, indexedNanos));
+    }
+
+    private static long measure(LongSupplier refresh) {
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            sink += refresh.getAsLong();
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink == Long.MIN_VALUE) {
+            System.out.println(sink);
+        }
+        return elapsed / MEASURED_ROUNDS;
+    }
+
+    /**
+     * The radar provider as before the snapshot: find the viewer by UUID string in the list,
+     * then scan the whole list for players in range.
+     */
+    private static long linearProvider(List<LegacyRadarData> radarDataList, UUID[] viewers) {
+        long rangeSquared = (long) RADAR_RANGE * RADAR_RANGE;
+        long inRange = 0;
+        for (UUID viewerUuid : viewers) {
+            LegacyRadarData viewerData = null;
+            for (LegacyRadarData data : radarDataList) {
+                if (data.uuid.equals(viewerUuid.toString())) {
+                    viewerData = data;
+                    break;
+                }
+            }
+            if (viewerData == null) continue;
+
+            for (LegacyRadarData otherData : radarDataList) {
+                if (otherData.uuid.equals(viewerUuid.toString())) continue;
+                if (distanceSquared(viewerData, otherData) <= (double) rangeSquared) {
+                    inRange++;
+                }
+            }
+        }
+        return inRange;
+    }
+
+    /**
+     * The player map filter as before the snapshot: find both players by UUID string for every pair.
+     */
+    private static long linearFilter(List<LegacyRadarData> radarDataList, UUID[] viewers) {
+        long rangeSquared = (long) RADAR_RANGE * RADAR_RANGE;
+        long visible = 0;
+        for (UUID viewerUuid : viewers) {
+            String viewer = viewerUuid.toString();
+            for (UUID otherUuid : viewers) {
+                if (otherUuid == viewerUuid) continue;
+                LegacyRadarData viewerData = null;
+                for (LegacyRadarData data : radarDataList) {
+                    if (data.uuid.equals(viewer)) {
+                        viewerData = data;
+                        break;
+                    }
+                }
+                String other = otherUuid.toString();
+                LegacyRadarData otherData = null;
+                for (LegacyRadarData data : radarDataList) {
+                    if (data.uuid.equals(other)) {
+                        otherData = data;
+                        break;
+                    }
+                }
+                if (viewerData != null && otherData != null && distanceSquared(viewerData, otherData) <= rangeSquared) {
+                    visible++;
+                }
+            }
+        }
+        return visible;
+    }
+
+    private static long indexedProvider(RadarSnapshot snapshot, UUID[] viewers) {
+        long[] inRange = new long[1];
+        for (UUID viewerUuid : viewers) {
+            int viewerSlot = snapshot.slotOf(viewerUuid);
+            if (viewerSlot < 0) continue;
+            snapshot.forEachInRange(viewerSlot, RADAR_RANGE, otherSlot -> inRange[0]++);
+        }
+        return inRange[0];
+    }
+
+    private static long indexedFilter(RadarSnapshot snapshot, UUID[] viewers) {
+        long rangeSquared = (long) RADAR_RANGE * RADAR_RANGE;
+        long visible = 0;
+        for (UUID viewerUuid : viewers) {
+            for (UUID otherUuid : viewers) {
+                if (otherUuid == viewerUuid) continue;
+                int viewerSlot = snapshot.slotOf(viewerUuid);
+                int otherSlot = snapshot.slotOf(otherUuid);
+                if (viewerSlot >= 0 && otherSlot >= 0 && snapshot.distanceSquared(viewerSlot, otherSlot) <= rangeSquared) {
+                    visible++;
+                }
+            }
+        }
+        return visible;
+    }
+
+    private static double distanceSquared(LegacyRadarData a, LegacyRadarData b) {
+        double dx = b.x - a.x;
+        double dy = b.y - a.y;
+        double dz = b.z - a.z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * The radar entry shape the linear scans ran over, keyed by UUID string.
+     */
+    private static final class LegacyRadarData {
+        private final String uuid;
+        private final double x;
+        private final double y;
+        private final double z;
+
+        private LegacyRadarData(String uuid, double x, double y, double z) {
+            this.uuid = uuid;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+    }
+}